@@ -0,0 +1,68 @@
+package com.jimenuzca.UdemyJUnit.benchmarks;
+
+import com.jimenuzca.UdemyJUnit.analitica.AlmacenColumnar;
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas sobre todas las cuentas: con el stream sobre getCuentas() y con el AlmacenColumnar.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class AnaliticaBenchmark {
+    private static final BigDecimal UMBRAL = new BigDecimal("5000");
+
+    @Param({"1000", "100000", "1000000"})
+    int cuentas;
+
+    Banco banco;
+    AlmacenColumnar almacen;
+
+    @Setup(Level.Trial)
+    public void crearBanco() {
+        banco = new Banco();
+        for (int i = 0; i < cuentas; i++) {
+            banco.addCuenta(new Cuenta("Persona " + (i % 1000), BigDecimal.valueOf(i % 10_000, 2)));
+        }
+        almacen = AlmacenColumnar.desde(2, banco);
+    }
+
+    @Benchmark
+    public BigDecimal totalConStream() {
+        return banco.getCuentas().stream().map(Cuenta::getSaldo).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public BigDecimal totalColumnar() {
+        return almacen.total();
+    }
+
+    @Benchmark
+    public long mayoresConStream() {
+        return banco.getCuentas().stream().filter(cta -> cta.getSaldo().compareTo(UMBRAL) > 0).count();
+    }
+
+    @Benchmark
+    public long mayoresColumnar() {
+        return almacen.contarMayoresA(UMBRAL);
+    }
+}
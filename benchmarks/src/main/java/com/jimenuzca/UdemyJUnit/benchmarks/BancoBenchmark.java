@@ -0,0 +1,108 @@
+package com.jimenuzca.UdemyJUnit.benchmarks;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operaciones de Banco variando la cantidad de cuentas: transferir (uno y varios hilos), addCuenta, y la busqueda
+ * por persona con el stream sobre getCuentas() comparada con el indice.
+ * Con 10M de cuentas hace falta un heap grande, se puede limitar con "-p cuentas=10,1000".
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class BancoBenchmark {
+    private static final BigDecimal MONTO = new BigDecimal("1.25");
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("1000000000000");
+
+    @State(Scope.Benchmark)
+    public static class BancoLleno {
+        @Param({"10", "1000", "100000", "10000000"})
+        int cuentas;
+
+        Banco banco;
+        List<Cuenta> lista;
+        String[] personas;
+
+        @Setup(Level.Trial)
+        public void crearBanco() {
+            banco = new Banco();
+            banco.setNombre("Banco Credicoop");
+            personas = new String[cuentas];
+            for (int i = 0; i < cuentas; i++) {
+                personas[i] = "Persona " + i;
+                banco.addCuenta(new Cuenta(personas[i], SALDO_INICIAL));
+            }
+            lista = banco.getCuentas();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BancoVacio {
+        Banco banco;
+
+        @Setup(Level.Iteration)
+        public void crearBanco() {
+            banco = new Banco();
+        }
+    }
+
+    @Benchmark
+    public void transferir(BancoLleno estado) {
+        transferirAlAzar(estado);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void transferirConcurrente(BancoLleno estado) {
+        transferirAlAzar(estado);
+    }
+
+    @Benchmark
+    public Banco addCuenta(BancoVacio estado) {
+        estado.banco.addCuenta(new Cuenta("Graciela", SALDO_INICIAL));
+        return estado.banco;
+    }
+
+    @Benchmark
+    public Optional<Cuenta> buscarConStream(BancoLleno estado) {
+        String persona = estado.personas[ThreadLocalRandom.current().nextInt(estado.cuentas)];
+        return estado.banco.getCuentas().stream()
+                .filter(cta -> cta.getPersona().equals(persona))
+                .findFirst();
+    }
+
+    @Benchmark
+    public Optional<Cuenta> buscarPorPersona(BancoLleno estado) {
+        String persona = estado.personas[ThreadLocalRandom.current().nextInt(estado.cuentas)];
+        return estado.banco.buscarPorPersona(persona);
+    }
+
+    private static void transferirAlAzar(BancoLleno estado) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Cuenta origen = estado.lista.get(random.nextInt(estado.cuentas));
+        Cuenta destino = estado.lista.get(random.nextInt(estado.cuentas));
+        estado.banco.transferir(origen, destino, MONTO);
+    }
+}
@@ -0,0 +1,74 @@
+package com.jimenuzca.UdemyJUnit.benchmarks;
+
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * debito y credito de una Cuenta: cada hilo con su propia cuenta (sin contencion) y varios hilos sobre la misma
+ * cuenta (contencion sobre el candado). El saldo inicial es tan grande que el debito nunca se queda sin fondos.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CuentaBenchmark {
+    private static final BigDecimal MONTO = new BigDecimal("1.25");
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("1000000000000000");
+
+    @State(Scope.Thread)
+    public static class CuentaPropia {
+        Cuenta cuenta;
+
+        @Setup(Level.Iteration)
+        public void crearCuenta() {
+            cuenta = new Cuenta("Graciela", SALDO_INICIAL);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class CuentaCompartida {
+        Cuenta cuenta;
+
+        @Setup(Level.Iteration)
+        public void crearCuenta() {
+            cuenta = new Cuenta("Cecilia", SALDO_INICIAL);
+        }
+    }
+
+    @Benchmark
+    public void debito(CuentaPropia estado) {
+        estado.cuenta.debito(MONTO);
+    }
+
+    @Benchmark
+    public void credito(CuentaPropia estado) {
+        estado.cuenta.credito(MONTO);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void debitoCompartido(CuentaCompartida estado) {
+        estado.cuenta.debito(MONTO);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void creditoCompartido(CuentaCompartida estado) {
+        estado.cuenta.credito(MONTO);
+    }
+}
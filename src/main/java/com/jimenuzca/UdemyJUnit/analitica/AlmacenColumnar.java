@@ -0,0 +1,182 @@
+package com.jimenuzca.UdemyJUnit.analitica;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Copia en columnas de las cuentas de uno o varios bancos, para consultas que recorren todas las cuentas
+ * (total depositado, cuentas con saldo mayor a un umbral, titulares con mas saldo).
+ * En lugar de un objeto Cuenta con su BigDecimal por cuenta hay arreglos primitivos paralelos: el saldo en unidades
+ * minimas, el titular como numero (cada persona distinta se guarda una sola vez) y el numero de banco. Las consultas
+ * son bucles sobre esos arreglos y se reparten entre nucleos con streams paralelos (fork-join).
+ * Es una foto: se arma con desde(...) y no ve los movimientos posteriores. Los saldos siguen viviendo en las cuentas;
+ * esto no las reemplaza, es una copia para leer rapido.
+ */
+public class AlmacenColumnar {
+    // por debajo de esta cantidad de cuentas por parte no conviene repartir el trabajo
+    private static final int MINIMO_POR_PARTE = 4096;
+
+    private final int escala;
+    private final long[] saldos;
+    private final int[] titulares;
+    private final int[] bancos;
+    private final List<String> personas;
+    private final List<Banco> origenes;
+
+    private AlmacenColumnar(int escala, long[] saldos, int[] titulares, int[] bancos,
+                            List<String> personas, List<Banco> origenes) {
+        this.escala = escala;
+        this.saldos = saldos;
+        this.titulares = titulares;
+        this.bancos = bancos;
+        this.personas = personas;
+        this.origenes = origenes;
+    }
+
+    // un saldo con mas decimales que la escala lanza ArithmeticException, como en CuentaFija
+    public static AlmacenColumnar desde(int escala, Banco... origen) {
+        return desde(escala, RoundingMode.UNNECESSARY, origen);
+    }
+
+    // igual, pero los saldos con mas decimales que la escala se redondean con el modo indicado
+
+    public static AlmacenColumnar desde(int escala, RoundingMode redondeo, Banco... origen) {
+        int capacidad = 0;
+        for (Banco banco : origen) {
+            capacidad += banco.getCuentas().size();
+        }
+        Columnas columnas = new Columnas(capacidad);
+        Map<String, Integer> numerosPersona = new HashMap<>();
+        List<String> personas = new ArrayList<>();
+        List<Banco> origenes = new ArrayList<>();
+        for (Banco banco : origen) {
+            int numeroBanco = origenes.size();
+            origenes.add(banco);
+            banco.recorrerSaldos((cuenta, saldo) -> {
+                Integer titular = numerosPersona.get(cuenta.getPersona());
+                if (titular == null) {
+                    titular = personas.size();
+                    numerosPersona.put(cuenta.getPersona(), titular);
+                    personas.add(cuenta.getPersona());
+                }
+                long unidades = saldo.setScale(escala, redondeo).unscaledValue().longValueExact();
+                columnas.agregar(unidades, titular, numeroBanco);
+            });
+        }
+        int n = columnas.cantidad;
+        return new AlmacenColumnar(escala, Arrays.copyOf(columnas.saldos, n),
+                Arrays.copyOf(columnas.titulares, n), Arrays.copyOf(columnas.bancos, n), personas, origenes);
+    }
+
+    public int cantidad() {
+        return saldos.length;
+    }
+
+    public BigDecimal total() {
+        return BigDecimal.valueOf(LongStream.of(saldos).parallel().reduce(0, Math::addExact), escala);
+    }
+
+    public long contarMayoresA(BigDecimal umbral) {
+        // redondeando el umbral hacia abajo, "mayor que el umbral" es "al menos una unidad mas", tenga o no
+        // mas decimales que la escala
+        long minimo = umbral.setScale(escala, RoundingMode.FLOOR).unscaledValue().longValueExact() + 1;
+        return IntStream.range(0, saldos.length).parallel().filter(i -> saldos[i] >= minimo).count();
+    }
+
+    // total depositado por cada banco, en el orden en que se pasaron a desde(...). Se indexa por el Banco y no por su
+    // nombre, que puede faltar o repetirse
+    public Map<Banco, BigDecimal> totalPorBanco() {
+        long[] totales = sumarPorGrupo(bancos, origenes.size());
+        Map<Banco, BigDecimal> resultado = new LinkedHashMap<>();
+        for (int b = 0; b < totales.length; b++) {
+            resultado.merge(origenes.get(b), BigDecimal.valueOf(totales[b], escala), BigDecimal::add);
+        }
+        return resultado;
+    }
+
+    // los n titulares con mas saldo sumando todas sus cuentas, de mayor a menor
+    public Map<String, BigDecimal> mayoresTitulares(int n) {
+        long[] porTitular = sumarPorGrupo(titulares, personas.size());
+        // monticulo de tamanio n con el menor arriba: cada titular entra solo si supera al menor de los elegidos
+        PriorityQueue<Integer> elegidos = new PriorityQueue<>(Math.max(1, n),
+                (a, b) -> Long.compare(porTitular[a], porTitular[b]));
+        for (int t = 0; t < porTitular.length; t++) {
+            if (elegidos.size() < n) {
+                elegidos.add(t);
+            } else if (n > 0 && porTitular[t] > porTitular[elegidos.peek()]) {
+                elegidos.poll();
+                elegidos.add(t);
+            }
+        }
+        Integer[] orden = elegidos.toArray(new Integer[0]);
+        Arrays.sort(orden, (a, b) -> Long.compare(porTitular[b], porTitular[a]));
+        Map<String, BigDecimal> resultado = new LinkedHashMap<>();
+        for (Integer t : orden) {
+            resultado.put(personas.get(t), BigDecimal.valueOf(porTitular[t], escala));
+        }
+        return resultado;
+    }
+
+    // suma los saldos de cada grupo (banco o titular). Las cuentas se parten en tantos tramos como hilos tiene el pool
+    // de fork-join y cada tramo acumula en su propio arreglo: asi hay un arreglo por hilo y no uno por cada hoja en
+    // que el stream parte el rango, que con muchos titulares seria mucha memoria
+    private long[] sumarPorGrupo(int[] grupos, int cantidadGrupos) {
+        int partes = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), saldos.length / MINIMO_POR_PARTE));
+        long[][] parciales = new long[partes][];
+        IntStream.range(0, partes).parallel().forEach(parte -> {
+            long[] acumulado = new long[cantidadGrupos];
+            int hasta = (int) ((long) saldos.length * (parte + 1) / partes);
+            for (int i = (int) ((long) saldos.length * parte / partes); i < hasta; i++) {
+                acumulado[grupos[i]] = Math.addExact(acumulado[grupos[i]], saldos[i]);
+            }
+            parciales[parte] = acumulado;
+        });
+        long[] total = parciales[0];
+        for (int parte = 1; parte < partes; parte++) {
+            for (int g = 0; g < cantidadGrupos; g++) {
+                total[g] = Math.addExact(total[g], parciales[parte][g]);
+            }
+        }
+        return total;
+    }
+
+    // arreglos que crecen mientras se recorren las cuentas (pueden agregarse cuentas durante el recorrido)
+    private static class Columnas {
+        long[] saldos;
+        int[] titulares;
+        int[] bancos;
+        int cantidad;
+
+        Columnas(int capacidad) {
+            capacidad = Math.max(capacidad, 16);
+            saldos = new long[capacidad];
+            titulares = new int[capacidad];
+            bancos = new int[capacidad];
+        }
+
+        void agregar(long saldo, int titular, int banco) {
+            if (cantidad == saldos.length) {
+                int nueva = cantidad * 2;
+                saldos = Arrays.copyOf(saldos, nueva);
+                titulares = Arrays.copyOf(titulares, nueva);
+                bancos = Arrays.copyOf(bancos, nueva);
+            }
+            saldos[cantidad] = saldo;
+            titulares[cantidad] = titular;
+            bancos[cantidad] = banco;
+            cantidad++;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.jimenuzca.UdemyJUnit.eventos;
+
+import com.jimenuzca.UdemyJUnit.models.TipoMovimiento;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Buffer circular acotado de CambioSaldo reservados de antemano, con varios escritores y un solo lector (la cola
+ * acotada de D. Vyukov): cada celda tiene un numero de secuencia que dice si esta libre para la escritura numero n
+ * o publicada para la lectura n. Escribir es un CAS y nunca espera; si esta lleno devuelve false.
+ * El lector lee las celdas publicadas sin copiarlas y las libera cuando termino de usarlas.
+ */
+final class AnilloEventos {
+    private final CambioSaldo[] celdas;
+    private final AtomicLongArray secuencias;
+    private final int mascara;
+    private final AtomicLong escritura = new AtomicLong();
+    // solo lo usa el lector
+    private long lectura;
+
+    AnilloEventos(int capacidad) {
+        int tamanio = Integer.highestOneBit(Math.max(2, capacidad) - 1) << 1;
+        this.celdas = new CambioSaldo[tamanio];
+        this.secuencias = new AtomicLongArray(tamanio);
+        for (int i = 0; i < tamanio; i++) {
+            celdas[i] = new CambioSaldo();
+            secuencias.set(i, i);
+        }
+        this.mascara = tamanio - 1;
+    }
+
+    boolean publicar(long cuentaId, TipoMovimiento tipo, BigDecimal monto, BigDecimal saldo, long instante, int coalescidos) {
+        while (true) {
+            long posicion = escritura.get();
+            int celda = (int) (posicion & mascara);
+            long diferencia = secuencias.get(celda) - posicion;
+            if (diferencia < 0) {
+                return false;
+            }
+            if (diferencia == 0 && escritura.compareAndSet(posicion, posicion + 1)) {
+                celdas[celda].set(cuentaId, tipo, monto, saldo, instante, coalescidos);
+                secuencias.set(celda, posicion + 1);
+                return true;
+            }
+        }
+    }
+
+    boolean publicar(CambioSaldo cambio) {
+        return publicar(cambio.getCuentaId(), cambio.getTipo(), cambio.getMonto(), cambio.getSaldo(),
+                cambio.getInstante(), cambio.getCoalescidos());
+    }
+
+    // agrega al lote hasta maximo celdas publicadas, en orden, sin liberarlas; devuelve cuantas agrego
+    int leer(List<CambioSaldo> lote, int maximo) {
+        int leidas = 0;
+        while (leidas < maximo) {
+            long posicion = lectura + leidas;
+            int celda = (int) (posicion & mascara);
+            if (secuencias.get(celda) != posicion + 1) {
+                break;
+            }
+            lote.add(celdas[celda]);
+            leidas++;
+        }
+        return leidas;
+    }
+
+    // cantidad de escrituras reservadas hasta ahora: todo lo que se publique despues queda en una posicion mayor
+    long posicionEscritura() {
+        return escritura.get();
+    }
+
+    // solo desde el hilo lector: cantidad de celdas ya leidas y liberadas
+    long posicionLectura() {
+        return lectura;
+    }
+
+    // devuelve las celdas leidas a los escritores
+    void liberar(int cantidad) {
+        for (int i = 0; i < cantidad; i++) {
+            int celda = (int) (lectura & mascara);
+            secuencias.set(celda, lectura + mascara + 1);
+            lectura++;
+        }
+    }
+}
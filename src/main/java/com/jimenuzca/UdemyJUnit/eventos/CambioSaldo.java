@@ -0,0 +1,64 @@
+package com.jimenuzca.UdemyJUnit.eventos;
+
+import com.jimenuzca.UdemyJUnit.models.TipoMovimiento;
+
+import java.math.BigDecimal;
+
+/**
+ * Un cambio de saldo publicado por CanalSaldos: id de la cuenta, tipo y monto del movimiento, saldo despues del
+ * movimiento e instante (System.currentTimeMillis).
+ * Los eventos estan reservados de antemano en los buffers circulares y se reutilizan: un suscriptor solo puede usar
+ * el evento dentro de SuscriptorSaldos.recibir y tiene que copiar lo que quiera guardar.
+ * Si getCoalescidos() es mayor que 1 el evento resume esa cantidad de cambios de la cuenta: el saldo es el ultimo
+ * y el tipo y monto son los del ultimo movimiento.
+ */
+public final class CambioSaldo {
+    private long cuentaId;
+    private TipoMovimiento tipo;
+    private BigDecimal monto;
+    private BigDecimal saldo;
+    private long instante;
+    private int coalescidos;
+
+    public long getCuentaId() {
+        return cuentaId;
+    }
+
+    public TipoMovimiento getTipo() {
+        return tipo;
+    }
+
+    public BigDecimal getMonto() {
+        return monto;
+    }
+
+    public BigDecimal getSaldo() {
+        return saldo;
+    }
+
+    public long getInstante() {
+        return instante;
+    }
+
+    public int getCoalescidos() {
+        return coalescidos;
+    }
+
+    void set(long cuentaId, TipoMovimiento tipo, BigDecimal monto, BigDecimal saldo, long instante, int coalescidos) {
+        this.cuentaId = cuentaId;
+        this.tipo = tipo;
+        this.monto = monto;
+        this.saldo = saldo;
+        this.instante = instante;
+        this.coalescidos = coalescidos;
+    }
+
+    void copiar(CambioSaldo otro) {
+        set(otro.cuentaId, otro.tipo, otro.monto, otro.saldo, otro.instante, otro.coalescidos);
+    }
+
+    @Override
+    public String toString() {
+        return cuentaId + " " + tipo + " " + monto + " -> " + saldo + (coalescidos > 1 ? " (" + coalescidos + " cambios)" : "");
+    }
+}
@@ -0,0 +1,236 @@
+package com.jimenuzca.UdemyJUnit.eventos;
+
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.ObservadorMovimientos;
+import com.jimenuzca.UdemyJUnit.models.TipoMovimiento;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Canal de cambios de saldo (change data capture) para otros sistemas del mismo proceso: notificaciones, fraude,
+ * contabilidad. Se registra en el banco con Banco.addObservador y recibe cada debito, credito y transferencia.
+ * El proyecto compila con Java 8, asi que en lugar de java.util.concurrent.Flow se usan buffers circulares:
+ * - Quien hace el movimiento solo escribe el cambio en un buffer central acotado con un CAS, sin esperar nunca.
+ *   Si el buffer central esta lleno (llegan cambios mas rapido de lo que el despachador los reparte) guarda solo el
+ *   ultimo cambio de esa cuenta, que se entrega como un evento coalescido; asi no se frena ni crece mas que la
+ *   cantidad de cuentas (se cuenta en getDesbordes). Solo se crea un objeto cuando una cuenta desborda por primera
+ *   vez desde el ultimo despacho; los cambios siguientes de esa cuenta se resumen en el mismo.
+ * - Un hilo despachador pasa cada cambio al buffer de cada Suscripcion, segun su PoliticaContrapresion, y cada
+ *   suscripcion se lo entrega a su suscriptor en lotes desde su propio hilo. El despachador nunca espera a un
+ *   suscriptor, asi uno lento no demora a los demas.
+ * Los cambios de una misma cuenta llegan siempre en orden. En un Banco.transferirLote el saldo de los eventos es el
+ * saldo final de la cuenta despues del lote.
+ * Sin cambios que repartir el despachador se duerme cada vez mas, hasta ESPERA_MAXIMA_NANOS, y quien publica lo
+ * despierta; asi un canal sin movimientos no gasta procesador.
+ */
+public class CanalSaldos implements ObservadorMovimientos, AutoCloseable {
+    private static final int LOTE_DESPACHO = 256;
+    static final long ESPERA_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    static final long ESPERA_MAXIMA_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    // cuanto espera close() a los suscriptores lentos
+    static final long ESPERA_CIERRE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    // cambios que una suscripcion con BLOQUEAR encola, por defecto, antes de resumirlos por cuenta
+    public static final int MAXIMO_PENDIENTES = 1 << 16;
+
+    private final AnilloEventos anillo;
+    // ultimo cambio de cada cuenta que no entro en el buffer central, con la posicion de escritura del buffer en ese
+    // momento: se despacha recien cuando el despachador leyo hasta ahi, despues de los cambios anteriores de la cuenta
+    private final Map<Long, Desborde> desbordados = new ConcurrentHashMap<>();
+    private final LongAdder desbordes = new LongAdder();
+    private volatile Suscripcion[] suscripciones = new Suscripcion[0];
+    private final Thread despachador;
+    private volatile boolean activo = true;
+    // el despachador esta por dormirse: quien publica lo despierta
+    private volatile boolean esperando;
+    // hasta cuando (segun System.nanoTime) espera el despachador a los suscriptores despues de close
+    private volatile long limiteCierre;
+    private volatile boolean descartoAlCerrar;
+
+    public CanalSaldos(int capacidad) {
+        this.anillo = new AnilloEventos(capacidad);
+        this.despachador = new Thread(this::despachar, "canal-saldos");
+        this.despachador.setDaemon(true);
+        this.despachador.start();
+    }
+
+    public Suscripcion suscribir(SuscriptorSaldos suscriptor, PoliticaContrapresion politica, int capacidad,
+                                 int tamanioLote) {
+        return suscribir(suscriptor, politica, capacidad, tamanioLote, MAXIMO_PENDIENTES);
+    }
+
+    // maximoPendientes solo se usa con BLOQUEAR: lo que no entra en esa cola se resume por cuenta, como con COALESCER
+    public synchronized Suscripcion suscribir(SuscriptorSaldos suscriptor, PoliticaContrapresion politica,
+                                              int capacidad, int tamanioLote, int maximoPendientes) {
+        Suscripcion suscripcion = new Suscripcion(this, suscriptor, politica, capacidad, tamanioLote, maximoPendientes);
+        Suscripcion[] nuevas = Arrays.copyOf(suscripciones, suscripciones.length + 1);
+        nuevas[suscripciones.length] = suscripcion;
+        suscripciones = nuevas;
+        return suscripcion;
+    }
+
+    synchronized void quitar(Suscripcion suscripcion) {
+        List<Suscripcion> quedan = new ArrayList<>(Arrays.asList(suscripciones));
+        quedan.remove(suscripcion);
+        suscripciones = quedan.toArray(new Suscripcion[0]);
+    }
+
+    // cambios que no entraron en el buffer central y se resumieron por cuenta
+    public long getDesbordes() {
+        return desbordes.sum();
+    }
+
+    @Override
+    public void movimiento(Cuenta cuenta, TipoMovimiento tipo, BigDecimal monto) {
+        long id = cuenta.getId();
+        BigDecimal saldo = cuenta.getSaldo();
+        long instante = System.currentTimeMillis();
+        // si la cuenta ya tiene un cambio desbordado los siguientes van detras de el, sino se desordenarian
+        if ((desbordados.isEmpty() || !desbordados.containsKey(id)) && anillo.publicar(id, tipo, monto, saldo, instante, 1)) {
+            despertar();
+            return;
+        }
+        desbordes.increment();
+        // los cambios de una cuenta se publican con su candado tomado, asi que no hay dos escritores de la misma cuenta
+        while (true) {
+            Desborde desborde = desbordados.get(id);
+            if (desborde == null) {
+                desborde = new Desborde(anillo.posicionEscritura());
+                desborde.cambio.set(id, tipo, monto, saldo, instante, 1);
+                if (desbordados.putIfAbsent(id, desborde) == null) {
+                    despertar();
+                    return;
+                }
+            } else if (desborde.resumir(tipo, monto, saldo, instante)) {
+                return;
+            }
+            // el despachador lo estaba entregando: se vuelve a buscar hasta que lo quite del mapa
+        }
+    }
+
+    void despertar() {
+        if (esperando) {
+            LockSupport.unpark(despachador);
+        }
+    }
+
+    // deja de despachar cuando el buffer central queda vacio y cierra las suscripciones. Espera a los suscriptores
+    // lentos hasta ESPERA_CIERRE_NANOS
+    @Override
+    public void close() {
+        close(ESPERA_CIERRE_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    // como close(), pero espera a los suscriptores lentos como maximo ese tiempo: lo que todavia no entro en sus
+    // buffers se descarta (se cuenta en Suscripcion.getDescartados) y no se espera a los que siguen en recibir.
+    // Devuelve false si quedo algo sin entregar
+    public boolean close(long espera, TimeUnit unidad) {
+        long limite = System.nanoTime() + unidad.toNanos(espera);
+        limiteCierre = limite;
+        activo = false;
+        LockSupport.unpark(despachador);
+        try {
+            despachador.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean entregado = !descartoAlCerrar;
+        for (Suscripcion suscripcion : suscripciones) {
+            entregado &= suscripcion.cerrar(limite);
+        }
+        return entregado;
+    }
+
+    private void despachar() {
+        List<CambioSaldo> lote = new ArrayList<>(LOTE_DESPACHO);
+        long espera = ESPERA_NANOS;
+        while (true) {
+            lote.clear();
+            int leidos = anillo.leer(lote, LOTE_DESPACHO);
+            Suscripcion[] destinos = suscripciones;
+            for (CambioSaldo cambio : lote) {
+                for (Suscripcion suscripcion : destinos) {
+                    suscripcion.entregar(cambio);
+                }
+            }
+            anillo.liberar(leidos);
+            if (!desbordados.isEmpty()) {
+                despacharDesbordados(destinos);
+            }
+            if (leidos > 0) {
+                espera = ESPERA_NANOS;
+                continue;
+            }
+            boolean quedanPendientes = false;
+            for (Suscripcion suscripcion : destinos) {
+                quedanPendientes |= suscripcion.reintentarPendientes();
+            }
+            if (!activo && desbordados.isEmpty()) {
+                if (!quedanPendientes) {
+                    return;
+                }
+                if (System.nanoTime() - limiteCierre >= 0) {
+                    for (Suscripcion suscripcion : destinos) {
+                        suscripcion.descartarPendientes();
+                    }
+                    descartoAlCerrar = true;
+                    return;
+                }
+            }
+            // se anuncia antes de volver a mirar, asi un cambio que llega justo despues igual nos despierta
+            esperando = true;
+            lote.clear();
+            if (anillo.leer(lote, 1) == 0 && desbordados.isEmpty()) {
+                LockSupport.parkNanos(this, espera);
+                espera = Math.min(espera * 2, ESPERA_MAXIMA_NANOS);
+            }
+            esperando = false;
+        }
+    }
+
+    private void despacharDesbordados(Suscripcion[] destinos) {
+        long leido = anillo.posicionLectura();
+        for (Iterator<Desborde> it = desbordados.values().iterator(); it.hasNext(); ) {
+            Desborde desborde = it.next();
+            if (desborde.posicion <= leido) {
+                // despues de cerrarlo ningun escritor lo vuelve a modificar
+                desborde.cerrar();
+                it.remove();
+                for (Suscripcion suscripcion : destinos) {
+                    suscripcion.entregar(desborde.cambio);
+                }
+            }
+        }
+    }
+
+    private static class Desborde {
+        final long posicion;
+        final CambioSaldo cambio = new CambioSaldo();
+        private boolean cerrado;
+
+        Desborde(long posicion) {
+            this.posicion = posicion;
+        }
+
+        // agrega un cambio al resumen; false si el despachador ya lo tomo para entregarlo
+        synchronized boolean resumir(TipoMovimiento tipo, BigDecimal monto, BigDecimal saldo, long instante) {
+            if (cerrado) {
+                return false;
+            }
+            cambio.set(cambio.getCuentaId(), tipo, monto, saldo, instante, cambio.getCoalescidos() + 1);
+            return true;
+        }
+
+        synchronized void cerrar() {
+            cerrado = true;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.jimenuzca.UdemyJUnit.eventos;
+
+/**
+ * Que hace CanalSaldos cuando el buffer de un suscriptor esta lleno porque consume mas lento de lo que llegan
+ * los cambios. En ningun caso se frena a quien hace el debito, credito o transferencia.
+ */
+public enum PoliticaContrapresion {
+    // lo que no entra queda esperando en una cola de ese suscriptor, en orden, y se pasa al buffer a medida que hace
+    // lugar: no pierde eventos ni demora a los demas suscriptores (ver Suscripcion.getPendientes). La cola es acotada
+    // (CanalSaldos.MAXIMO_PENDIENTES o el maximo de suscribir); si se llena, los cambios siguientes se resumen por
+    // cuenta como con COALESCER, asi un suscriptor trabado no hace crecer la memoria sin limite
+    BLOQUEAR,
+    // el evento se descarta para ese suscriptor (se cuenta en Suscripcion.getDescartados)
+    DESCARTAR,
+    // se guarda solo el ultimo cambio de cada cuenta y se entrega cuando hay lugar, con la cantidad de cambios que
+    // resume en getCoalescidos
+    COALESCER
+}
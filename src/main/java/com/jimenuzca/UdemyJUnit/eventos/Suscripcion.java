@@ -0,0 +1,229 @@
+package com.jimenuzca.UdemyJUnit.eventos;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Un suscriptor de CanalSaldos con su propio buffer circular y su propio hilo, que le entrega los cambios en lotes
+ * de hasta tamanioLote. El despachador del canal copia cada cambio al buffer aplicando la politica de contrapresion
+ * cuando esta lleno, sin esperar nunca. Con BLOQUEAR los cambios que no entran quedan en una cola de esta suscripcion
+ * (copias que se reutilizan) de hasta maximoPendientes cambios; con COALESCER, o con BLOQUEAR cuando esa cola se
+ * lleno, se guardan por cuenta (solo el ultimo). El despachador los vuelve a poner en el buffer apenas hay lugar,
+ * primero la cola y despues los resumidos, antes que cualquier cambio posterior de la cuenta, asi cada cuenta se ve
+ * siempre en orden.
+ * Si recibir lanza una excepcion el lote se da por entregado y se cuenta en getErrores.
+ * Sin cambios para entregar el hilo se duerme cada vez mas (hasta CanalSaldos.ESPERA_MAXIMA_NANOS) y el despachador
+ * lo despierta al pasarle uno.
+ */
+public class Suscripcion implements AutoCloseable {
+    private final CanalSaldos canal;
+    private final SuscriptorSaldos suscriptor;
+    private final PoliticaContrapresion politica;
+    private final AnilloEventos anillo;
+    private final int tamanioLote;
+    private final int maximoPendientes;
+    // solo los usa el despachador del canal
+    private final Map<Long, CambioSaldo> coalescidos = new LinkedHashMap<>();
+    private final ArrayDeque<CambioSaldo> pendientes = new ArrayDeque<>();
+    private final ArrayDeque<CambioSaldo> libres = new ArrayDeque<>();
+    private volatile int cantidadPendientes;
+    // el hilo esta por dormirse: quien le pasa un cambio lo despierta
+    private volatile boolean esperando;
+    private final LongAdder entregados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder resumidos = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final Thread hilo;
+    private volatile boolean activa = true;
+
+    Suscripcion(CanalSaldos canal, SuscriptorSaldos suscriptor, PoliticaContrapresion politica, int capacidad,
+                int tamanioLote, int maximoPendientes) {
+        this.canal = canal;
+        this.suscriptor = suscriptor;
+        this.politica = politica;
+        this.anillo = new AnilloEventos(capacidad);
+        this.tamanioLote = tamanioLote;
+        this.maximoPendientes = maximoPendientes;
+        this.hilo = new Thread(this::consumir, "suscripcion-saldos");
+        this.hilo.setDaemon(true);
+        this.hilo.start();
+    }
+
+    public PoliticaContrapresion getPolitica() {
+        return politica;
+    }
+
+    // eventos entregados a recibir (un evento coalescido cuenta como uno)
+    public long getEntregados() {
+        return entregados.sum();
+    }
+
+    // con DESCARTAR, y los que quedaban esperando lugar si el canal se cerro sin poder entregarlos
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    // cambios que quedaron resumidos dentro de otro evento por COALESCER
+    public long getResumidos() {
+        return resumidos.sum();
+    }
+
+    // cambios (en la cola de BLOQUEAR o resumidos por cuenta) que esperan lugar en el buffer del suscriptor
+    public int getPendientes() {
+        return cantidadPendientes;
+    }
+
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    // deja de recibir eventos: se entregan los que ya estaban en el buffer y termina el hilo. Si el suscriptor sigue
+    // trabado despues de CanalSaldos.ESPERA_CIERRE_NANOS se deja de esperarlo
+    @Override
+    public void close() {
+        cerrar(System.nanoTime() + CanalSaldos.ESPERA_CIERRE_NANOS);
+    }
+
+    // espera al hilo hasta limite (segun System.nanoTime); devuelve false si no termino
+    boolean cerrar(long limite) {
+        canal.quitar(this);
+        activa = false;
+        LockSupport.unpark(hilo);
+        try {
+            hilo.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime())));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !hilo.isAlive();
+    }
+
+    // desde el despachador del canal
+    void entregar(CambioSaldo cambio) {
+        switch (politica) {
+            case BLOQUEAR:
+                if (!reintentarPendientes() && publicar(cambio)) {
+                    return;
+                }
+                // si la cuenta ya tiene un cambio resumido los siguientes van detras de el
+                if (pendientes.size() < maximoPendientes
+                        && (coalescidos.isEmpty() || !coalescidos.containsKey(cambio.getCuentaId()))) {
+                    CambioSaldo copia = libres.isEmpty() ? new CambioSaldo() : libres.poll();
+                    copia.copiar(cambio);
+                    pendientes.add(copia);
+                } else {
+                    coalescer(cambio);
+                }
+                cantidadPendientes = pendientes.size() + coalescidos.size();
+                break;
+            case DESCARTAR:
+                if (!publicar(cambio)) {
+                    descartados.increment();
+                }
+                break;
+            default:
+                reintentarPendientes();
+                if ((coalescidos.isEmpty() || !coalescidos.containsKey(cambio.getCuentaId())) && publicar(cambio)) {
+                    return;
+                }
+                coalescer(cambio);
+                cantidadPendientes = coalescidos.size();
+        }
+    }
+
+    // desde el despachador del canal, para pasar al buffer los cambios que quedaron esperando lugar.
+    // Devuelve true si quedo alguno sin pasar
+    boolean reintentarPendientes() {
+        while (!pendientes.isEmpty()) {
+            if (!publicar(pendientes.peek())) {
+                cantidadPendientes = pendientes.size() + coalescidos.size();
+                return true;
+            }
+            libres.add(pendientes.poll());
+        }
+        for (Iterator<CambioSaldo> it = coalescidos.values().iterator(); it.hasNext(); ) {
+            if (!publicar(it.next())) {
+                cantidadPendientes = coalescidos.size();
+                return true;
+            }
+            it.remove();
+        }
+        cantidadPendientes = 0;
+        return false;
+    }
+
+    // desde el despachador del canal, al cerrarlo sin que el suscriptor haya hecho lugar: se cuentan como descartados
+    void descartarPendientes() {
+        descartados.add(pendientes.size());
+        libres.addAll(pendientes);
+        pendientes.clear();
+        for (CambioSaldo cambio : coalescidos.values()) {
+            descartados.add(Math.max(1, cambio.getCoalescidos()));
+        }
+        coalescidos.clear();
+        cantidadPendientes = 0;
+    }
+
+    private boolean publicar(CambioSaldo cambio) {
+        if (!anillo.publicar(cambio)) {
+            return false;
+        }
+        if (esperando) {
+            LockSupport.unpark(hilo);
+        }
+        return true;
+    }
+
+    private void coalescer(CambioSaldo cambio) {
+        CambioSaldo ultimo = coalescidos.get(cambio.getCuentaId());
+        if (ultimo == null) {
+            ultimo = new CambioSaldo();
+            ultimo.copiar(cambio);
+            coalescidos.put(cambio.getCuentaId(), ultimo);
+            return;
+        }
+        resumidos.add(Math.max(1, cambio.getCoalescidos()));
+        ultimo.set(cambio.getCuentaId(), cambio.getTipo(), cambio.getMonto(), cambio.getSaldo(), cambio.getInstante(),
+                Math.max(1, ultimo.getCoalescidos()) + Math.max(1, cambio.getCoalescidos()));
+    }
+
+    private void consumir() {
+        List<CambioSaldo> lote = new ArrayList<>(tamanioLote);
+        long espera = CanalSaldos.ESPERA_NANOS;
+        while (true) {
+            lote.clear();
+            int leidos = anillo.leer(lote, tamanioLote);
+            if (leidos == 0) {
+                if (!activa) {
+                    return;
+                }
+                // se anuncia antes de volver a mirar, asi un cambio que llega justo despues igual nos despierta
+                esperando = true;
+                if (anillo.leer(lote, 1) == 0 && activa) {
+                    LockSupport.parkNanos(this, espera);
+                    espera = Math.min(espera * 2, CanalSaldos.ESPERA_MAXIMA_NANOS);
+                }
+                esperando = false;
+                continue;
+            }
+            espera = CanalSaldos.ESPERA_NANOS;
+            try {
+                suscriptor.recibir(lote);
+            } catch (RuntimeException e) {
+                errores.increment();
+            }
+            entregados.add(leidos);
+            anillo.liberar(leidos);
+            // el despachador puede estar esperando lugar para lo que quedo pendiente
+            if (cantidadPendientes > 0) {
+                canal.despertar();
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.jimenuzca.UdemyJUnit.eventos;
+
+import java.util.List;
+
+/**
+ * Recibe los cambios de saldo de un CanalSaldos en lotes, desde el hilo propio de su suscripcion.
+ * Los eventos del lote se reutilizan despues de que recibir termina (ver CambioSaldo).
+ */
+public interface SuscriptorSaldos {
+
+    void recibir(List<CambioSaldo> lote);
+}
@@ -2,7 +2,19 @@ package com.jimenuzca.UdemyJUnit.exceptions;
 
 public class DineroInsuficienteException extends RuntimeException{
 
+    // instancia compartida sin stack trace, para quien necesita una excepcion pero no puede pagar crearla cada vez
+    private static final DineroInsuficienteException SIN_TRAZA = new DineroInsuficienteException("Dinero insuficiente", false);
+
     public DineroInsuficienteException(String message) {
         super(message);
     }
+
+    // sin stack trace ni excepciones suprimidas, asi crearla no recorre la pila y se puede compartir entre hilos
+    private DineroInsuficienteException(String message, boolean conTraza) {
+        super(message, null, false, conTraza);
+    }
+
+    public static DineroInsuficienteException sinTraza() {
+        return SIN_TRAZA;
+    }
 }
@@ -0,0 +1,39 @@
+package com.jimenuzca.UdemyJUnit.metricas;
+
+/**
+ * Valores de una operacion en un momento dado, ver Metricas.foto.
+ */
+public class FotoOperacion {
+    private final Operacion operacion;
+    private final long cantidad;
+    private final long rechazos;
+    private final long[] cubetas;
+
+    FotoOperacion(Operacion operacion, long cantidad, long rechazos, long[] cubetas) {
+        this.operacion = operacion;
+        this.cantidad = cantidad;
+        this.rechazos = rechazos;
+        this.cubetas = cubetas;
+    }
+
+    public Operacion getOperacion() {
+        return operacion;
+    }
+
+    public long getCantidad() {
+        return cantidad;
+    }
+
+    // debitos o transferencias rechazados por dinero insuficiente
+    public long getRechazos() {
+        return rechazos;
+    }
+
+    public double getTasaRechazo() {
+        return cantidad == 0 ? 0 : (double) rechazos / cantidad;
+    }
+
+    public long percentilNanos(double porcentaje) {
+        return Histograma.percentil(cubetas, porcentaje);
+    }
+}
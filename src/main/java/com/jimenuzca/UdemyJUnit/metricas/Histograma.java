@@ -0,0 +1,74 @@
+package com.jimenuzca.UdemyJUnit.metricas;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias al estilo HDR: los valores se agrupan en potencias de dos y cada potencia se divide en
+ * SUBDIVISIONES partes iguales, asi el error relativo es de a lo sumo 1/16 para cualquier valor de 0 a Long.MAX_VALUE
+ * con un arreglo fijo de contadores. Registrar es un incremento atomico: no bloquea ni crea objetos.
+ */
+public class Histograma {
+    private static final int BITS_SUBDIVISION = 4;
+    private static final int SUBDIVISIONES = 1 << BITS_SUBDIVISION;
+    private static final int CANTIDAD_CUBETAS = (64 - BITS_SUBDIVISION + 1) * SUBDIVISIONES;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CANTIDAD_CUBETAS);
+
+    public void registrar(long valor) {
+        cubetas.incrementAndGet(cubeta(Math.max(0, valor)));
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < CANTIDAD_CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+    }
+
+    // copia de los contadores en este momento, para calcular percentiles sin frenar a quienes registran
+    public long[] copiarCubetas() {
+        long[] copia = new long[CANTIDAD_CUBETAS];
+        for (int i = 0; i < CANTIDAD_CUBETAS; i++) {
+            copia[i] = cubetas.get(i);
+        }
+        return copia;
+    }
+
+    // valor por debajo del cual esta el porcentaje pedido de los registros (por ej. 99.0), sobre una copia de cubetas
+    public static long percentil(long[] cubetas, double porcentaje) {
+        long total = 0;
+        for (long cantidad : cubetas) {
+            total += cantidad;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(total * porcentaje / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < cubetas.length; i++) {
+            acumulado += cubetas[i];
+            if (acumulado >= objetivo) {
+                return limiteSuperior(i);
+            }
+        }
+        return limiteSuperior(cubetas.length - 1);
+    }
+
+    static int cubeta(long valor) {
+        if (valor < SUBDIVISIONES) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int subdivision = (int) (valor >>> (exponente - BITS_SUBDIVISION)) & (SUBDIVISIONES - 1);
+        return (exponente - BITS_SUBDIVISION + 1) * SUBDIVISIONES + subdivision;
+    }
+
+    // mayor valor que cae en la cubeta
+    static long limiteSuperior(int cubeta) {
+        if (cubeta < SUBDIVISIONES) {
+            return cubeta;
+        }
+        int exponente = cubeta / SUBDIVISIONES + BITS_SUBDIVISION - 1;
+        long inferior = (long) (SUBDIVISIONES + cubeta % SUBDIVISIONES) << (exponente - BITS_SUBDIVISION);
+        return inferior + (1L << (exponente - BITS_SUBDIVISION)) - 1;
+    }
+}
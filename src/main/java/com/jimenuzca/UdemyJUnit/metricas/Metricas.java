@@ -0,0 +1,106 @@
+package com.jimenuzca.UdemyJUnit.metricas;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores y latencias de debito, credito y transferir, para todo el proceso.
+ * Vienen desactivadas: en ese caso Cuenta y Banco solo leen un booleano y no miden nada. Activadas, cada operacion
+ * suma en contadores LongAdder y registra su duracion en un Histograma, sin bloquear ni crear objetos.
+ * Se leen con foto(operacion) o por JMX despues de registrarJmx().
+ */
+public final class Metricas implements MetricasMXBean {
+    public static final String NOMBRE_JMX = "com.jimenuzca.UdemyJUnit:type=Metricas";
+    private static final Operacion[] OPERACIONES = Operacion.values();
+    private static final Metricas GLOBAL = new Metricas();
+
+    private static volatile boolean activas;
+
+    private final LongAdder[] cantidades = new LongAdder[OPERACIONES.length];
+    private final LongAdder[] rechazos = new LongAdder[OPERACIONES.length];
+    private final Histograma[] latencias = new Histograma[OPERACIONES.length];
+
+    private Metricas() {
+        for (int i = 0; i < OPERACIONES.length; i++) {
+            cantidades[i] = new LongAdder();
+            rechazos[i] = new LongAdder();
+            latencias[i] = new Histograma();
+        }
+    }
+
+    public static Metricas global() {
+        return GLOBAL;
+    }
+
+    // momento de inicio de una operacion, o 0 si las metricas estan desactivadas
+    public static long inicio() {
+        return activas ? System.nanoTime() : 0;
+    }
+
+    public static void registrar(Operacion operacion, long inicio, boolean rechazada) {
+        if (inicio == 0) {
+            return;
+        }
+        int i = operacion.ordinal();
+        GLOBAL.latencias[i].registrar(System.nanoTime() - inicio);
+        GLOBAL.cantidades[i].increment();
+        if (rechazada) {
+            GLOBAL.rechazos[i].increment();
+        }
+    }
+
+    public FotoOperacion foto(Operacion operacion) {
+        int i = operacion.ordinal();
+        return new FotoOperacion(operacion, cantidades[i].sum(), rechazos[i].sum(), latencias[i].copiarCubetas());
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < OPERACIONES.length; i++) {
+            cantidades[i].reset();
+            rechazos[i].reset();
+            latencias[i].reiniciar();
+        }
+    }
+
+    public void registrarJmx() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(NOMBRE_JMX));
+        } catch (InstanceAlreadyExistsException e) {
+            // ya estaba registrado
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pudieron registrar las metricas en JMX", e);
+        }
+    }
+
+    @Override
+    public boolean isActivas() {
+        return activas;
+    }
+
+    @Override
+    public void setActivas(boolean activas) {
+        Metricas.activas = activas;
+    }
+
+    @Override
+    public Map<String, Long> getValores() {
+        Map<String, Long> valores = new LinkedHashMap<>();
+        for (Operacion operacion : OPERACIONES) {
+            FotoOperacion foto = foto(operacion);
+            String prefijo = operacion.name().toLowerCase(Locale.ROOT) + ".";
+            valores.put(prefijo + "cantidad", foto.getCantidad());
+            valores.put(prefijo + "rechazos", foto.getRechazos());
+            valores.put(prefijo + "p50Nanos", foto.percentilNanos(50));
+            valores.put(prefijo + "p99Nanos", foto.percentilNanos(99));
+            valores.put(prefijo + "p999Nanos", foto.percentilNanos(99.9));
+            valores.put(prefijo + "maxNanos", foto.percentilNanos(100));
+        }
+        return valores;
+    }
+}
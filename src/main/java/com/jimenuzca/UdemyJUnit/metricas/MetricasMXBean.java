@@ -0,0 +1,16 @@
+package com.jimenuzca.UdemyJUnit.metricas;
+
+import java.util.Map;
+
+/**
+ * Vista JMX de las Metricas (por ej. desde JConsole o VisualVM). Las claves son "operacion.valor",
+ * por ej. "debito.cantidad", "debito.rechazos" o "transferir.p99Nanos".
+ */
+public interface MetricasMXBean {
+
+    boolean isActivas();
+
+    void setActivas(boolean activas);
+
+    Map<String, Long> getValores();
+}
@@ -0,0 +1,7 @@
+package com.jimenuzca.UdemyJUnit.metricas;
+
+public enum Operacion {
+    DEBITO,
+    CREDITO,
+    TRANSFERIR
+}
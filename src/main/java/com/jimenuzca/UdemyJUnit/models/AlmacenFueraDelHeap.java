@@ -0,0 +1,210 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Guarda las cuentas fuera del heap, en memoria directa (ByteBuffer.allocateDirect) o en un archivo mapeado en
+ * memoria, para bancos con cientos de millones de cuentas: el GC no recorre estos datos y no hay un objeto Cuenta,
+ * BigDecimal y String por cada cuenta.
+ * Cada cuenta ocupa una posicion fija de TAMANIO_POSICION bytes: el saldo en unidades minimas (long), el largo de la
+ * persona y la persona en UTF-8 (hasta MAXIMO_PERSONA bytes). Las posiciones se agrupan en segmentos porque un
+ * ByteBuffer no puede pasar de 2GB. En un archivo las posiciones empiezan despues de una cabecera del mismo tamanio
+ * con un numero magico, la escala y la cantidad de cuentas abiertas, asi al volver a abrirlo se siguen usando las
+ * cuentas que ya tenia.
+ * cuenta(posicion) devuelve una CuentaFueraDelHeap, un objeto minimo que solo apunta a la posicion; debito y credito
+ * modifican el saldo ahi mismo. Los candados estan repartidos (striping): la cuenta n usa el candado n % CANDADOS.
+ */
+public class AlmacenFueraDelHeap {
+    public static final int TAMANIO_POSICION = 64;
+    public static final int MAXIMO_PERSONA = TAMANIO_POSICION - 12;
+    private static final int BITS_SEGMENTO = 24;
+    private static final int POSICIONES_POR_SEGMENTO = 1 << BITS_SEGMENTO;
+    private static final int CANDADOS = 1024;
+    private static final int MAGICO = 0x414C4D43;
+    private static final int CABECERA_ESCALA = 4;
+    private static final int CABECERA_CANTIDAD = 8;
+
+    private final int escala;
+    private final int capacidad;
+    private final ByteBuffer[] segmentos;
+    private final Object[] candados = new Object[CANDADOS];
+    private final AtomicInteger cantidad;
+    // null en memoria
+    private final ByteBuffer cabecera;
+
+    private AlmacenFueraDelHeap(int escala, int capacidad, ByteBuffer[] segmentos, ByteBuffer cabecera, int cantidad) {
+        this.escala = escala;
+        this.capacidad = capacidad;
+        this.segmentos = segmentos;
+        this.cabecera = cabecera;
+        this.cantidad = new AtomicInteger(cantidad);
+        for (int i = 0; i < CANDADOS; i++) {
+            candados[i] = new Object();
+        }
+    }
+
+    public static AlmacenFueraDelHeap enMemoria(int capacidad, int escala) {
+        ByteBuffer[] segmentos = new ByteBuffer[cantidadSegmentos(capacidad)];
+        for (int i = 0; i < segmentos.length; i++) {
+            segmentos[i] = ByteBuffer.allocateDirect(posicionesDelSegmento(i, capacidad) * TAMANIO_POSICION);
+        }
+        return new AlmacenFueraDelHeap(escala, capacidad, segmentos, null, 0);
+    }
+
+    // el archivo queda con los datos de las cuentas; el sistema operativo decide que parte tener en memoria.
+    // Si ya existe se siguen usando sus cuentas, con la misma escala y una capacidad igual o mayor
+    public static AlmacenFueraDelHeap enArchivo(Path archivo, int capacidad, int escala) throws IOException {
+        ByteBuffer[] segmentos = new ByteBuffer[cantidadSegmentos(capacidad)];
+        ByteBuffer cabecera;
+        int cantidad;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            boolean nuevo = canal.size() == 0;
+            cabecera = canal.map(FileChannel.MapMode.READ_WRITE, 0, TAMANIO_POSICION);
+            if (nuevo) {
+                cabecera.putInt(0, MAGICO);
+                cabecera.putInt(CABECERA_ESCALA, escala);
+                cabecera.putInt(CABECERA_CANTIDAD, 0);
+                cantidad = 0;
+            } else {
+                if (cabecera.getInt(0) != MAGICO) {
+                    throw new IOException("El archivo " + archivo + " no es un almacen de cuentas valido");
+                }
+                if (cabecera.getInt(CABECERA_ESCALA) != escala) {
+                    throw new IllegalArgumentException("El almacen " + archivo + " tiene escala "
+                            + cabecera.getInt(CABECERA_ESCALA) + ", no " + escala);
+                }
+                cantidad = cabecera.getInt(CABECERA_CANTIDAD);
+                if (cantidad > capacidad) {
+                    throw new IllegalArgumentException("El almacen " + archivo + " ya tiene " + cantidad
+                            + " cuentas, mas que la capacidad " + capacidad);
+                }
+            }
+            for (int i = 0; i < segmentos.length; i++) {
+                long inicio = TAMANIO_POSICION + (long) i * POSICIONES_POR_SEGMENTO * TAMANIO_POSICION;
+                segmentos[i] = canal.map(FileChannel.MapMode.READ_WRITE, inicio,
+                        (long) posicionesDelSegmento(i, capacidad) * TAMANIO_POSICION);
+            }
+        }
+        return new AlmacenFueraDelHeap(escala, capacidad, segmentos, cabecera, cantidad);
+    }
+
+    public int getEscala() {
+        return escala;
+    }
+
+    public int cantidad() {
+        return cantidad.get();
+    }
+
+    // reserva la siguiente posicion libre y devuelve la vista sobre ella
+    public CuentaFueraDelHeap abrirCuenta(String persona, BigDecimal saldo) {
+        byte[] bytes = persona.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAXIMO_PERSONA) {
+            throw new IllegalArgumentException("La persona ocupa mas de " + MAXIMO_PERSONA + " bytes");
+        }
+        long unidades = aUnidades(saldo);
+        int posicion = cantidad.getAndIncrement();
+        if (posicion >= capacidad) {
+            cantidad.decrementAndGet();
+            throw new IllegalStateException("El almacen esta lleno, capacidad " + capacidad);
+        }
+        synchronized (candado(posicion)) {
+            ByteBuffer segmento = segmento(posicion);
+            int base = desplazamiento(posicion);
+            segmento.putLong(base, unidades);
+            segmento.putInt(base + 8, bytes.length);
+            for (int i = 0; i < bytes.length; i++) {
+                segmento.put(base + 12 + i, bytes[i]);
+            }
+        }
+        if (cabecera != null) {
+            // las posiciones se reservan en orden pero pueden terminar de escribirse desordenadas
+            synchronized (cabecera) {
+                if (cabecera.getInt(CABECERA_CANTIDAD) <= posicion) {
+                    cabecera.putInt(CABECERA_CANTIDAD, posicion + 1);
+                }
+            }
+        }
+        return new CuentaFueraDelHeap(this, posicion);
+    }
+
+    public CuentaFueraDelHeap cuenta(int posicion) {
+        if (posicion < 0 || posicion >= cantidad.get()) {
+            throw new IndexOutOfBoundsException("No hay cuenta en la posicion " + posicion);
+        }
+        return new CuentaFueraDelHeap(this, posicion);
+    }
+
+    long aUnidades(BigDecimal monto) {
+        return monto.setScale(escala, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    long saldo(int posicion) {
+        synchronized (candado(posicion)) {
+            return segmento(posicion).getLong(desplazamiento(posicion));
+        }
+    }
+
+    ResultadoDebito debitar(int posicion, long monto) {
+        synchronized (candado(posicion)) {
+            ByteBuffer segmento = segmento(posicion);
+            int base = desplazamiento(posicion);
+            long nuevoSaldo = Math.subtractExact(segmento.getLong(base), monto);
+            if (nuevoSaldo < 0) {
+                return ResultadoDebito.DINERO_INSUFICIENTE;
+            }
+            segmento.putLong(base, nuevoSaldo);
+            return ResultadoDebito.APROBADO;
+        }
+    }
+
+    void acreditar(int posicion, long monto) {
+        synchronized (candado(posicion)) {
+            ByteBuffer segmento = segmento(posicion);
+            int base = desplazamiento(posicion);
+            segmento.putLong(base, Math.addExact(segmento.getLong(base), monto));
+        }
+    }
+
+    String persona(int posicion) {
+        byte[] bytes;
+        synchronized (candado(posicion)) {
+            ByteBuffer segmento = segmento(posicion);
+            int base = desplazamiento(posicion);
+            bytes = new byte[segmento.getInt(base + 8)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = segmento.get(base + 12 + i);
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Object candado(int posicion) {
+        return candados[posicion & (CANDADOS - 1)];
+    }
+
+    private ByteBuffer segmento(int posicion) {
+        return segmentos[posicion >>> BITS_SEGMENTO];
+    }
+
+    private static int desplazamiento(int posicion) {
+        return (posicion & (POSICIONES_POR_SEGMENTO - 1)) * TAMANIO_POSICION;
+    }
+
+    private static int cantidadSegmentos(int capacidad) {
+        return (capacidad + POSICIONES_POR_SEGMENTO - 1) >>> BITS_SEGMENTO;
+    }
+
+    private static int posicionesDelSegmento(int segmento, int capacidad) {
+        return Math.min(POSICIONES_POR_SEGMENTO, capacidad - segmento * POSICIONES_POR_SEGMENTO);
+    }
+}
@@ -1,12 +1,55 @@
 package com.jimenuzca.UdemyJUnit.models;
 
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+import com.jimenuzca.UdemyJUnit.metricas.Metricas;
+import com.jimenuzca.UdemyJUnit.metricas.Operacion;
+
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 
 public class Banco {
     private List<Cuenta> cuentas;
     private String nombre;
+    // indices para buscar cuentas en O(1) en lugar de recorrer la lista con un stream.
+    // Son ConcurrentHashMap asi las busquedas no necesitan bloquear; las escrituras se hacen bajo el lock del banco
+    private final Map<Long, Cuenta> cuentasPorId = new ConcurrentHashMap<>();
+    private final Map<String, Cuenta> cuentasPorPersona = new ConcurrentHashMap<>();
+    // se reemplaza el arreglo entero al agregar o quitar, asi notificar lo recorre sin bloquear ni crear objetos
+    private volatile ObservadorMovimientos[] observadores = new ObservadorMovimientos[0];
+    private final TotalesBanco totales = new TotalesBanco();
+    // resultados de las transferencias con clave de idempotencia, para que un reintento no transfiera dos veces
+    private volatile CacheIdempotencia idempotencia = new CacheIdempotencia(100_000, 10, TimeUnit.MINUTES);
+    // tasas para las transferencias entre cuentas de distinta moneda
+    private volatile ProveedorTasas proveedorTasas;
+    // reloj de versiones para las vistas: mientras haya alguna abierta cada operacion confirmada recibe el numero
+    // siguiente. Sin vistas abiertas los movimientos no guardan versiones ni mueven el reloj (ver empezarVersionado)
+    private final AtomicLong reloj = new AtomicLong();
+    private volatile boolean versionando;
+    // versiones de las cuentas del banco en orden de alta, y de las quitadas mientras alguna vista abierta todavia
+    // puede verlas. Se modifica solo con el lock del banco: se agrega al final y, sin vistas abiertas, se arma un
+    // arreglo nuevo sin las quitadas. Se lee la cantidad antes que el arreglo
+    private volatile VersionesCuenta[] registro = new VersionesCuenta[16];
+    private volatile int registradas;
+    private int bajas;
+    // numero de cada vista abierta (y cuantas lo usan) y piso: ninguna vista abierta tiene un numero menor, asi que
+    // de cada cuenta solo hace falta conservar la version mas nueva con numero <= piso y las posteriores
+    private final ReentrantLock candadoVistas = new ReentrantLock();
+    private final TreeMap<Long, Integer> vistasAbiertas = new TreeMap<>();
+    private volatile long piso;
 
     public Banco() {
         cuentas = new ArrayList<>();
@@ -20,23 +63,535 @@ public class Banco {
         this.nombre = nombre;
     }
 
+    public ProveedorTasas getProveedorTasas() {
+        return proveedorTasas;
+    }
+
+    public void setProveedorTasas(ProveedorTasas proveedorTasas) {
+        this.proveedorTasas = proveedorTasas;
+    }
+
+    // el monto se debita en la moneda del origen; si el destino tiene otra moneda recibe el monto convertido
     public void transferir(Cuenta origen, Cuenta destino, BigDecimal monto){
-        origen.debito(monto);
-        destino.credito(monto);
+        if (intentarTransferir(origen, destino, monto) == ResultadoDebito.DINERO_INSUFICIENTE) {
+            throw new DineroInsuficienteException("Dinero insuficiente");
+        }
+    }
+
+    // igual que transferir pero sin excepcion, un rechazo solo devuelve DINERO_INSUFICIENTE.
+    // Bloqueamos las dos cuentas siempre en el mismo orden (por id), asi una transferencia A->B y otra B->A
+    // no pueden quedar esperando una a la otra (deadlock). Como los candados son por cuenta, las transferencias
+    // entre cuentas distintas corren en paralelo
+    public ResultadoDebito intentarTransferir(Cuenta origen, Cuenta destino, BigDecimal monto) {
+        long inicio = Metricas.inicio();
+        ResultadoDebito resultado = transferirBloqueando(origen, destino, monto);
+        Metricas.registrar(Operacion.TRANSFERIR, inicio, resultado == ResultadoDebito.DINERO_INSUFICIENTE);
+        return resultado;
+    }
+
+    private ResultadoDebito transferirBloqueando(Cuenta origen, Cuenta destino, BigDecimal monto) {
+        // la conversion se calcula antes de tomar los candados, asi no alarga el tiempo que estan bloqueadas
+        BigDecimal acreditado = convertir(origen, destino, monto);
+        Cuenta primera = origen.getId() <= destino.getId() ? origen : destino;
+        Cuenta segunda = primera == origen ? destino : origen;
+        primera.getLock().lock();
+        try {
+            segunda.getLock().lock();
+            origen.setDiferida(true);
+            destino.setDiferida(true);
+            try {
+                // si el debito falla no se toco ningun saldo, y el credito no puede fallar
+                ResultadoDebito resultado = origen.intentarDebito(monto, destino.getId());
+                if (resultado == ResultadoDebito.APROBADO) {
+                    destino.credito(acreditado, origen.getId());
+                }
+                return resultado;
+            } finally {
+                origen.setDiferida(false);
+                destino.setDiferida(false);
+                confirmarTotales(origen, destino);
+                confirmarVersiones(origen, destino);
+                segunda.getLock().unlock();
+            }
+        } finally {
+            primera.getLock().unlock();
+        }
+    }
+
+    // transferencia con clave de idempotencia: si ya se pidio una con la misma clave no se vuelve a aplicar, solo se
+    // repite su resultado (tambien la excepcion si habia sido rechazada). Si la clave ya se uso con otro origen,
+    // destino o monto lanza IllegalArgumentException
+    public void transferir(String clave, Cuenta origen, Cuenta destino, BigDecimal monto) {
+        if (intentarTransferir(clave, origen, destino, monto) == ResultadoDebito.DINERO_INSUFICIENTE) {
+            throw new DineroInsuficienteException("Dinero insuficiente");
+        }
+    }
+
+    public ResultadoDebito intentarTransferir(String clave, Cuenta origen, Cuenta destino, BigDecimal monto) {
+        return idempotencia.resultado(clave, new CacheIdempotencia.Huella(origen, destino, monto),
+                () -> intentarTransferir(origen, destino, monto));
+    }
+
+    // cuantas claves se recuerdan como maximo y por cuanto tiempo. Reemplaza la cache, las claves anteriores se olvidan
+    public void configurarIdempotencia(int maximoClaves, long duracion, TimeUnit unidad) {
+        this.idempotencia = new CacheIdempotencia(maximoClaves, duracion, unidad);
+    }
+
+    // aplica muchas transferencias de una vez. Se bloquea cada cuenta involucrada una sola vez (en orden de id, como
+    // transferir) y cada saldo se escribe una sola vez al final, en vez de un debito y un credito por instruccion.
+    // Primero se calcula el neto de cada cuenta: si ninguna queda en negativo (o con menos que lo que tiene
+    // reservado) se aplican todas las instrucciones. Si no, se procesan en orden sobre saldos provisorios, como lo
+    // haria un bucle de transferir, y se rechazan solo las que dejarian su cuenta de origen sin fondos.
+    // El resultado de cada instruccion queda en la propia Transferencia
+    public void transferirLote(Collection<Transferencia> transferencias) {
+        for (Transferencia t : transferencias) {
+            t.convertida(convertir(t.getOrigen(), t.getDestino(), t.getMonto()));
+        }
+        // Cuenta redefine equals por persona y saldo, por eso usamos un mapa por identidad
+        Map<Cuenta, BigDecimal> saldos = new IdentityHashMap<>();
+        for (Transferencia t : transferencias) {
+            saldos.put(t.getOrigen(), null);
+            saldos.put(t.getDestino(), null);
+        }
+        List<Cuenta> involucradas = new ArrayList<>(saldos.keySet());
+        involucradas.sort(Comparator.comparingLong(Cuenta::getId));
+
+        int bloqueadas = 0;
+        try {
+            for (Cuenta cuenta : involucradas) {
+                cuenta.getLock().lock();
+                bloqueadas++;
+            }
+            for (Cuenta cuenta : involucradas) {
+                saldos.put(cuenta, cuenta.getSaldo());
+                cuenta.setDiferida(true);
+            }
+
+            if (!aplicarNeto(transferencias, saldos)) {
+                aplicarEnOrden(transferencias, saldos);
+            }
+            for (Cuenta cuenta : involucradas) {
+                cuenta.setSaldo(saldos.get(cuenta));
+            }
+            notificarLote(transferencias);
+        } finally {
+            if (bloqueadas == involucradas.size()) {
+                involucradas.forEach(cuenta -> cuenta.setDiferida(false));
+                confirmarTotales(involucradas);
+                confirmarVersiones(involucradas);
+            }
+            for (int i = bloqueadas - 1; i >= 0; i--) {
+                involucradas.get(i).getLock().unlock();
+            }
+        }
+    }
+
+    private boolean aplicarNeto(Collection<Transferencia> transferencias, Map<Cuenta, BigDecimal> saldos) {
+        Map<Cuenta, BigDecimal> netos = new IdentityHashMap<>(saldos);
+        for (Transferencia t : transferencias) {
+            netos.put(t.getOrigen(), netos.get(t.getOrigen()).subtract(t.getMonto()));
+            netos.put(t.getDestino(), netos.get(t.getDestino()).add(t.getMontoAcreditado()));
+        }
+        // ninguna cuenta puede quedar con menos saldo que lo que tiene reservado
+        for (Map.Entry<Cuenta, BigDecimal> neto : netos.entrySet()) {
+            if (neto.getValue().compareTo(neto.getKey().getReservado()) < 0) {
+                return false;
+            }
+        }
+        saldos.putAll(netos);
+        transferencias.forEach(Transferencia::aplicada);
+        return true;
+    }
+
+    private void aplicarEnOrden(Collection<Transferencia> transferencias, Map<Cuenta, BigDecimal> saldos) {
+        for (Transferencia t : transferencias) {
+            BigDecimal nuevoSaldo = saldos.get(t.getOrigen()).subtract(t.getMonto());
+            if (nuevoSaldo.compareTo(t.getOrigen().getReservado()) < 0) {
+                t.rechazada(DineroInsuficienteException.sinTraza());
+                continue;
+            }
+            saldos.put(t.getOrigen(), nuevoSaldo);
+            saldos.put(t.getDestino(), saldos.get(t.getDestino()).add(t.getMontoAcreditado()));
+            t.aplicada();
+        }
+    }
+
+    // el lote escribe los saldos finales con setSaldo, asi que cada movimiento aplicado se registra en el historial
+    // de las cuentas y se avisa a los observadores aca
+    private void notificarLote(Collection<Transferencia> transferencias) {
+        for (Transferencia t : transferencias) {
+            if (t.isExitosa()) {
+                t.getOrigen().registrarMovimiento(TipoMovimiento.DEBITO, t.getMonto(), t.getDestino().getId());
+                t.getDestino().registrarMovimiento(TipoMovimiento.CREDITO, t.getMontoAcreditado(), t.getOrigen().getId());
+                notificar(t.getOrigen(), TipoMovimiento.DEBITO, t.getMonto());
+                notificar(t.getDestino(), TipoMovimiento.CREDITO, t.getMontoAcreditado());
+            }
+        }
+    }
+
+    // monto en la moneda del destino. Sin conversion si alguna de las dos cuentas no tiene moneda o es la misma
+    private BigDecimal convertir(Cuenta origen, Cuenta destino, BigDecimal monto) {
+        Moneda desde = origen.getMoneda();
+        Moneda hasta = destino.getMoneda();
+        if (desde == hasta || desde == null || hasta == null) {
+            return monto;
+        }
+        ProveedorTasas proveedor = proveedorTasas;
+        if (proveedor == null) {
+            throw new IllegalStateException("El banco no tiene tasas de cambio para transferir de " + desde + " a " + hasta);
+        }
+        return hasta.redondear(monto.multiply(proveedor.tasa(desde, hasta)));
+    }
+
+    // vista inmutable de las cuentas y saldos en este momento, en O(1) y sin frenar las operaciones si ya hay otra
+    // abierta. La primera cuesta O(n): recorre las cuentas tomando el candado de cada una, con el lock del banco
+    // tomado, asi que addCuenta espera a que termine (ver empezarVersionado). Hay que cerrarla
+    public VistaBanco vista() {
+        candadoVistas.lock();
+        try {
+            if (vistasAbiertas.isEmpty()) {
+                empezarVersionado();
+            }
+            long version = reloj.get();
+            vistasAbiertas.merge(version, 1, Integer::sum);
+            int cantidad = registradas;
+            return new VistaBanco(this, version, registro, cantidad);
+        } finally {
+            candadoVistas.unlock();
+        }
+    }
+
+    void cerrarVista(long version) {
+        candadoVistas.lock();
+        try {
+            vistasAbiertas.computeIfPresent(version, (v, cantidad) -> cantidad == 1 ? null : cantidad - 1);
+            if (vistasAbiertas.isEmpty()) {
+                versionando = false;
+            }
+            actualizarPiso();
+        } finally {
+            candadoVistas.unlock();
+        }
+    }
+
+    // con candadoVistas tomado y sin vistas abiertas. Desde aca los movimientos vuelven a guardar versiones, pero los
+    // anteriores no las guardaron: se toma el candado de cada cuenta, lo que espera a cualquier operacion que
+    // empezo sin versionar, y se deja como unica version el saldo actual con el numero actual del reloj (los
+    // movimientos siguientes reciben numeros mayores). De paso se sueltan las cuentas quitadas, que ninguna vista ve
+    private synchronized void empezarVersionado() {
+        versionando = true;
+        if (bajas > 0) {
+            compactarRegistro();
+        }
+        for (int i = 0; i < registradas; i++) {
+            VersionesCuenta versiones = registro[i];
+            Cuenta cuenta = versiones.getCuenta();
+            cuenta.getLock().lock();
+            try {
+                versiones.reiniciar(cuenta.getSaldo(), reloj.get());
+            } finally {
+                cuenta.getLock().unlock();
+            }
+        }
+    }
+
+    boolean isVersionando() {
+        return versionando;
+    }
+
+    // con el lock del banco tomado y sin vistas abiertas (ninguna tiene el arreglo viejo)
+    private void compactarRegistro() {
+        VersionesCuenta[] quedan = new VersionesCuenta[Math.max(16, (registradas - bajas) * 2)];
+        int cantidad = 0;
+        for (int i = 0; i < registradas; i++) {
+            VersionesCuenta versiones = registro[i];
+            if (versiones.estaEn(reloj.get())) {
+                versiones.setIndice(cantidad);
+                quedan[cantidad++] = versiones;
+            }
+        }
+        registro = quedan;
+        registradas = cantidad;
+        bajas = 0;
+    }
+
+    // con candadoVistas tomado
+    private void actualizarPiso() {
+        piso = vistasAbiertas.isEmpty() ? reloj.get() : vistasAbiertas.firstKey();
+    }
+
+    private long siguienteVersion() {
+        long numero = reloj.incrementAndGet();
+        // cada tanto subimos el piso para descartar versiones viejas; si alguien abre o cierra una vista se saltea
+        if ((numero & 1023) == 0 && candadoVistas.tryLock()) {
+            try {
+                actualizarPiso();
+            } finally {
+                candadoVistas.unlock();
+            }
+        }
+        return numero;
+    }
+
+    // suma al total de cada banco lo que cambiaron las cuentas de una transferencia, de una sola vez
+    private static void confirmarTotales(Cuenta origen, Cuenta destino) {
+        BigDecimal deOrigen = origen.tomarTotalDiferido();
+        BigDecimal deDestino = destino.tomarTotalDiferido();
+        if (origen.getBanco() == destino.getBanco()) {
+            sumarTotal(origen, deOrigen.add(deDestino));
+            return;
+        }
+        sumarTotal(origen, deOrigen);
+        sumarTotal(destino, deDestino);
+    }
+
+    // igual para todas las cuentas de un lote, una suma por banco
+    private static void confirmarTotales(List<Cuenta> cuentas) {
+        Map<Banco, Cuenta> primeras = new IdentityHashMap<>();
+        Map<Banco, BigDecimal> diferencias = new IdentityHashMap<>();
+        for (Cuenta cuenta : cuentas) {
+            BigDecimal diferencia = cuenta.tomarTotalDiferido();
+            if (cuenta.getBanco() != null) {
+                primeras.putIfAbsent(cuenta.getBanco(), cuenta);
+                diferencias.merge(cuenta.getBanco(), diferencia, BigDecimal::add);
+            }
+        }
+        diferencias.forEach((banco, diferencia) -> sumarTotal(primeras.get(banco), diferencia));
+    }
+
+    private static void sumarTotal(Cuenta cuenta, BigDecimal diferencia) {
+        if (cuenta.getBanco() != null && diferencia.signum() != 0) {
+            cuenta.getBanco().getTotales().sumar(cuenta, diferencia);
+        }
+    }
+
+    // confirma las versiones que dejo pendientes un debito, credito o setSaldo suelto
+    void confirmarVersiones(Cuenta cuenta) {
+        VersionesCuenta versiones = cuenta.getVersiones();
+        if (versiones != null && versiones.tienePendientes()) {
+            versiones.confirmar(siguienteVersion(), piso);
+        }
+    }
+
+    // las dos cuentas de una transferencia reciben el mismo numero, asi las vistas la ven entera o no la ven.
+    // Si estan en bancos distintos cada una usa el reloj del suyo
+    private static void confirmarVersiones(Cuenta origen, Cuenta destino) {
+        VersionesCuenta deOrigen = origen.getVersiones();
+        VersionesCuenta deDestino = destino.getVersiones();
+        boolean origenPendiente = deOrigen != null && deOrigen.tienePendientes();
+        boolean destinoPendiente = deDestino != null && deDestino.tienePendientes();
+        if (origenPendiente && destinoPendiente && origen.getBanco() == destino.getBanco()) {
+            Banco banco = origen.getBanco();
+            long numero = banco.siguienteVersion();
+            deOrigen.confirmar(numero, banco.piso);
+            deDestino.confirmar(numero, banco.piso);
+            return;
+        }
+        if (origenPendiente) {
+            origen.getBanco().confirmarVersiones(origen);
+        }
+        if (destinoPendiente) {
+            destino.getBanco().confirmarVersiones(destino);
+        }
+    }
+
+    // igual para todas las cuentas de un lote, un numero por banco
+    private static void confirmarVersiones(List<Cuenta> cuentas) {
+        Map<Banco, Long> numeros = new IdentityHashMap<>();
+        for (Cuenta cuenta : cuentas) {
+            VersionesCuenta versiones = cuenta.getVersiones();
+            if (versiones != null && versiones.tienePendientes()) {
+                Banco banco = cuenta.getBanco();
+                long numero = numeros.computeIfAbsent(banco, Banco::siguienteVersion);
+                versiones.confirmar(numero, banco.piso);
+            }
+        }
     }
 
     public List<Cuenta> getCuentas() {
         return cuentas;
     }
 
-    public void setCuentas(List<Cuenta> cuentas) {
+    // copia de la lista de cuentas, para recorrerla mientras otros hilos siguen agregando cuentas
+    public synchronized List<Cuenta> copiaCuentas() {
+        return new ArrayList<>(cuentas);
+    }
+
+    // recorre todas las cuentas pasando el saldo de cada una al lector, que se ejecuta con el candado de esa cuenta
+    // tomado. Se bloquea una cuenta por vez, asi las transferencias siguen corriendo mientras se recorre
+    public void recorrerSaldos(BiConsumer<Cuenta, BigDecimal> lector) {
+        for (Cuenta cuenta : copiaCuentas()) {
+            cuenta.getLock().lock();
+            try {
+                lector.accept(cuenta, cuenta.getSaldo());
+            } finally {
+                cuenta.getLock().unlock();
+            }
+        }
+    }
+
+    // cantidad de cuentas, saldo total y rangos de saldo, mantenidos al dia; leerlos no recorre las cuentas
+    public TotalesBanco getTotales() {
+        return totales;
+    }
+
+    // las cuentas que estaban dejan de pertenecer al banco: sus movimientos ya no cuentan en los totales ni llegan a
+    // los observadores
+    public synchronized void setCuentas(List<Cuenta> cuentas) {
+        for (Cuenta anterior : this.cuentas) {
+            anterior.getLock().lock();
+            try {
+                darDeBajaVersiones(anterior);
+                anterior.setBanco(null);
+            } finally {
+                anterior.getLock().unlock();
+            }
+        }
         this.cuentas = cuentas;
+        cuentasPorId.clear();
+        cuentasPorPersona.clear();
+        totales.reiniciar();
+        for (Cuenta cuenta : cuentas) {
+            indexar(cuenta);
+            incorporar(cuenta);
+        }
     }
 
-    public void addCuenta(Cuenta cuenta){
+    public synchronized void addCuenta(Cuenta cuenta){
         cuentas.add(cuenta);
+        indexar(cuenta);
         // establecemos la direccion bidireccional
         // cuando le añadimos la cuenta al banco le indicamos a esa cuenta cual es su banco
-        cuenta.setBanco(this);
+        incorporar(cuenta);
+    }
+
+    // alta de muchas cuentas juntas: se reserva lugar en la lista una sola vez y se toma el lock del banco una vez
+    public synchronized void addCuentas(Collection<Cuenta> nuevas) {
+        if (cuentas instanceof ArrayList) {
+            ((ArrayList<Cuenta>) cuentas).ensureCapacity(cuentas.size() + nuevas.size());
+        }
+        for (Cuenta cuenta : nuevas) {
+            cuentas.add(cuenta);
+            indexar(cuenta);
+            incorporar(cuenta);
+        }
+    }
+
+    // se compara por identidad: Cuenta.equals solo mira persona y saldo, y una persona puede tener dos cuentas iguales
+    public synchronized boolean removeCuenta(Cuenta cuenta) {
+        if (cuentasPorId.get(cuenta.getId()) != cuenta) {
+            return false;
+        }
+        cuentasPorId.remove(cuenta.getId());
+        cuentas.removeIf(cta -> cta == cuenta);
+        cuenta.getLock().lock();
+        try {
+            totales.quitar(cuenta, cuenta.getSaldo());
+            darDeBajaVersiones(cuenta);
+            cuenta.setBanco(null);
+        } finally {
+            cuenta.getLock().unlock();
+        }
+        String persona = cuenta.getPersona();
+        // si la persona tenia otra cuenta en el banco pasa a ser esa la que se devuelve al buscar
+        if (persona != null && cuentasPorPersona.get(persona) == cuenta) {
+            cuentasPorPersona.remove(persona);
+            cuentas.stream()
+                    .filter(cta -> persona.equals(cta.getPersona()))
+                    .findFirst()
+                    .ifPresent(cta -> cuentasPorPersona.put(persona, cta));
+        }
+        return true;
+    }
+
+    boolean tieneObservadores() {
+        return observadores.length > 0;
+    }
+
+    public synchronized void addObservador(ObservadorMovimientos observador) {
+        ObservadorMovimientos[] nuevos = Arrays.copyOf(observadores, observadores.length + 1);
+        nuevos[observadores.length] = observador;
+        observadores = nuevos;
+    }
+
+    public synchronized void removeObservador(ObservadorMovimientos observador) {
+        List<ObservadorMovimientos> lista = new ArrayList<>(Arrays.asList(observadores));
+        lista.remove(observador);
+        observadores = lista.toArray(new ObservadorMovimientos[0]);
+    }
+
+    void notificar(Cuenta cuenta, TipoMovimiento tipo, BigDecimal monto) {
+        for (ObservadorMovimientos observador : observadores) {
+            observador.movimiento(cuenta, tipo, monto);
+        }
+    }
+
+    void notificarDevengado(Cuenta cuenta, LocalDate fecha) {
+        for (ObservadorMovimientos observador : observadores) {
+            observador.devengado(cuenta, fecha);
+        }
+    }
+
+    public Optional<Cuenta> buscarPorId(long id) {
+        return Optional.ofNullable(cuentasPorId.get(id));
+    }
+
+    // igual que el filter(...).findFirst() sobre getCuentas(): si una persona tiene varias cuentas devuelve la primera
+    // que se agrego. Se indexa por la persona que tenia la cuenta al momento de agregarla al banco
+    public Optional<Cuenta> buscarPorPersona(String persona) {
+        if (persona == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cuentasPorPersona.get(persona));
+    }
+
+    // con el candado de la cuenta tomado, asi ningun movimiento queda entre sumar el saldo (y registrar su primera
+    // version) y asignarle el banco. Se llama con el lock del banco tomado
+    private void incorporar(Cuenta cuenta) {
+        cuenta.getLock().lock();
+        try {
+            totales.agregar(cuenta, cuenta.getSaldo());
+            cuenta.setBanco(this);
+            int indice = registradas;
+            if (indice == registro.length) {
+                registro = Arrays.copyOf(registro, indice * 2);
+            }
+            VersionesCuenta versiones = new VersionesCuenta(cuenta, indice);
+            versiones.agregar(cuenta.getSaldo());
+            registro[indice] = versiones;
+            registradas = indice + 1;
+            cuenta.setVersiones(versiones);
+            long numero = siguienteVersion();
+            versiones.confirmar(numero, piso);
+            versiones.alta(numero);
+            for (ObservadorMovimientos observador : observadores) {
+                observador.alta(cuenta, cuenta.getSaldo());
+            }
+        } finally {
+            cuenta.getLock().unlock();
+        }
+    }
+
+    // con el candado de la cuenta y el lock del banco tomados
+    private void darDeBajaVersiones(Cuenta cuenta) {
+        VersionesCuenta versiones = cuenta.getVersiones();
+        int indice = versiones == null ? -1 : versiones.getIndice();
+        if (indice >= 0 && indice < registradas && registro[indice] == versiones) {
+            versiones.bajaPendiente();
+            cuenta.setVersiones(null);
+            versiones.baja(siguienteVersion());
+            bajas++;
+            // sin vistas abiertas nadie ve las quitadas: se sueltan cuando son la mitad, asi cuesta O(1) por baja
+            if (!versionando && bajas * 2 > registradas) {
+                compactarRegistro();
+            }
+        }
+    }
+
+    private void indexar(Cuenta cuenta) {
+        cuentasPorId.put(cuenta.getId(), cuenta);
+        if (cuenta.getPersona() != null) {
+            cuentasPorPersona.putIfAbsent(cuenta.getPersona(), cuenta);
+        }
     }
 }
@@ -0,0 +1,164 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Recuerda el resultado de las transferencias por su clave de idempotencia, para que un reintento con la misma clave
+ * devuelva el resultado original en lugar de volver a transferir.
+ * Las claves se reparten en SEGMENTOS mapas, cada uno con su propio candado, asi no hay un unico punto de
+ * contencion. Cada segmento guarda como maximo maximo/SEGMENTOS claves y descarta las mas viejas cuando se llena o
+ * cuando pasaron mas de la duracion configurada.
+ * Si llegan dos pedidos con la misma clave a la vez, el segundo espera el resultado del primero; si el primero
+ * falla, el segundo recibe la misma excepcion.
+ * Junto con el resultado se guarda la huella del pedido (origen, destino y monto): reusar una clave para otra
+ * transferencia es un error del cliente y se rechaza con IllegalArgumentException, en lugar de devolver el
+ * resultado de la otra.
+ */
+class CacheIdempotencia {
+    private static final int SEGMENTOS = 64;
+
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+    private final int maximoPorSegmento;
+    private final long duracionNanos;
+    private final LongSupplier reloj;
+
+    CacheIdempotencia(int maximo, long duracion, TimeUnit unidad) {
+        this(maximo, duracion, unidad, System::nanoTime);
+    }
+
+    CacheIdempotencia(int maximo, long duracion, TimeUnit unidad, LongSupplier reloj) {
+        this.maximoPorSegmento = Math.max(1, maximo / SEGMENTOS);
+        this.duracionNanos = unidad.toNanos(duracion);
+        this.reloj = reloj;
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento();
+        }
+    }
+
+    ResultadoDebito resultado(String clave, Supplier<ResultadoDebito> transferencia) {
+        return resultado(clave, null, transferencia);
+    }
+
+    // devuelve el resultado guardado para la clave o, si no hay, ejecuta la transferencia y guarda su resultado
+    ResultadoDebito resultado(String clave, Huella huella, Supplier<ResultadoDebito> transferencia) {
+        Segmento segmento = segmentos[(clave.hashCode() & 0x7fffffff) % SEGMENTOS];
+        Entrada nueva = new Entrada(new CompletableFuture<>(), huella, reloj.getAsLong());
+        CompletableFuture<ResultadoDebito> existente;
+        synchronized (segmento) {
+            segmento.descartarViejas(nueva.creada);
+            Entrada entrada = segmento.get(clave);
+            if (entrada != null && !Objects.equals(entrada.huella, huella)) {
+                throw new IllegalArgumentException("La clave " + clave + " ya se uso para otra transferencia");
+            }
+            existente = entrada == null ? null : entrada.resultado;
+            if (existente == null) {
+                segmento.put(clave, nueva);
+            }
+        }
+        if (existente != null) {
+            return esperar(existente);
+        }
+        try {
+            ResultadoDebito resultado = transferencia.get();
+            nueva.resultado.complete(resultado);
+            return resultado;
+        } catch (Throwable e) {
+            // un error inesperado no se recuerda: un reintento con la misma clave vuelve a intentar
+            synchronized (segmento) {
+                segmento.remove(clave, nueva);
+            }
+            nueva.resultado.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // el resultado del primer pedido con la clave; si fallo, con su excepcion original y no envuelta
+    private static ResultadoDebito esperar(CompletableFuture<ResultadoDebito> resultado) {
+        try {
+            return resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    int cantidad() {
+        int cantidad = 0;
+        for (Segmento segmento : segmentos) {
+            synchronized (segmento) {
+                cantidad += segmento.size();
+            }
+        }
+        return cantidad;
+    }
+
+    // lo que identifica a una transferencia; el monto se compara por valor (10 y 10.00 son el mismo)
+    static final class Huella {
+        private final long origen;
+        private final long destino;
+        private final BigDecimal monto;
+
+        Huella(Cuenta origen, Cuenta destino, BigDecimal monto) {
+            this.origen = origen.getId();
+            this.destino = destino.getId();
+            this.monto = monto.signum() == 0 ? BigDecimal.ZERO : monto.stripTrailingZeros();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Huella)) {
+                return false;
+            }
+            Huella otra = (Huella) obj;
+            return origen == otra.origen && destino == otra.destino && monto.equals(otra.monto);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(origen, destino, monto);
+        }
+    }
+
+    private static class Entrada {
+        final CompletableFuture<ResultadoDebito> resultado;
+        final Huella huella;
+        final long creada;
+
+        Entrada(CompletableFuture<ResultadoDebito> resultado, Huella huella, long creada) {
+            this.resultado = resultado;
+            this.huella = huella;
+            this.creada = creada;
+        }
+    }
+
+    // en orden de insercion, la primera entrada es siempre la mas vieja
+    private class Segmento extends LinkedHashMap<String, Entrada> {
+        private static final long serialVersionUID = 1L;
+
+        void descartarViejas(long ahora) {
+            Iterator<Entrada> entradas = values().iterator();
+            while (entradas.hasNext() && ahora - entradas.next().creada > duracionNanos) {
+                entradas.remove();
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entrada> mayor) {
+            return size() > maximoPorSegmento;
+        }
+    }
+}
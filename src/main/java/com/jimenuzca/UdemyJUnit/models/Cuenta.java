@@ -1,20 +1,101 @@
 package com.jimenuzca.UdemyJUnit.models;
 
 import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+import com.jimenuzca.UdemyJUnit.metricas.Metricas;
+import com.jimenuzca.UdemyJUnit.metricas.Operacion;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Cuenta {
+    // secuencia para asignar un identificador unico a cada cuenta, se usa para ordenar los bloqueos
+    private static final AtomicLong SECUENCIA = new AtomicLong();
+
+    private final long id;
+    // cada cuenta tiene su propio candado, asi las operaciones sobre cuentas distintas no se bloquean entre si
+    private final ReentrantLock lock = new ReentrantLock();
     private String persona;
-    private BigDecimal saldo;
+    // volatile para que los hilos que solo leen el saldo vean siempre el ultimo valor
+    private volatile BigDecimal saldo;
+    // suma de las reservas activas: el saldo disponible para debitar es saldo - reservado
+    private volatile BigDecimal reservado = BigDecimal.ZERO;
+    // null si la cuenta no tiene moneda: entonces las transferencias con ella no convierten el monto
+    private final Moneda moneda;
     private Banco banco;
+    // null mientras no se habilite
+    private volatile HistorialMovimientos historial;
+    // saldos versionados para las vistas del banco; null si la cuenta no esta en un banco. Solo se agregan versiones
+    // mientras el banco tiene vistas abiertas (Banco.isVersionando). Con diferida las
+    // versiones nuevas quedan pendientes hasta que Banco las confirma, al terminar una operacion de varias cuentas,
+    // y lo que cambio el saldo se acumula en totalDiferido en lugar de sumarse al total del banco. Se usan con el
+    // candado tomado
+    private volatile VersionesCuenta versiones;
+    private boolean diferida;
+    private BigDecimal totalDiferido = BigDecimal.ZERO;
+    // ultimo dia con intereses y comisiones devengados (ver devengar); null si nunca se devengo
+    private volatile LocalDate devengadoHasta;
 
     public Cuenta() {
+        this.id = SECUENCIA.incrementAndGet();
+        this.moneda = null;
     }
 
     public Cuenta(String persona, BigDecimal saldo) {
+        this(persona, saldo, null);
+    }
+
+    public Cuenta(String persona, BigDecimal saldo, Moneda moneda) {
+        this.id = SECUENCIA.incrementAndGet();
         this.persona = persona;
         this.saldo = saldo;
+        this.moneda = moneda;
+    }
+
+    // para reconstruir una cuenta que ya existia (por ej. al reproducir el diario) con su mismo id.
+    // Adelantamos la secuencia para que las cuentas nuevas no repitan ese id
+    public Cuenta(long id, String persona, BigDecimal saldo) {
+        this(id, persona, saldo, null);
+    }
+
+    public Cuenta(long id, String persona, BigDecimal saldo, Moneda moneda) {
+        this.id = id;
+        SECUENCIA.accumulateAndGet(id, Math::max);
+        this.persona = persona;
+        this.saldo = saldo;
+        this.moneda = moneda;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Moneda getMoneda() {
+        return moneda;
+    }
+
+    VersionesCuenta getVersiones() {
+        return versiones;
+    }
+
+    void setVersiones(VersionesCuenta versiones) {
+        this.versiones = versiones;
+    }
+
+    void setDiferida(boolean diferida) {
+        this.diferida = diferida;
+    }
+
+    // lo que cambio el saldo desde la ultima vez, para que Banco lo sume al total de una sola vez
+    BigDecimal tomarTotalDiferido() {
+        BigDecimal total = totalDiferido;
+        totalDiferido = BigDecimal.ZERO;
+        return total;
+    }
+
+    ReentrantLock getLock() {
+        return lock;
     }
 
     public String getPersona() {
@@ -30,23 +111,271 @@ public class Cuenta {
     }
 
     public void setSaldo(BigDecimal saldo) {
-        this.saldo = saldo;
+        lock.lock();
+        try {
+            cambiarSaldo(saldo);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // empieza a guardar los ultimos movimientos de la cuenta (hasta capacidad); los anteriores no se recuperan
+    public void habilitarHistorial(int capacidad) {
+        HistorialMovimientos nuevo = new HistorialMovimientos(capacidad);
+        lock.lock();
+        try {
+            historial = nuevo;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // null si no se habilito
+    public HistorialMovimientos getHistorial() {
+        return historial;
+    }
+
+    public BigDecimal getReservado() {
+        return reservado;
+    }
+
+    public BigDecimal getSaldoDisponible() {
+        lock.lock();
+        try {
+            return disponible();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // reserva fondos sin moverlos del saldo contable; lanza DineroInsuficienteException si no alcanza lo disponible
+    public Reserva reservar(BigDecimal monto) {
+        if (monto.signum() <= 0) {
+            throw new IllegalArgumentException("El monto a reservar tiene que ser positivo: " + monto);
+        }
+        lock.lock();
+        try {
+            if (disponible().compareTo(monto) < 0) {
+                throw new DineroInsuficienteException("Dinero insuficiente");
+            }
+            reservado = reservado.add(monto);
+            return new Reserva(this, monto);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // si el saldo sigue siendo esperado (el mismo objeto) lo reemplaza por nuevo y lo registra como un credito o
+    // debito por la diferencia; devuelve false si otro hilo lo cambio mientras tanto o si nuevo es menor que lo
+    // reservado. No lanza excepciones por fondos: quien llama calcula el saldo, por ej. un devengamiento de intereses
+    // o comisiones. La diferencia solo se calcula si alguien la necesita (observadores del banco o historial)
+    public boolean ajustarSaldo(BigDecimal esperado, BigDecimal nuevo) {
+        lock.lock();
+        try {
+            return ajustar(esperado, nuevo);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public LocalDate getDevengadoHasta() {
+        return devengadoHasta;
+    }
+
+    // para recuperar la fecha de una foto o del diario
+    public void setDevengadoHasta(LocalDate devengadoHasta) {
+        lock.lock();
+        try {
+            this.devengadoHasta = devengadoHasta;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ajustarSaldo del devengamiento del dia fecha: el saldo y la fecha cambian juntos, asi devengar dos veces el
+    // mismo dia (por ej. al retomar una corrida cortada) no cobra dos veces. Devuelve true tambien si ese dia ya
+    // estaba devengado, sin tocar el saldo
+    public boolean devengar(LocalDate fecha, BigDecimal esperado, BigDecimal nuevo) {
+        lock.lock();
+        try {
+            if (devengadoHasta != null && !devengadoHasta.isBefore(fecha)) {
+                return true;
+            }
+            if (!ajustar(esperado, nuevo)) {
+                return false;
+            }
+            devengadoHasta = fecha;
+            if (banco != null) {
+                banco.notificarDevengado(this, fecha);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // con el candado tomado
+    private boolean ajustar(BigDecimal esperado, BigDecimal nuevo) {
+        if (saldo != esperado || nuevo.compareTo(reservado) < 0) {
+            return false;
+        }
+        if (nuevo == esperado) {
+            return true;
+        }
+        int signo = nuevo.compareTo(esperado);
+        if (signo != 0 && (historial != null || (banco != null && banco.tieneObservadores()))) {
+            TipoMovimiento tipo = signo > 0 ? TipoMovimiento.CREDITO : TipoMovimiento.DEBITO;
+            BigDecimal diferencia = signo > 0 ? nuevo.subtract(esperado) : esperado.subtract(nuevo);
+            registrarMovimiento(tipo, diferencia, Movimiento.SIN_CONTRAPARTE);
+            cambiarSaldo(nuevo);
+            notificar(tipo, diferencia);
+        } else {
+            cambiarSaldo(nuevo);
+        }
+        return true;
+    }
+
+    // monto null captura todo lo pendiente. La captura es un solo debito del saldo contable: lo reservado ya no
+    // estaba disponible, asi que no puede fallar por falta de fondos
+    void capturar(Reserva reserva, BigDecimal monto) {
+        if (monto != null && monto.signum() <= 0) {
+            throw new IllegalArgumentException("El monto a capturar tiene que ser positivo: " + monto);
+        }
+        lock.lock();
+        try {
+            if (reserva.getEstado() != EstadoReserva.ACTIVA) {
+                throw new IllegalStateException("La reserva ya esta " + reserva.getEstado());
+            }
+            BigDecimal pendiente = reserva.getPendiente();
+            BigDecimal capturado = monto == null ? pendiente : monto;
+            if (capturado.compareTo(pendiente) > 0) {
+                throw new IllegalArgumentException("No se puede capturar " + capturado + ", quedan reservados " + pendiente);
+            }
+            registrarMovimiento(TipoMovimiento.DEBITO, capturado, Movimiento.SIN_CONTRAPARTE);
+            reservado = reservado.subtract(capturado);
+            cambiarSaldo(this.saldo.subtract(capturado));
+            notificar(TipoMovimiento.DEBITO, capturado);
+            BigDecimal resto = pendiente.subtract(capturado);
+            reserva.setPendiente(resto);
+            if (resto.signum() == 0) {
+                reserva.setEstado(EstadoReserva.CAPTURADA);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean liberar(Reserva reserva, EstadoReserva estadoFinal) {
+        lock.lock();
+        try {
+            if (reserva.getEstado() != EstadoReserva.ACTIVA) {
+                return false;
+            }
+            reservado = reservado.subtract(reserva.getPendiente());
+            reserva.setPendiente(BigDecimal.ZERO);
+            reserva.setEstado(estadoFinal);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // con el candado tomado; sin reservas no crea un BigDecimal nuevo
+    BigDecimal disponible() {
+        return reservado.signum() == 0 ? saldo : saldo.subtract(reservado);
     }
 
     //como se restan en Bigdecimal
     public void debito(BigDecimal monto){
-        //el BigDecimal es inmutable por eso
-        //this.saldo = this.saldo.subtract(monto);
-        BigDecimal nuevoSaldo = this.saldo.subtract(monto);
-        if(nuevoSaldo.compareTo(BigDecimal.ZERO) < 0){
+        if (intentarDebito(monto) == ResultadoDebito.DINERO_INSUFICIENTE) {
             throw new DineroInsuficienteException("Dinero insuficiente");
         }
-        this.saldo = nuevoSaldo;
+    }
+
+    // igual que debito pero sin excepcion: si no alcanza el saldo devuelve DINERO_INSUFICIENTE sin crear objetos
+    public ResultadoDebito intentarDebito(BigDecimal monto) {
+        return intentarDebito(monto, Movimiento.SIN_CONTRAPARTE);
+    }
+
+    // con el id de la otra cuenta, para el historial (lo usa Banco en las transferencias)
+    ResultadoDebito intentarDebito(BigDecimal monto, long contraparte) {
+        long inicio = Metricas.inicio();
+        ResultadoDebito resultado = debitar(monto, contraparte);
+        Metricas.registrar(Operacion.DEBITO, inicio, resultado == ResultadoDebito.DINERO_INSUFICIENTE);
+        return resultado;
+    }
+
+    private ResultadoDebito debitar(BigDecimal monto, long contraparte) {
+        // leer, restar y escribir tiene que ser atomico, sino dos hilos pisan el saldo del otro
+        lock.lock();
+        try {
+            // comparamos antes de restar, asi un rechazo no crea el BigDecimal del nuevo saldo. Lo reservado no se
+            // puede debitar
+            if (disponible().compareTo(monto) < 0) {
+                return ResultadoDebito.DINERO_INSUFICIENTE;
+            }
+            //el BigDecimal es inmutable por eso
+            //this.saldo = this.saldo.subtract(monto);
+            registrarMovimiento(TipoMovimiento.DEBITO, monto, contraparte);
+            cambiarSaldo(this.saldo.subtract(monto));
+            notificar(TipoMovimiento.DEBITO, monto);
+            return ResultadoDebito.APROBADO;
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void credito(BigDecimal monto) {
+        credito(monto, Movimiento.SIN_CONTRAPARTE);
+    }
 
-        this.saldo = this.saldo.add(monto);
+    void credito(BigDecimal monto, long contraparte) {
+        long inicio = Metricas.inicio();
+        lock.lock();
+        try {
+            registrarMovimiento(TipoMovimiento.CREDITO, monto, contraparte);
+            cambiarSaldo(this.saldo.add(monto));
+            notificar(TipoMovimiento.CREDITO, monto);
+        } finally {
+            lock.unlock();
+        }
+        Metricas.registrar(Operacion.CREDITO, inicio, false);
+    }
+
+    // todo cambio de saldo pasa por aca (con el candado tomado) para que el banco mantenga sus totales y versiones
+    private void cambiarSaldo(BigDecimal nuevo) {
+        BigDecimal anterior = this.saldo;
+        this.saldo = nuevo;
+        if (banco != null) {
+            if (diferida) {
+                banco.getTotales().cambiarMagnitud(anterior, nuevo);
+                totalDiferido = totalDiferido.add(anterior == null ? nuevo : nuevo.subtract(anterior));
+            } else {
+                banco.getTotales().cambiar(this, anterior, nuevo);
+            }
+        }
+        if (versiones != null && banco.isVersionando()) {
+            versiones.agregar(nuevo);
+            if (!diferida) {
+                banco.confirmarVersiones(this);
+            }
+        }
+    }
+
+    // con el candado tomado, asi el historial tiene un solo escritor. Banco.transferirLote lo llama por cada
+    // transferencia aplicada, porque el lote escribe los saldos con setSaldo
+    void registrarMovimiento(TipoMovimiento tipo, BigDecimal monto, long contraparte) {
+        HistorialMovimientos actual = historial;
+        if (actual != null) {
+            actual.registrar(tipo, monto, contraparte);
+        }
+    }
+
+    // se llama con el candado tomado, asi los observadores reciben los movimientos de una cuenta en orden
+    private void notificar(TipoMovimiento tipo, BigDecimal monto) {
+        if (banco != null) {
+            banco.notificar(this, tipo, monto);
+        }
     }
 
     //sobreescribimos el metodo equals para que compare por valor
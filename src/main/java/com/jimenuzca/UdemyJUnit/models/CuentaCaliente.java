@@ -0,0 +1,135 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cuenta para cuentas "calientes" que reciben creditos desde muchos hilos a la vez (por ej. un comercio).
+ * Como CuentaFija, guarda el saldo en unidades minimas (long), pero sin candado:
+ * - cada credito suma en una celda elegida segun el hilo, asi hilos distintos casi nunca pelean por la misma celda
+ *   (la idea de LongAdder).
+ * - el debito descuenta del saldo base con CAS. Si el base no alcanza, vacia las celdas en el base (getAndSet a 0,
+ *   sin perder creditos concurrentes) y vuelve a intentar. Solo si aun asi no alcanza lanza DineroInsuficienteException,
+ *   de modo que el saldo nunca queda negativo. Mientras otro hilo esta pasando celdas al base ese dinero no esta en
+ *   ninguno de los dos, asi que antes de rechazar se espera a que no haya consolidaciones en curso y a que el base no
+ *   haya cambiado.
+ * getSaldo suma el base y las celdas en el momento de leer; con creditos en curso es una foto aproximada.
+ */
+public class CuentaCaliente {
+    // cada celda ocupa una linea de cache de 64 bytes (8 longs) para que las celdas vecinas no se pisen
+    private static final int SEPARACION = 8;
+
+    private final String persona;
+    private final int escala;
+    private final AtomicLong base;
+    private final AtomicLongArray celdas;
+    private final int mascara;
+    // consolidaciones que ya vaciaron (o estan vaciando) celdas y todavia no sumaron al base
+    private final AtomicInteger consolidando = new AtomicInteger();
+
+    public CuentaCaliente(String persona, BigDecimal saldo, int escala) {
+        this.persona = persona;
+        this.escala = escala;
+        this.base = new AtomicLong(aUnidades(saldo));
+        // potencia de dos para elegir la celda con una mascara en lugar de un modulo
+        int cantidad = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) << 1;
+        this.celdas = new AtomicLongArray(cantidad * SEPARACION);
+        this.mascara = cantidad - 1;
+    }
+
+    public String getPersona() {
+        return persona;
+    }
+
+    public int getEscala() {
+        return escala;
+    }
+
+    public long aUnidades(BigDecimal monto) {
+        return monto.setScale(escala, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public long getSaldoUnidades() {
+        long saldo = base.get();
+        for (int i = 0; i <= mascara; i++) {
+            saldo = Math.addExact(saldo, celdas.get(i * SEPARACION));
+        }
+        return saldo;
+    }
+
+    public BigDecimal getSaldo() {
+        return BigDecimal.valueOf(getSaldoUnidades(), escala);
+    }
+
+    public void creditoUnidades(long monto) {
+        int celda = (mezclar(Thread.currentThread().getId()) & mascara) * SEPARACION;
+        long anterior;
+        do {
+            anterior = celdas.get(celda);
+        } while (!celdas.compareAndSet(celda, anterior, Math.addExact(anterior, monto)));
+    }
+
+    public void debitoUnidades(long monto) {
+        if (intentarDebitoUnidades(monto) == ResultadoDebito.DINERO_INSUFICIENTE) {
+            throw new DineroInsuficienteException("Dinero insuficiente");
+        }
+    }
+
+    public ResultadoDebito intentarDebitoUnidades(long monto) {
+        while (true) {
+            long disponible = base.get();
+            if (disponible >= monto) {
+                if (base.compareAndSet(disponible, disponible - monto)) {
+                    return ResultadoDebito.APROBADO;
+                }
+            } else if (!consolidar()) {
+                // se cuenta antes de vaciar y se descuenta despues de sumar al base: si no hay ninguna en curso y el
+                // base sigue igual, el dinero de verdad no alcanza
+                if (consolidando.get() == 0 && base.get() == disponible) {
+                    return ResultadoDebito.DINERO_INSUFICIENTE;
+                }
+                Thread.yield();
+            }
+        }
+    }
+
+    public void credito(BigDecimal monto) {
+        creditoUnidades(aUnidades(monto));
+    }
+
+    public void debito(BigDecimal monto) {
+        debitoUnidades(aUnidades(monto));
+    }
+
+    // pasa lo acumulado en las celdas al saldo base. Devuelve false si no habia nada para pasar
+    private boolean consolidar() {
+        consolidando.incrementAndGet();
+        try {
+            long movido = 0;
+            for (int i = 0; i <= mascara; i++) {
+                movido += celdas.getAndSet(i * SEPARACION, 0);
+            }
+            if (movido == 0) {
+                return false;
+            }
+            long anterior;
+            do {
+                anterior = base.get();
+            } while (!base.compareAndSet(anterior, Math.addExact(anterior, movido)));
+            return true;
+        } finally {
+            consolidando.decrementAndGet();
+        }
+    }
+
+    // reparte mejor los ids de hilo consecutivos entre las celdas
+    private static int mezclar(long valor) {
+        long h = valor * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
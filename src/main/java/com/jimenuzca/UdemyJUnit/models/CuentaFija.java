@@ -0,0 +1,75 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Cuenta de punto fijo: guarda el saldo como un long en unidades minimas (por ej. centavos con escala 2).
+ * Sirve para el camino caliente, donde cada debito/credito de Cuenta crea un BigDecimal nuevo.
+ * Aca las operaciones con unidades no crean ningun objeto; el BigDecimal solo aparece en los metodos
+ * que reciben o devuelven montos (el borde de la API).
+ * Las sumas y restas usan Math.addExact/subtractExact, si se desborda el long lanzan ArithmeticException.
+ */
+public class CuentaFija {
+    private final String persona;
+    // cantidad de decimales de la moneda, fija para toda la vida de la cuenta
+    private final int escala;
+    private long saldo;
+
+    public CuentaFija(String persona, BigDecimal saldo, int escala) {
+        this.persona = persona;
+        this.escala = escala;
+        this.saldo = aUnidades(saldo);
+    }
+
+    public String getPersona() {
+        return persona;
+    }
+
+    public int getEscala() {
+        return escala;
+    }
+
+    public synchronized long getSaldoUnidades() {
+        return saldo;
+    }
+
+    public BigDecimal getSaldo() {
+        return BigDecimal.valueOf(getSaldoUnidades(), escala);
+    }
+
+    // pasa un monto a unidades minimas. Si tiene mas decimales que la escala lanza ArithmeticException,
+    // preferimos fallar antes que redondear dinero sin avisar
+    public long aUnidades(BigDecimal monto) {
+        return monto.setScale(escala, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public void debitoUnidades(long monto) {
+        if (intentarDebitoUnidades(monto) == ResultadoDebito.DINERO_INSUFICIENTE) {
+            throw new DineroInsuficienteException("Dinero insuficiente");
+        }
+    }
+
+    public synchronized ResultadoDebito intentarDebitoUnidades(long monto) {
+        long nuevoSaldo = Math.subtractExact(saldo, monto);
+        if (nuevoSaldo < 0) {
+            return ResultadoDebito.DINERO_INSUFICIENTE;
+        }
+        saldo = nuevoSaldo;
+        return ResultadoDebito.APROBADO;
+    }
+
+    public synchronized void creditoUnidades(long monto) {
+        saldo = Math.addExact(saldo, monto);
+    }
+
+    public void debito(BigDecimal monto) {
+        debitoUnidades(aUnidades(monto));
+    }
+
+    public void credito(BigDecimal monto) {
+        creditoUnidades(aUnidades(monto));
+    }
+}
@@ -0,0 +1,49 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+
+import java.math.BigDecimal;
+
+/**
+ * Vista de una cuenta guardada en un AlmacenFueraDelHeap. No tiene datos propios, solo el almacen y la posicion,
+ * asi que se puede crear y descartar sin costo; dos vistas de la misma posicion ven el mismo saldo.
+ */
+public class CuentaFueraDelHeap {
+    private final AlmacenFueraDelHeap almacen;
+    private final int posicion;
+
+    CuentaFueraDelHeap(AlmacenFueraDelHeap almacen, int posicion) {
+        this.almacen = almacen;
+        this.posicion = posicion;
+    }
+
+    public int getPosicion() {
+        return posicion;
+    }
+
+    public String getPersona() {
+        return almacen.persona(posicion);
+    }
+
+    public long getSaldoUnidades() {
+        return almacen.saldo(posicion);
+    }
+
+    public BigDecimal getSaldo() {
+        return BigDecimal.valueOf(getSaldoUnidades(), almacen.getEscala());
+    }
+
+    public void debito(BigDecimal monto) {
+        if (intentarDebito(monto) == ResultadoDebito.DINERO_INSUFICIENTE) {
+            throw new DineroInsuficienteException("Dinero insuficiente");
+        }
+    }
+
+    public ResultadoDebito intentarDebito(BigDecimal monto) {
+        return almacen.debitar(posicion, almacen.aUnidades(monto));
+    }
+
+    public void credito(BigDecimal monto) {
+        almacen.acreditar(posicion, almacen.aUnidades(monto));
+    }
+}
@@ -0,0 +1,5 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+public enum EstadoReserva {
+    ACTIVA, CAPTURADA, LIBERADA, VENCIDA
+}
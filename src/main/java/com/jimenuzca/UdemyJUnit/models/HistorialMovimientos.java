@@ -0,0 +1,98 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ultimos movimientos de una Cuenta en un buffer circular de tamanio fijo: cuando se llena, cada movimiento nuevo
+ * pisa al mas viejo. Se habilita con Cuenta.habilitarHistorial.
+ * Todo esta en un solo arreglo de long reservado al crearlo (monto sin escala, escala y tipo, instante y
+ * contraparte), asi registrar un movimiento no deja objetos nuevos. Un monto que no entra en un long se guarda
+ * aparte como BigDecimal (y se marca en el campo de escala y tipo): registrar nunca falla, porque se llama cuando el
+ * movimiento ya esta decidido.
+ * Escribe un solo hilo por vez (el que tiene el candado de la cuenta) y leer no toma el candado: el lector copia
+ * las posiciones y despues descarta las que el escritor pudo haber pisado mientras tanto (como un seqlock).
+ */
+public class HistorialMovimientos {
+    private static final int CAMPOS = 4;
+    private static final long MONTO_GRANDE = 1 << 8;
+
+    private final int capacidad;
+    private final AtomicLongArray datos;
+    // montos que no entran en un long, por posicion; se crea con el primero
+    private volatile AtomicReferenceArray<BigDecimal> grandes;
+    // movimientos que se empezaron a escribir y que se terminaron de escribir desde que se creo el historial
+    private volatile long iniciados;
+    private volatile long escritos;
+
+    HistorialMovimientos(int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad del historial tiene que ser positiva: " + capacidad);
+        }
+        this.capacidad = capacidad;
+        this.datos = new AtomicLongArray(capacidad * CAMPOS);
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    // cantidad de movimientos registrados desde que se creo, incluidos los que ya se pisaron
+    public long getCantidad() {
+        return escritos;
+    }
+
+    // se llama con el candado de la cuenta tomado, asi hay un solo escritor
+    void registrar(TipoMovimiento tipo, BigDecimal monto, long contraparte) {
+        long numero = escritos;
+        boolean grande = monto.unscaledValue().bitLength() > 63;
+        if (grande && grandes == null) {
+            grandes = new AtomicReferenceArray<>(capacidad);
+        }
+        iniciados = numero + 1;
+        int posicion = (int) (numero % capacidad);
+        int base = posicion * CAMPOS;
+        datos.set(base, grande ? 0 : monto.unscaledValue().longValue());
+        datos.set(base + 1, ((long) monto.scale() << 9) | (grande ? MONTO_GRANDE : 0) | tipo.ordinal());
+        if (grande) {
+            grandes.set(posicion, monto);
+        }
+        datos.set(base + 2, System.currentTimeMillis());
+        datos.set(base + 3, contraparte);
+        escritos = numero + 1;
+    }
+
+    // los ultimos movimientos, del mas nuevo al mas viejo
+    public List<Movimiento> ultimos(int cantidad) {
+        long hasta = escritos;
+        long desde = Math.max(0, hasta - Math.max(0, Math.min(cantidad, capacidad)));
+        long[] copia = new long[(int) (hasta - desde) * CAMPOS];
+        AtomicReferenceArray<BigDecimal> montosGrandes = grandes;
+        BigDecimal[] copiaGrandes = montosGrandes == null ? null : new BigDecimal[(int) (hasta - desde)];
+        for (long numero = desde; numero < hasta; numero++) {
+            int posicion = (int) (numero % capacidad);
+            int destino = (int) (numero - desde) * CAMPOS;
+            for (int campo = 0; campo < CAMPOS; campo++) {
+                copia[destino + campo] = datos.get(posicion * CAMPOS + campo);
+            }
+            if (copiaGrandes != null) {
+                copiaGrandes[(int) (numero - desde)] = montosGrandes.get(posicion);
+            }
+        }
+        // los que el escritor empezo a pisar mientras copiabamos pueden haber quedado mezclados, se descartan
+        long validoDesde = Math.max(desde, iniciados - capacidad);
+        TipoMovimiento[] tipos = TipoMovimiento.values();
+        List<Movimiento> movimientos = new ArrayList<>((int) Math.max(0, hasta - validoDesde));
+        for (long numero = hasta - 1; numero >= validoDesde; numero--) {
+            int base = (int) (numero - desde) * CAMPOS;
+            long escalaYTipo = copia[base + 1];
+            BigDecimal monto = (escalaYTipo & MONTO_GRANDE) != 0 ? copiaGrandes[(int) (numero - desde)]
+                    : BigDecimal.valueOf(copia[base], (int) (escalaYTipo >> 9));
+            movimientos.add(new Movimiento(tipos[(int) (escalaYTipo & 0xFF)], monto, copia[base + 2], copia[base + 3]));
+        }
+        return movimientos;
+    }
+}
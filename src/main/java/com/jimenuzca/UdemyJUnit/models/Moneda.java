@@ -0,0 +1,81 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moneda de una Cuenta, con su escala (cantidad de decimales) y su forma de redondear calculadas una sola vez al
+ * crearla, asi convertir un monto no tiene que buscarlas en Currency en cada transferencia.
+ * Hay una sola instancia por codigo, se comparan con ==. Cada moneda tiene ademas un indice chico y consecutivo que
+ * TasasDeCambio usa para guardar las tasas en una tabla en lugar de un mapa.
+ */
+public final class Moneda {
+    // declarados antes que las constantes, que se registran en ellos al inicializar la clase
+    private static final Map<String, Moneda> MONEDAS = new ConcurrentHashMap<>();
+    private static final AtomicInteger INDICES = new AtomicInteger();
+
+    public static final Moneda ARS = de("ARS");
+    public static final Moneda USD = de("USD");
+    public static final Moneda EUR = de("EUR");
+
+    private final String codigo;
+    private final int escala;
+    private final RoundingMode redondeo;
+    private final int indice;
+
+    private Moneda(String codigo, int escala, RoundingMode redondeo) {
+        this.codigo = codigo;
+        this.escala = escala;
+        this.redondeo = redondeo;
+        this.indice = INDICES.getAndIncrement();
+    }
+
+    // moneda ISO 4217 con sus decimales habituales, redondeando al par mas cercano (redondeo bancario)
+    public static Moneda de(String codigo) {
+        Moneda moneda = MONEDAS.get(codigo);
+        if (moneda != null) {
+            return moneda;
+        }
+        int escala = Math.max(0, Currency.getInstance(codigo).getDefaultFractionDigits());
+        return de(codigo, escala, RoundingMode.HALF_EVEN);
+    }
+
+    // moneda con reglas propias (por ej. una que no es ISO). Si el codigo ya existe tiene que tener las mismas reglas
+    public static Moneda de(String codigo, int escala, RoundingMode redondeo) {
+        Moneda moneda = MONEDAS.computeIfAbsent(codigo, c -> new Moneda(c, escala, redondeo));
+        if (moneda.escala != escala || moneda.redondeo != redondeo) {
+            throw new IllegalArgumentException("La moneda " + codigo + " ya existe con escala " + moneda.escala
+                    + " y redondeo " + moneda.redondeo);
+        }
+        return moneda;
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    public int getEscala() {
+        return escala;
+    }
+
+    public RoundingMode getRedondeo() {
+        return redondeo;
+    }
+
+    int getIndice() {
+        return indice;
+    }
+
+    public BigDecimal redondear(BigDecimal monto) {
+        return monto.setScale(escala, redondeo);
+    }
+
+    @Override
+    public String toString() {
+        return codigo;
+    }
+}
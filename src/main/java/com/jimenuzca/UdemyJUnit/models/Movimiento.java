@@ -0,0 +1,45 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import java.math.BigDecimal;
+
+/**
+ * Un movimiento leido del historial de una Cuenta. El instante esta en milisegundos desde 1970 (como
+ * System.currentTimeMillis) y la contraparte es el id de la otra cuenta de la transferencia, o SIN_CONTRAPARTE si
+ * fue un debito o credito suelto.
+ */
+public class Movimiento {
+    public static final long SIN_CONTRAPARTE = 0;
+
+    private final TipoMovimiento tipo;
+    private final BigDecimal monto;
+    private final long instante;
+    private final long contraparte;
+
+    Movimiento(TipoMovimiento tipo, BigDecimal monto, long instante, long contraparte) {
+        this.tipo = tipo;
+        this.monto = monto;
+        this.instante = instante;
+        this.contraparte = contraparte;
+    }
+
+    public TipoMovimiento getTipo() {
+        return tipo;
+    }
+
+    public BigDecimal getMonto() {
+        return monto;
+    }
+
+    public long getInstante() {
+        return instante;
+    }
+
+    public long getContraparte() {
+        return contraparte;
+    }
+
+    @Override
+    public String toString() {
+        return tipo + " " + monto.toPlainString() + (contraparte == SIN_CONTRAPARTE ? "" : " con " + contraparte);
+    }
+}
@@ -0,0 +1,25 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Recibe cada debito y credito que se aplica sobre las cuentas de un Banco (ver Banco.addObservador).
+ * Se invoca con el candado de la cuenta tomado, inmediatamente despues de modificar el saldo: tiene que ser rapido,
+ * no debe operar sobre otras cuentas y no debe lanzar excepciones, porque el movimiento ya esta aplicado (en una
+ * transferencia, la otra cuenta quedaria sin su parte).
+ */
+public interface ObservadorMovimientos {
+
+    void movimiento(Cuenta cuenta, TipoMovimiento tipo, BigDecimal monto);
+
+    // alta de una cuenta en el banco, con su saldo en ese momento; se invoca con el candado de la cuenta tomado,
+    // antes de cualquier movimiento de la cuenta en el banco
+    default void alta(Cuenta cuenta, BigDecimal saldo) {
+    }
+
+    // la cuenta quedo devengada hasta fecha (ver Cuenta.devengar); se invoca con el candado tomado, despues del
+    // movimiento del devengamiento
+    default void devengado(Cuenta cuenta, LocalDate fecha) {
+    }
+}
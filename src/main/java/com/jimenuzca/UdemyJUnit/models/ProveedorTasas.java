@@ -0,0 +1,14 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import java.math.BigDecimal;
+
+/**
+ * De donde saca el Banco la tasa para convertir una transferencia entre cuentas de distinta moneda.
+ * Se llama en cada transferencia entre monedas distintas (antes de bloquear las cuentas), asi que tiene que ser
+ * rapido y no bloquear; TasasDeCambio es la implementacion que viene con el proyecto.
+ */
+public interface ProveedorTasas {
+
+    // cuantas unidades de destino vale una unidad de origen. Si no hay tasa lanza IllegalStateException
+    BigDecimal tasa(Moneda origen, Moneda destino);
+}
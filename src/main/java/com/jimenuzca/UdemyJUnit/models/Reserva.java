@@ -0,0 +1,67 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import java.math.BigDecimal;
+
+/**
+ * Fondos reservados en una Cuenta (como la autorizacion de una tarjeta): mientras esta ACTIVA el monto no se puede
+ * debitar ni transferir, pero sigue en el saldo contable. Despues se captura (se debita de verdad), de una vez o en
+ * partes, o se libera. Una reserva que nadie captura ni libera la puede vencer servicios.RuedaVencimientos.
+ * Los cambios se hacen con el candado de la cuenta tomado.
+ */
+public class Reserva {
+    private final Cuenta cuenta;
+    private final BigDecimal monto;
+    // lo que todavia esta reservado: baja con cada captura parcial
+    private volatile BigDecimal pendiente;
+    private volatile EstadoReserva estado = EstadoReserva.ACTIVA;
+
+    Reserva(Cuenta cuenta, BigDecimal monto) {
+        this.cuenta = cuenta;
+        this.monto = monto;
+        this.pendiente = monto;
+    }
+
+    public Cuenta getCuenta() {
+        return cuenta;
+    }
+
+    public BigDecimal getMonto() {
+        return monto;
+    }
+
+    public BigDecimal getPendiente() {
+        return pendiente;
+    }
+
+    public EstadoReserva getEstado() {
+        return estado;
+    }
+
+    // captura todo lo que queda reservado
+    public void capturar() {
+        cuenta.capturar(this, null);
+    }
+
+    // captura una parte; lo que sobra sigue reservado hasta otra captura, liberar o el vencimiento.
+    // Lanza IllegalArgumentException si el monto supera lo pendiente e IllegalStateException si ya no esta activa
+    public void capturar(BigDecimal monto) {
+        cuenta.capturar(this, monto);
+    }
+
+    public void liberar() {
+        cuenta.liberar(this, EstadoReserva.LIBERADA);
+    }
+
+    // devuelve false si la reserva ya no estaba activa
+    public boolean vencer() {
+        return cuenta.liberar(this, EstadoReserva.VENCIDA);
+    }
+
+    void setPendiente(BigDecimal pendiente) {
+        this.pendiente = pendiente;
+    }
+
+    void setEstado(EstadoReserva estado) {
+        this.estado = estado;
+    }
+}
@@ -0,0 +1,9 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+/**
+ * Resultado de intentar un debito sin excepciones. Un rechazo no crea ningun objeto, solo devuelve la constante.
+ */
+public enum ResultadoDebito {
+    APROBADO,
+    DINERO_INSUFICIENTE
+}
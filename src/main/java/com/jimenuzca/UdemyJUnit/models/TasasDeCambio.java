@@ -0,0 +1,44 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Tabla de tasas de cambio en memoria, pensada para muchas lecturas y pocas actualizaciones.
+ * Las tasas estan en una tabla indexada por el indice de cada Moneda. Actualizar copia la tabla (solo la fila que
+ * cambia) y la publica entera en un campo volatile, asi leer una tasa es leer dos posiciones de un arreglo, sin
+ * candados ni objetos nuevos, y nunca se ve una tabla a medio actualizar.
+ */
+public class TasasDeCambio implements ProveedorTasas {
+    private volatile BigDecimal[][] tasas = new BigDecimal[0][];
+
+    @Override
+    public BigDecimal tasa(Moneda origen, Moneda destino) {
+        if (origen == destino) {
+            return BigDecimal.ONE;
+        }
+        BigDecimal[][] actuales = tasas;
+        int fila = origen.getIndice();
+        int columna = destino.getIndice();
+        if (fila < actuales.length && actuales[fila] != null && columna < actuales[fila].length
+                && actuales[fila][columna] != null) {
+            return actuales[fila][columna];
+        }
+        throw new IllegalStateException("No hay tasa de cambio de " + origen + " a " + destino);
+    }
+
+    // las actualizaciones se hacen de a una, las lecturas no esperan
+    public synchronized void actualizar(Moneda origen, Moneda destino, BigDecimal tasa) {
+        if (tasa.signum() <= 0) {
+            throw new IllegalArgumentException("La tasa de cambio tiene que ser positiva: " + tasa);
+        }
+        int fila = origen.getIndice();
+        int columna = destino.getIndice();
+        BigDecimal[][] nuevas = Arrays.copyOf(tasas, Math.max(tasas.length, fila + 1));
+        BigDecimal[] filaActual = nuevas[fila] == null ? new BigDecimal[0] : nuevas[fila];
+        BigDecimal[] filaNueva = Arrays.copyOf(filaActual, Math.max(filaActual.length, columna + 1));
+        filaNueva[columna] = tasa;
+        nuevas[fila] = filaNueva;
+        tasas = nuevas;
+    }
+}
@@ -0,0 +1,6 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+public enum TipoMovimiento {
+    DEBITO,
+    CREDITO
+}
@@ -0,0 +1,143 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totales de un Banco que se mantienen al dia con cada cambio de saldo, asi leerlos no requiere recorrer las cuentas:
+ * cantidad de cuentas, saldo total y cuantas cuentas hay en cada rango de magnitud (para acotar el minimo y maximo).
+ * El saldo total esta repartido en CELDAS sumas, cada una con su candado, y cada cuenta usa siempre la misma celda
+ * (por su id), asi los cambios de cuentas distintas casi no compiten entre si.
+ * Leer suma las celdas sin frenar a nadie y nunca ve una transferencia a medias: las transferencias y los lotes dentro
+ * del banco suman al total lo que cambiaron todas sus cuentas de una sola vez, en una celda, al terminar (y si no
+ * cambia nada, como en una transferencia sin conversion, no la tocan). Los debitos y creditos sueltos cambian una
+ * sola cuenta y se ven enteros o no se ven.
+ * Los saldos se suman tal cual, sin convertir: si el banco tiene cuentas de distintas monedas el total las mezcla.
+ * Rangos de getCuentasPorMagnitud(): 0 saldo negativo, 1 saldo cero, 2 menor que 1, y desde 3 el rango
+ * [10^(i-3), 10^(i-2)), o sea 3 = [1, 10), 4 = [10, 100), etc.
+ */
+public class TotalesBanco {
+    private static final int CELDAS = 32;
+    private static final int RANGOS = 64;
+
+    private final BigDecimal[] sumas = new BigDecimal[CELDAS];
+    private final Object[] candados = new Object[CELDAS];
+    private final LongAdder cantidad = new LongAdder();
+    private final AtomicLongArray porMagnitud = new AtomicLongArray(RANGOS);
+
+    TotalesBanco() {
+        for (int i = 0; i < CELDAS; i++) {
+            sumas[i] = BigDecimal.ZERO;
+            candados[i] = new Object();
+        }
+    }
+
+    public long getCantidadCuentas() {
+        return cantidad.sum();
+    }
+
+    public BigDecimal getSaldoTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < CELDAS; i++) {
+            synchronized (candados[i]) {
+                total = total.add(sumas[i]);
+            }
+        }
+        return total;
+    }
+
+    public long[] getCuentasPorMagnitud() {
+        long[] copia = new long[RANGOS];
+        for (int i = 0; i < RANGOS; i++) {
+            copia[i] = porMagnitud.get(i);
+        }
+        return copia;
+    }
+
+    // valor que ningun saldo alcanza: 10 elevado a la cantidad de digitos enteros del saldo mas grande.
+    // Si no hay saldos positivos devuelve cero
+    public BigDecimal getCotaMaxima() {
+        for (int i = RANGOS - 1; i >= 2; i--) {
+            if (porMagnitud.get(i) > 0) {
+                return BigDecimal.ONE.scaleByPowerOfTen(i - 2);
+            }
+        }
+        return BigDecimal.ZERO;
+    }
+
+    void agregar(Cuenta cuenta, BigDecimal saldo) {
+        cantidad.increment();
+        cambiar(cuenta, null, saldo);
+    }
+
+    void quitar(Cuenta cuenta, BigDecimal saldo) {
+        cantidad.decrement();
+        cambiar(cuenta, saldo, null);
+    }
+
+    // null cuenta como "sin saldo", por ej. una Cuenta creada con el constructor vacio
+    void cambiar(Cuenta cuenta, BigDecimal anterior, BigDecimal nuevo) {
+        int celda = celda(cuenta);
+        synchronized (candados[celda]) {
+            BigDecimal suma = sumas[celda];
+            if (anterior != null) {
+                suma = suma.subtract(anterior);
+            }
+            if (nuevo != null) {
+                suma = suma.add(nuevo);
+            }
+            sumas[celda] = suma;
+        }
+        cambiarMagnitud(anterior, nuevo);
+    }
+
+    // suma al total lo que cambiaron juntas varias cuentas, en la celda de cuenta
+    void sumar(Cuenta cuenta, BigDecimal diferencia) {
+        int celda = celda(cuenta);
+        synchronized (candados[celda]) {
+            sumas[celda] = sumas[celda].add(diferencia);
+        }
+    }
+
+    void cambiarMagnitud(BigDecimal anterior, BigDecimal nuevo) {
+        int rangoAnterior = rango(anterior);
+        int rangoNuevo = rango(nuevo);
+        if (rangoAnterior != rangoNuevo) {
+            if (rangoAnterior >= 0) {
+                porMagnitud.decrementAndGet(rangoAnterior);
+            }
+            if (rangoNuevo >= 0) {
+                porMagnitud.incrementAndGet(rangoNuevo);
+            }
+        }
+    }
+
+    void reiniciar() {
+        for (int i = 0; i < CELDAS; i++) {
+            synchronized (candados[i]) {
+                sumas[i] = BigDecimal.ZERO;
+            }
+        }
+        cantidad.reset();
+        for (int i = 0; i < RANGOS; i++) {
+            porMagnitud.set(i, 0);
+        }
+    }
+
+    private static int celda(Cuenta cuenta) {
+        return (int) (cuenta.getId() & (CELDAS - 1));
+    }
+
+    private static int rango(BigDecimal saldo) {
+        if (saldo == null) {
+            return -1;
+        }
+        if (saldo.signum() <= 0) {
+            return saldo.signum() + 1;
+        }
+        // digitos enteros: 1 para [1, 10), 2 para [10, 100)... cero o menos si es menor que 1
+        int digitos = saldo.precision() - saldo.scale();
+        return Math.min(RANGOS - 1, 2 + Math.max(0, digitos));
+    }
+}
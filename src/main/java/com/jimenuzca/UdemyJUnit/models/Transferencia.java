@@ -0,0 +1,68 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+
+import java.math.BigDecimal;
+
+/**
+ * Una instruccion de transferencia para Banco.transferirLote.
+ * Despues de procesar el lote cada instruccion indica si se aplico o, si no, el error por el que se rechazo.
+ */
+public class Transferencia {
+    private final Cuenta origen;
+    private final Cuenta destino;
+    private final BigDecimal monto;
+    // lo que recibe el destino, en su moneda; es el mismo monto si las dos cuentas tienen la misma moneda
+    private BigDecimal montoAcreditado;
+    private boolean procesada;
+    private DineroInsuficienteException error;
+
+    public Transferencia(Cuenta origen, Cuenta destino, BigDecimal monto) {
+        this.origen = origen;
+        this.destino = destino;
+        this.monto = monto;
+        this.montoAcreditado = monto;
+    }
+
+    public Cuenta getOrigen() {
+        return origen;
+    }
+
+    public Cuenta getDestino() {
+        return destino;
+    }
+
+    public BigDecimal getMonto() {
+        return monto;
+    }
+
+    public BigDecimal getMontoAcreditado() {
+        return montoAcreditado;
+    }
+
+    public boolean isProcesada() {
+        return procesada;
+    }
+
+    public boolean isExitosa() {
+        return procesada && error == null;
+    }
+
+    public DineroInsuficienteException getError() {
+        return error;
+    }
+
+    void convertida(BigDecimal montoAcreditado) {
+        this.montoAcreditado = montoAcreditado;
+    }
+
+    void aplicada() {
+        this.procesada = true;
+        this.error = null;
+    }
+
+    void rechazada(DineroInsuficienteException error) {
+        this.procesada = true;
+        this.error = error;
+    }
+}
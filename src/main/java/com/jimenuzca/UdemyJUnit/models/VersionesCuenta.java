@@ -0,0 +1,125 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import java.math.BigDecimal;
+
+/**
+ * Saldos versionados de una cuenta dentro de un banco, para las VistaBanco.
+ * Cada cambio de saldo agrega una version al principio de una lista enlazada; la version queda PENDIENTE hasta que
+ * la operacion termina y recibe un numero del reloj del banco (todas las cuentas de una transferencia reciben el
+ * mismo numero, asi una vista ve la transferencia entera o nada). Tambien se guarda desde y hasta que numero la
+ * cuenta estuvo en el banco. Mientras el banco no tiene vistas abiertas no se agregan versiones; al abrir la
+ * primera se reinicia con el saldo actual.
+ * Se modifica solo con el candado de la cuenta tomado; las vistas leen sin candado. Si una vista encuentra una
+ * version PENDIENTE espera a que se confirme, lo que tarda unas pocas instrucciones del escritor.
+ */
+final class VersionesCuenta {
+    static final long SIN_NUMERO = Long.MAX_VALUE;
+    static final long PENDIENTE = Long.MAX_VALUE - 1;
+
+    private static final class Version {
+        final BigDecimal saldo;
+        volatile long numero = PENDIENTE;
+        volatile Version anterior;
+
+        Version(BigDecimal saldo, Version anterior) {
+            this.saldo = saldo;
+            this.anterior = anterior;
+        }
+    }
+
+    private final Cuenta cuenta;
+    // posicion en el registro del banco; cambia cuando el banco saca del registro las cuentas quitadas
+    private volatile int indice;
+    private volatile Version ultima;
+    private volatile long desde = PENDIENTE;
+    private volatile long hasta = SIN_NUMERO;
+
+    VersionesCuenta(Cuenta cuenta, int indice) {
+        this.cuenta = cuenta;
+        this.indice = indice;
+    }
+
+    Cuenta getCuenta() {
+        return cuenta;
+    }
+
+    int getIndice() {
+        return indice;
+    }
+
+    void setIndice(int indice) {
+        this.indice = indice;
+    }
+
+    void agregar(BigDecimal saldo) {
+        ultima = new Version(saldo, ultima);
+    }
+
+    boolean tienePendientes() {
+        Version version = ultima;
+        return version != null && version.numero == PENDIENTE;
+    }
+
+    // numera las versiones pendientes y descarta las que ninguna vista puede leer: se conserva la mas nueva con
+    // numero <= piso (el piso nunca supera al numero de una vista abierta) y las posteriores
+    void confirmar(long numero, long piso) {
+        Version version = ultima;
+        while (version != null && version.numero == PENDIENTE) {
+            version.numero = numero;
+            version = version.anterior;
+        }
+        for (version = ultima; version != null; version = version.anterior) {
+            if (version.numero <= piso) {
+                version.anterior = null;
+                return;
+            }
+        }
+    }
+
+    // con el candado de la cuenta tomado y sin vistas abiertas: ninguna necesita las versiones anteriores
+    void reiniciar(BigDecimal saldo, long numero) {
+        Version version = new Version(saldo, null);
+        version.numero = numero;
+        ultima = version;
+    }
+
+    void alta(long numero) {
+        desde = numero;
+    }
+
+    void bajaPendiente() {
+        hasta = PENDIENTE;
+    }
+
+    void baja(long numero) {
+        hasta = numero;
+    }
+
+    boolean estaEn(long numero) {
+        return esperar(this, true) <= numero && numero < esperar(this, false);
+    }
+
+    // saldo que tenia la cuenta al confirmarse el numero indicado
+    BigDecimal saldoEn(long numero) {
+        for (Version version = ultima; version != null; version = version.anterior) {
+            long confirmado = version.numero;
+            while (confirmado == PENDIENTE) {
+                Thread.yield();
+                confirmado = version.numero;
+            }
+            if (confirmado <= numero) {
+                return version.saldo;
+            }
+        }
+        throw new IllegalStateException("No se conserva el saldo de la cuenta " + cuenta.getId() + " en la version " + numero);
+    }
+
+    private static long esperar(VersionesCuenta versiones, boolean alta) {
+        long numero = alta ? versiones.desde : versiones.hasta;
+        while (numero == PENDIENTE) {
+            Thread.yield();
+            numero = alta ? versiones.desde : versiones.hasta;
+        }
+        return numero;
+    }
+}
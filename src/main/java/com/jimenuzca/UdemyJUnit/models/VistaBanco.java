@@ -0,0 +1,86 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Vista inmutable de las cuentas de un Banco y sus saldos en un instante, para reportes largos que corren junto con
+ * las transferencias. Se obtiene con Banco.vista(): no copia nada, solo guarda el numero de version del banco y
+ * despues cada saldo se busca en las versiones que guarda cada cuenta. Sin vistas abiertas las cuentas no guardan
+ * versiones, asi que abrir la primera cuesta O(n): toma el lock del banco y el candado de cada cuenta, una por vez,
+ * para dejarle su saldo actual como version (mientras tanto addCuenta espera y cada operacion espera a lo sumo lo
+ * que tarda su cuenta). Con otra vista ya abierta es O(1) y no frena a nadie.
+ * Las transferencias (tambien las de un lote) se ven completas o no se ven, nunca a medias.
+ * Mientras la vista esta abierta el banco conserva los saldos viejos que pueda necesitar, por eso hay que cerrarla
+ * (try-with-resources); una vista olvidada hace que las versiones de las cuentas crezcan sin limite.
+ */
+public class VistaBanco implements AutoCloseable {
+    private final Banco banco;
+    private final long version;
+    private final VersionesCuenta[] registro;
+    private final int registradas;
+    private boolean cerrada;
+
+    VistaBanco(Banco banco, long version, VersionesCuenta[] registro, int registradas) {
+        this.banco = banco;
+        this.version = version;
+        this.registro = registro;
+        this.registradas = registradas;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // pasa cada cuenta que estaba en el banco con el saldo que tenia, en el orden en que se agregaron
+    public void recorrer(BiConsumer<Cuenta, BigDecimal> lector) {
+        for (int i = 0; i < registradas; i++) {
+            VersionesCuenta versiones = registro[i];
+            if (versiones.estaEn(version)) {
+                lector.accept(versiones.getCuenta(), versiones.saldoEn(version));
+            }
+        }
+    }
+
+    public List<Cuenta> getCuentas() {
+        List<Cuenta> cuentas = new ArrayList<>();
+        recorrer((cuenta, saldo) -> cuentas.add(cuenta));
+        return cuentas;
+    }
+
+    // null si la cuenta no estaba en el banco
+    public BigDecimal saldo(Cuenta cuenta) {
+        VersionesCuenta actuales = cuenta.getVersiones();
+        if (actuales != null && actuales.getIndice() < registradas && registro[actuales.getIndice()] == actuales) {
+            return actuales.estaEn(version) ? actuales.saldoEn(version) : null;
+        }
+        // la cuenta se quito del banco (o se agrego a otro) despues de abrir la vista
+        for (int i = 0; i < registradas; i++) {
+            VersionesCuenta versiones = registro[i];
+            if (versiones.getCuenta() == cuenta && versiones.estaEn(version)) {
+                return versiones.saldoEn(version);
+            }
+        }
+        return null;
+    }
+
+    public BigDecimal getSaldoTotal() {
+        BigDecimal[] total = {BigDecimal.ZERO};
+        recorrer((cuenta, saldo) -> {
+            if (saldo != null) {
+                total[0] = total[0].add(saldo);
+            }
+        });
+        return total[0];
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!cerrada) {
+            cerrada = true;
+            banco.cerrarVista(version);
+        }
+    }
+}
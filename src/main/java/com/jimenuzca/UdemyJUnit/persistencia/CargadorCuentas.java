@@ -0,0 +1,155 @@
+package com.jimenuzca.UdemyJUnit.persistencia;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Carga masiva de cuentas desde un CSV con una linea "persona,saldo" por cuenta (por ej. "Graciela,2500.50").
+ * El archivo se divide en bloques que terminan en un fin de linea y cada bloque se mapea en memoria y se procesa en
+ * paralelo; en memoria solo estan los bloques que se estan leyendo, no el archivo entero. El saldo se lee directo
+ * de los bytes a un long sin escala, sin pasar por un String. Las cuentas se agregan al banco en el orden del archivo.
+ */
+public class CargadorCuentas {
+    private static final int TAMANIO_BLOQUE = 32 * 1024 * 1024;
+
+    private CargadorCuentas() {
+    }
+
+    // devuelve la cantidad de cuentas cargadas
+    public static int cargarCsv(Path archivo, Banco banco) throws IOException {
+        return cargarCsv(archivo, banco, TAMANIO_BLOQUE);
+    }
+
+    static int cargarCsv(Path archivo, Banco banco, int tamanioBloque) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            List<long[]> bloques = dividir(canal, tamanioBloque);
+            List<List<Cuenta>> cuentas;
+            try {
+                // el stream paralelo conserva el orden de los bloques al juntar los resultados
+                cuentas = bloques.parallelStream()
+                        .map(bloque -> leerBloque(canal, bloque[0], bloque[1]))
+                        .collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            int cargadas = 0;
+            for (List<Cuenta> lista : cuentas) {
+                banco.addCuentas(lista);
+                cargadas += lista.size();
+            }
+            return cargadas;
+        }
+    }
+
+    // rangos [inicio, fin) de cada bloque, cortando siempre despues de un '\n'
+    private static List<long[]> dividir(FileChannel canal, int tamanioBloque) throws IOException {
+        List<long[]> bloques = new ArrayList<>();
+        long tamanio = canal.size();
+        ByteBuffer lectura = ByteBuffer.allocate(1);
+        long inicio = 0;
+        while (inicio < tamanio) {
+            long fin = Math.min(tamanio, inicio + tamanioBloque);
+            while (fin < tamanio && !terminaEnLinea(canal, fin, lectura)) {
+                fin++;
+            }
+            bloques.add(new long[]{inicio, fin});
+            inicio = fin;
+        }
+        return bloques;
+    }
+
+    private static boolean terminaEnLinea(FileChannel canal, long posicion, ByteBuffer lectura) throws IOException {
+        lectura.clear();
+        canal.read(lectura, posicion - 1);
+        return lectura.get(0) == '\n';
+    }
+
+    private static List<Cuenta> leerBloque(FileChannel canal, long inicio, long fin) {
+        MappedByteBuffer bloque;
+        try {
+            bloque = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fin - inicio);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<Cuenta> cuentas = new ArrayList<>();
+        byte[] persona = new byte[256];
+        while (bloque.hasRemaining()) {
+            int inicioLinea = bloque.position();
+            int largo = 0;
+            byte b = bloque.get();
+            while (b != ',') {
+                if (b == '\n') {
+                    if (largo == 0) {
+                        break;
+                    }
+                    throw formatoInvalido(inicio + inicioLinea);
+                }
+                if (largo == persona.length) {
+                    persona = Arrays.copyOf(persona, largo * 2);
+                }
+                persona[largo++] = b;
+                if (!bloque.hasRemaining()) {
+                    throw formatoInvalido(inicio + inicioLinea);
+                }
+                b = bloque.get();
+            }
+            if (b == '\n') {
+                // linea vacia
+                continue;
+            }
+            BigDecimal saldo = leerMonto(bloque, inicio + inicioLinea);
+            cuentas.add(new Cuenta(new String(persona, 0, largo, StandardCharsets.UTF_8), saldo));
+        }
+        return cuentas;
+    }
+
+    // lee digitos con un punto decimal opcional hasta el fin de linea, acumulando en un long sin escala
+    private static BigDecimal leerMonto(ByteBuffer bloque, long posicionLinea) {
+        long sinEscala = 0;
+        int escala = -1;
+        boolean negativo = false;
+        boolean hayDigitos = false;
+        while (bloque.hasRemaining()) {
+            byte b = bloque.get();
+            if (b == '\n') {
+                break;
+            } else if (b == '\r') {
+                continue;
+            } else if (b == '-' && !hayDigitos && !negativo) {
+                negativo = true;
+            } else if (b == '.' && escala < 0) {
+                escala = 0;
+            } else if (b >= '0' && b <= '9') {
+                sinEscala = Math.addExact(Math.multiplyExact(sinEscala, 10), b - '0');
+                hayDigitos = true;
+                if (escala >= 0) {
+                    escala++;
+                }
+            } else {
+                throw formatoInvalido(posicionLinea);
+            }
+        }
+        if (!hayDigitos) {
+            throw formatoInvalido(posicionLinea);
+        }
+        return BigDecimal.valueOf(negativo ? -sinEscala : sinEscala, Math.max(escala, 0));
+    }
+
+    private static IllegalArgumentException formatoInvalido(long posicion) {
+        return new IllegalArgumentException("Linea con formato invalido en el byte " + posicion + ", se esperaba persona,saldo");
+    }
+}
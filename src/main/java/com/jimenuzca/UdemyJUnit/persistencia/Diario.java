@@ -0,0 +1,394 @@
+package com.jimenuzca.UdemyJUnit.persistencia;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.Moneda;
+import com.jimenuzca.UdemyJUnit.models.ObservadorMovimientos;
+import com.jimenuzca.UdemyJUnit.models.TipoMovimiento;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Diario de movimientos: guarda cada debito y credito en un archivo binario de solo agregado, para poder
+ * reconstruir los saldos despues de una caida.
+ * Cada movimiento ocupa un registro de TAMANIO_REGISTRO bytes: tipo, escala, id de la cuenta y monto sin escala.
+ * Se anotan tambien el alta de cada cuenta (persona, moneda, saldo inicial y banco) y hasta que dia esta devengada
+ * cada cuenta, asi un devengamiento retomado despues de recuperar el banco no cobra dos veces.
+ * Lo que no entra en un registro (el alta, o un monto que no entra en un long) sigue en registros de extension; el
+ * encabezado dice cuantos son. Asi anotar un movimiento nunca falla, porque el observador se llama cuando el saldo
+ * ya cambio.
+ * Los registros se acumulan en un buffer y un hilo de fondo los escribe y hace el fsync (force) cada cierto
+ * intervalo, todos juntos (group commit). Asi un movimiento no espera un fsync propio; a cambio, si el proceso se
+ * cae se pueden perder los movimientos del ultimo intervalo. Quien necesite durabilidad inmediata llama a sincronizar().
+ * El debito y el credito de una transferencia son dos registros independientes: si el archivo queda cortado entre
+ * los dos, al reproducirlo aparece el debito sin su credito.
+ * Para escribir se intercambia el buffer por otro vacio y el write y el force se hacen fuera del monitor, asi los
+ * movimientos no esperan al disco; si el buffer se llena antes de sincronizar crece.
+ * Para que el diario reciba los movimientos y las altas se registra en el banco con Banco.addObservador.
+ */
+public class Diario implements ObservadorMovimientos, Closeable {
+    public static final int TAMANIO_REGISTRO = 24;
+    private static final byte DEBITO = 1;
+    private static final byte CREDITO = 2;
+    private static final byte APERTURA = 3;
+    // la cuenta quedo devengada hasta el dia que va en el lugar del monto (dias desde 1970)
+    private static final byte DEVENGADO = 4;
+    // marca del encabezado: el monto sin escala esta en la extension y no en el registro
+    private static final byte MONTO_GRANDE = 1;
+    private static final int MAXIMO_EXTENSION = 0xFFFF;
+
+    private final FileChannel canal;
+    // se llenan con el monitor del diario tomado
+    private ByteBuffer buffer;
+    // la escritura al archivo se serializa con este candado y no con el monitor: libre es el buffer vacio para el
+    // proximo intercambio y pendiente el que fallo al escribirse y hay que reintentar antes que cualquier otro
+    private final Object escritura = new Object();
+    private ByteBuffer libre;
+    private ByteBuffer pendiente;
+    private final ScheduledExecutorService sincronizador;
+    // cantidad de registros del archivo, incluidos los que todavia estan en el buffer
+    private long registros;
+
+    public Diario(Path archivo, long intervaloMillis) throws IOException {
+        this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.buffer = ByteBuffer.allocateDirect(TAMANIO_REGISTRO * 4096);
+        this.libre = ByteBuffer.allocateDirect(TAMANIO_REGISTRO * 4096);
+        // si el proceso se cayo a mitad de un registro (o de sus extensiones) lo descartamos, sino los siguientes
+        // quedarian corridos
+        long completos;
+        try (FileChannel lectura = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            completos = recorrer(lectura, 0, 0, null);
+        }
+        canal.truncate(completos);
+        this.registros = completos / TAMANIO_REGISTRO;
+        this.sincronizador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "diario-sincronizador");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        sincronizador.scheduleWithFixedDelay(this::sincronizarEnFondo, intervaloMillis, intervaloMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void movimiento(Cuenta cuenta, TipoMovimiento tipo, BigDecimal monto) {
+        byte codigo = tipo == TipoMovimiento.DEBITO ? DEBITO : CREDITO;
+        if (monto.unscaledValue().bitLength() > 63) {
+            ByteBuffer extension = ByteBuffer.allocate(largoMonto(monto));
+            escribirMonto(extension, monto);
+            anotar(codigo, MONTO_GRANDE, monto.scale(), cuenta.getId(), 0, extension);
+            return;
+        }
+        long sinEscala = monto.unscaledValue().longValue();
+        synchronized (this) {
+            asegurarLugar(TAMANIO_REGISTRO);
+            buffer.put(codigo)
+                    .put((byte) 0)
+                    .putShort((short) 0)
+                    .putInt(monto.scale())
+                    .putLong(cuenta.getId())
+                    .putLong(sinEscala);
+            registros++;
+        }
+    }
+
+    // se llama con el candado de la cuenta tomado, antes que cualquier movimiento de la cuenta en el banco
+    @Override
+    public void alta(Cuenta cuenta, BigDecimal saldo) {
+        Moneda moneda = cuenta.getMoneda();
+        String banco = cuenta.getBanco() == null ? null : cuenta.getBanco().getNombre();
+        boolean grande = saldo.unscaledValue().bitLength() > 63;
+        int largoMoneda = moneda == null ? largoTexto(null)
+                : largoTexto(moneda.getCodigo()) + 4 + largoTexto(moneda.getRedondeo().name());
+        ByteBuffer extension = ByteBuffer.allocate((grande ? largoMonto(saldo) : 0) + largoTexto(cuenta.getPersona())
+                + largoMoneda + largoTexto(banco));
+        if (grande) {
+            escribirMonto(extension, saldo);
+        }
+        escribirTexto(extension, cuenta.getPersona());
+        // igual que en Snapshot: codigo, escala y redondeo, o solo un texto null si no tiene moneda
+        if (moneda == null) {
+            escribirTexto(extension, null);
+        } else {
+            escribirTexto(extension, moneda.getCodigo());
+            extension.putInt(moneda.getEscala());
+            escribirTexto(extension, moneda.getRedondeo().name());
+        }
+        escribirTexto(extension, banco);
+        anotar(APERTURA, grande ? MONTO_GRANDE : 0, saldo.scale(), cuenta.getId(),
+                grande ? 0 : saldo.unscaledValue().longValue(), extension);
+    }
+
+    @Override
+    public void devengado(Cuenta cuenta, LocalDate fecha) {
+        synchronized (this) {
+            asegurarLugar(TAMANIO_REGISTRO);
+            buffer.put(DEVENGADO)
+                    .put((byte) 0)
+                    .putShort((short) 0)
+                    .putInt(0)
+                    .putLong(cuenta.getId())
+                    .putLong(fecha.toEpochDay());
+            registros++;
+        }
+    }
+
+    private void anotar(byte tipo, byte marcas, int escala, long id, long sinEscala, ByteBuffer extension) {
+        int cantidad = (extension.position() + TAMANIO_REGISTRO - 1) / TAMANIO_REGISTRO;
+        if (cantidad > MAXIMO_EXTENSION) {
+            // no llega a pasar con datos reales: serian mas de 1,5 MB para una sola cuenta
+            throw new IllegalArgumentException("El registro de la cuenta " + id + " es demasiado grande para el diario");
+        }
+        extension.flip();
+        synchronized (this) {
+            asegurarLugar((1 + cantidad) * TAMANIO_REGISTRO);
+            buffer.put(tipo)
+                    .put(marcas)
+                    .putShort((short) cantidad)
+                    .putInt(escala)
+                    .putLong(id)
+                    .putLong(sinEscala);
+            buffer.put(extension);
+            // completamos con ceros hasta el final del ultimo registro de extension
+            for (int relleno = cantidad * TAMANIO_REGISTRO - extension.limit(); relleno > 0; relleno--) {
+                buffer.put((byte) 0);
+            }
+            registros += 1 + cantidad;
+        }
+    }
+
+    // con el monitor tomado; nunca escribe en el archivo, si no hay lugar agranda el buffer
+    private void asegurarLugar(int largo) {
+        if (buffer.remaining() < largo) {
+            ByteBuffer mayor = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + largo));
+            buffer.flip();
+            mayor.put(buffer);
+            buffer = mayor;
+        }
+    }
+
+    // numero que va a tener el proximo registro. Leido con el candado de una cuenta tomado, todos los movimientos
+    // anteriores de esa cuenta tienen un numero menor y todos los siguientes uno mayor o igual
+    public synchronized long posicion() {
+        return registros;
+    }
+
+    // escribe lo pendiente y espera a que el sistema operativo lo pase a disco. Lo anotado mientras tanto queda en el
+    // otro buffer, sin esperar
+    public void sincronizar() {
+        synchronized (escritura) {
+            boolean reintento = pendiente != null;
+            if (!reintento) {
+                synchronized (this) {
+                    pendiente = buffer;
+                    buffer = libre;
+                }
+                pendiente.flip();
+            }
+            try {
+                while (pendiente.hasRemaining()) {
+                    canal.write(pendiente);
+                }
+                canal.force(false);
+            } catch (IOException e) {
+                // lo que no se escribio queda en pendiente para el proximo intento
+                throw new UncheckedIOException(e);
+            }
+            pendiente.clear();
+            libre = pendiente;
+            pendiente = null;
+            if (reintento) {
+                // lo que se anoto despues del intento fallido todavia esta en el buffer
+                sincronizar();
+            }
+        }
+    }
+
+    private void sincronizarEnFondo() {
+        try {
+            sincronizar();
+        } catch (UncheckedIOException e) {
+            // se vuelve a intentar en el proximo intervalo
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sincronizador.shutdown();
+        sincronizar();
+        canal.close();
+    }
+
+    // vuelve a aplicar todos los movimientos del diario sobre las cuentas de los bancos, buscandolas por id.
+    // Las cuentas tienen que existir con el saldo que tenian al empezar el diario (por ej. cero, o el de un snapshot),
+    // salvo las que se dieron de alta despues: esas se crean con su id y saldo inicial en el banco del mismo nombre.
+    // Las altas de un banco que no esta entre los recibidos (el diario puede ser compartido) se saltean, y con ellas
+    // los movimientos de esas cuentas. Los movimientos se aplican sin validar fondos porque ya fueron validados cuando ocurrieron.
+    // Devuelve la cantidad de movimientos y altas aplicados
+    public static long reproducir(Path archivo, Banco... bancos) throws IOException {
+        return reproducir(archivo, 0, cuenta -> 0, bancos);
+    }
+
+    // igual que reproducir, pero cada cuenta solo aplica los registros a partir de desdePorCuenta (los anteriores ya
+    // estan incluidos en su saldo, por ej. porque vienen de un snapshot). Se empieza a leer desde desdeRegistro,
+    // que tiene que ser el menor de esos valores y el comienzo de un movimiento
+    public static long reproducir(Path archivo, long desdeRegistro, ToLongFunction<Cuenta> desdePorCuenta,
+                                  Banco... bancos) throws IOException {
+        long[] aplicados = new long[1];
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            recorrer(canal, desdeRegistro * TAMANIO_REGISTRO, desdeRegistro, (lectura, registro) -> {
+                byte tipo = lectura.get();
+                byte marcas = lectura.get();
+                lectura.getShort();
+                int escala = lectura.getInt();
+                long id = lectura.getLong();
+                long sinEscala = lectura.getLong();
+                BigDecimal monto = (marcas & MONTO_GRANDE) != 0 ? leerMonto(lectura, escala)
+                        : BigDecimal.valueOf(sinEscala, escala);
+                Optional<Cuenta> cuenta = buscar(id, bancos);
+                if (tipo == APERTURA) {
+                    // si la cuenta ya existe su saldo ya incluye el alta
+                    if (!cuenta.isPresent() && bancos.length > 0) {
+                        String persona = Snapshot.leerTexto(lectura);
+                        Moneda moneda = Snapshot.leerMoneda(lectura);
+                        String nombreBanco = Snapshot.leerTexto(lectura);
+                        Banco banco = bancoDeAlta(nombreBanco, bancos);
+                        if (banco != null) {
+                            banco.addCuenta(new Cuenta(id, persona, monto, moneda));
+                            aplicados[0]++;
+                        }
+                    }
+                } else if (!cuenta.isPresent() || registro < desdePorCuenta.applyAsLong(cuenta.get())) {
+                    return;
+                } else if (tipo == DEVENGADO) {
+                    cuenta.get().setDevengadoHasta(LocalDate.ofEpochDay(sinEscala));
+                } else {
+                    Cuenta cta = cuenta.get();
+                    cta.setSaldo(tipo == DEBITO ? cta.getSaldo().subtract(monto) : cta.getSaldo().add(monto));
+                    aplicados[0]++;
+                }
+            });
+        }
+        return aplicados[0];
+    }
+
+    // cantidad de registros completos que hay en el archivo (los de extension tambien cuentan)
+    public static long registros(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            return recorrer(canal, 0, 0, null) / TAMANIO_REGISTRO;
+        }
+    }
+
+    private interface LectorEntrada {
+        // la lectura esta posicionada al comienzo del encabezado y tiene la entrada entera, con sus extensiones
+        void leer(ByteBuffer lectura, long registro);
+    }
+
+    // lee las entradas completas desde el byte inicio (el registro numero registro) pasandoselas al lector, si hay.
+    // Devuelve el byte donde termina la ultima entrada completa; lo que sigue es una escritura cortada a la mitad
+    private static long recorrer(FileChannel canal, long inicio, long registro, LectorEntrada lector) throws IOException {
+        long fin = inicio;
+        long numero = registro;
+        canal.position(inicio);
+        ByteBuffer lectura = ByteBuffer.allocateDirect(TAMANIO_REGISTRO * 4096);
+        boolean finDeArchivo = false;
+        while (!finDeArchivo) {
+            finDeArchivo = canal.read(lectura) < 0;
+            lectura.flip();
+            while (lectura.remaining() >= TAMANIO_REGISTRO) {
+                int entrada = lectura.position();
+                int registrosEntrada = 1 + Short.toUnsignedInt(lectura.getShort(entrada + 2));
+                int largo = registrosEntrada * TAMANIO_REGISTRO;
+                if (lectura.remaining() < largo) {
+                    break;
+                }
+                if (lector != null) {
+                    lector.leer(lectura, numero);
+                }
+                lectura.position(entrada + largo);
+                fin += largo;
+                numero += registrosEntrada;
+            }
+            if (lectura.remaining() >= TAMANIO_REGISTRO) {
+                int largo = (1 + Short.toUnsignedInt(lectura.getShort(lectura.position() + 2))) * TAMANIO_REGISTRO;
+                if (largo > lectura.capacity()) {
+                    // una entrada mas grande que el buffer de lectura
+                    ByteBuffer mayor = ByteBuffer.allocateDirect(largo);
+                    mayor.put(lectura);
+                    lectura = mayor;
+                    continue;
+                }
+            }
+            lectura.compact();
+        }
+        return fin;
+    }
+
+    // null si ninguno de los bancos tiene ese nombre
+    private static Banco bancoDeAlta(String nombre, Banco... bancos) {
+        for (Banco banco : bancos) {
+            if (Objects.equals(nombre, banco.getNombre())) {
+                return banco;
+            }
+        }
+        return null;
+    }
+
+    private static Optional<Cuenta> buscar(long id, Banco... bancos) {
+        for (Banco banco : bancos) {
+            Optional<Cuenta> cuenta = banco.buscarPorId(id);
+            if (cuenta.isPresent()) {
+                return cuenta;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static int largoMonto(BigDecimal monto) {
+        return 4 + monto.unscaledValue().bitLength() / 8 + 1;
+    }
+
+    private static void escribirMonto(ByteBuffer extension, BigDecimal monto) {
+        byte[] sinEscala = monto.unscaledValue().toByteArray();
+        extension.putInt(sinEscala.length);
+        extension.put(sinEscala);
+    }
+
+    private static BigDecimal leerMonto(ByteBuffer lectura, int escala) {
+        byte[] sinEscala = new byte[lectura.getInt()];
+        lectura.get(sinEscala);
+        return new BigDecimal(new BigInteger(sinEscala), escala);
+    }
+
+    private static int largoTexto(String texto) {
+        return 4 + (texto == null ? 0 : texto.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    // mismo formato que Snapshot: largo (-1 si es null) y los bytes en UTF-8
+    private static void escribirTexto(ByteBuffer extension, String texto) {
+        if (texto == null) {
+            extension.putInt(-1);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        extension.putInt(bytes.length);
+        extension.put(bytes);
+    }
+}
@@ -0,0 +1,214 @@
+package com.jimenuzca.UdemyJUnit.persistencia;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.Moneda;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Foto binaria de un Banco (nombre y, por cada cuenta, id, persona, moneda, saldo y dia devengado) para no tener que
+ * reproducir todo el Diario al arrancar: se carga la ultima foto y se aplican solo los movimientos posteriores.
+ * La foto se saca sin frenar las transferencias: las cuentas se leen de a una, y junto con el saldo de cada cuenta
+ * se guarda la posicion del diario en ese momento. Al reproducir, cada cuenta aplica solo los registros desde su
+ * posicion, asi ningun movimiento se aplica dos veces ni se pierde aunque la foto haya tardado. La reproduccion empieza
+ * en la posicion del diario al comenzar la foto, asi tambien se recuperan las cuentas dadas de alta mientras tanto.
+ */
+public class Snapshot {
+    private static final int MAGICO = 0x43544153;
+    private static final int VERSION = 4;
+    private static final long SIN_DEVENGAR = Long.MIN_VALUE;
+
+    private final Banco banco;
+    private final Map<Long, Long> posiciones;
+    private final long posicionMinima;
+
+    private Snapshot(Banco banco, Map<Long, Long> posiciones, long posicionMinima) {
+        this.banco = banco;
+        this.posiciones = posiciones;
+        this.posicionMinima = posicionMinima;
+    }
+
+    public Banco getBanco() {
+        return banco;
+    }
+
+    // aplica sobre el banco cargado los movimientos del diario posteriores a la foto
+    public long reproducir(Path diario) throws IOException {
+        return Diario.reproducir(diario, posicionMinima,
+                cuenta -> posiciones.getOrDefault(cuenta.getId(), 0L), banco);
+    }
+
+    // se escribe primero en un archivo temporal y despues se renombra, asi nunca queda una foto a medio escribir.
+    // Antes de renombrar se pasan a disco el diario (la foto no puede contar movimientos que el diario perderia en una
+    // caida) y el temporal (si no, el renombre podria llegar al disco antes que el contenido)
+    public static void escribir(Banco banco, Diario diario, Path archivo) throws IOException {
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        // lo anotado hasta aca se escribe ahora, asi la sincronizacion del final solo tiene lo de durante la foto
+        diario.sincronizar();
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal)))) {
+            salida.writeInt(MAGICO);
+            salida.writeInt(VERSION);
+            escribirTexto(salida, banco.getNombre());
+            salida.writeLong(diario.posicion());
+            banco.recorrerSaldos((cuenta, saldo) -> {
+                try {
+                    salida.writeBoolean(true);
+                    salida.writeLong(cuenta.getId());
+                    salida.writeLong(diario.posicion());
+                    escribirTexto(salida, cuenta.getPersona());
+                    escribirMoneda(salida, cuenta.getMoneda());
+                    salida.writeInt(saldo.scale());
+                    byte[] sinEscala = saldo.unscaledValue().toByteArray();
+                    salida.writeInt(sinEscala.length);
+                    salida.write(sinEscala);
+                    LocalDate devengado = cuenta.getDevengadoHasta();
+                    salida.writeLong(devengado == null ? SIN_DEVENGAR : devengado.toEpochDay());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            salida.writeBoolean(false);
+            salida.flush();
+            canal.force(true);
+            diario.sincronizar();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // saca una foto cada cierto periodo en el executor, sin frenar a los hilos que hacen transferencias. Una foto
+    // que falla no corta las siguientes (si la excepcion llegara al executor cancelaria la tarea): se cuenta en
+    // getFotosFallidas y queda en getUltimoError de la programacion devuelta
+    public static Programacion programar(ScheduledExecutorService executor, Banco banco, Diario diario,
+                                         Path archivo, long periodo, TimeUnit unidad) {
+        Programacion programacion = new Programacion();
+        programacion.tarea = executor.scheduleWithFixedDelay(() -> {
+            try {
+                escribir(banco, diario, archivo);
+            } catch (IOException | RuntimeException e) {
+                programacion.ultimoError = e;
+                programacion.fotosFallidas.increment();
+            }
+        }, periodo, periodo, unidad);
+        return programacion;
+    }
+
+    public static class Programacion {
+        private final LongAdder fotosFallidas = new LongAdder();
+        private volatile Exception ultimoError;
+        private volatile ScheduledFuture<?> tarea;
+
+        private Programacion() {
+        }
+
+        public long getFotosFallidas() {
+            return fotosFallidas.sum();
+        }
+
+        // null si ninguna foto programada fallo
+        public Exception getUltimoError() {
+            return ultimoError;
+        }
+
+        public void cancelar() {
+            tarea.cancel(false);
+        }
+    }
+
+    // lee la foto mapeando el archivo en memoria y arma un Banco nuevo con las cuentas y sus ids originales
+    public static Snapshot cargar(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            MappedByteBuffer lectura = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (lectura.getInt() != MAGICO || lectura.getInt() != VERSION) {
+                throw new IOException("El archivo " + archivo + " no es un snapshot valido");
+            }
+            Banco banco = new Banco();
+            banco.setNombre(leerTexto(lectura));
+            long posicionMinima = lectura.getLong();
+            Map<Long, Long> posiciones = new HashMap<>();
+            while (lectura.get() != 0) {
+                long id = lectura.getLong();
+                long posicion = lectura.getLong();
+                String persona = leerTexto(lectura);
+                Moneda moneda = leerMoneda(lectura);
+                int escala = lectura.getInt();
+                byte[] sinEscala = new byte[lectura.getInt()];
+                lectura.get(sinEscala);
+                Cuenta cuenta = new Cuenta(id, persona, new BigDecimal(new BigInteger(sinEscala), escala), moneda);
+                long devengado = lectura.getLong();
+                if (devengado != SIN_DEVENGAR) {
+                    cuenta.setDevengadoHasta(LocalDate.ofEpochDay(devengado));
+                }
+                banco.addCuenta(cuenta);
+                posiciones.put(id, posicion);
+            }
+            return new Snapshot(banco, posiciones, posicionMinima);
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        if (texto == null) {
+            salida.writeInt(-1);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        salida.writeInt(bytes.length);
+        salida.write(bytes);
+    }
+
+    // codigo, escala y redondeo, asi tambien se recuperan monedas que no son ISO
+    private static void escribirMoneda(DataOutputStream salida, Moneda moneda) throws IOException {
+        if (moneda == null) {
+            escribirTexto(salida, null);
+            return;
+        }
+        escribirTexto(salida, moneda.getCodigo());
+        salida.writeInt(moneda.getEscala());
+        escribirTexto(salida, moneda.getRedondeo().name());
+    }
+
+    static Moneda leerMoneda(ByteBuffer lectura) {
+        String codigo = leerTexto(lectura);
+        if (codigo == null) {
+            return null;
+        }
+        int escala = lectura.getInt();
+        return Moneda.de(codigo, escala, RoundingMode.valueOf(leerTexto(lectura)));
+    }
+
+    static String leerTexto(ByteBuffer lectura) {
+        int largo = lectura.getInt();
+        if (largo < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[largo];
+        lectura.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,271 @@
+package com.jimenuzca.UdemyJUnit.servicios;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.ResultadoDebito;
+import com.jimenuzca.UdemyJUnit.models.Transferencia;
+
+import java.math.BigDecimal;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Camara compensadora para transferencias entre cuentas de bancos distintos (segun Cuenta.getBanco()).
+ * Cada banco adherido tiene una cuenta de liquidacion en el banco central de la camara.
+ * - encolar debita enseguida la cuenta de origen (si no alcanza el saldo se rechaza con DINERO_INSUFICIENTE) y deja
+ *   la transferencia pendiente hasta el proximo ciclo.
+ * - compensar calcula la posicion neta de cada banco en el ciclo (lo que reciben sus clientes menos lo que envian)
+ *   y solo liquida esos netos entre las cuentas de liquidacion, con a lo sumo un movimiento menos que la cantidad de
+ *   bancos, en vez de un movimiento por transferencia. Despues acredita cada cuenta de destino.
+ * Si la cuenta de liquidacion de un banco no alcanza para pagar su neto se rechazan las transferencias que envio en
+ * ese ciclo (se le devuelve el dinero a cada cliente) y se vuelven a calcular los netos.
+ * Las cuentas de liquidacion solo deberian recibir depositos por fuera de la camara, nunca debitos. Si igual un
+ * movimiento de la liquidacion se rechaza (porque la cuenta se debito despues de calcular los netos) se revierten
+ * los que ya se aplicaron, se rechazan los envios de ese banco y se vuelve a liquidar; ningun destino se acredita sin
+ * que su banco haya cobrado. Si un ciclo falla con una excepcion, las transferencias que no llegaron a acreditarse
+ * terminan con esa excepcion (y si la liquidacion no se hizo se le devuelve el dinero a cada cliente).
+ * Los ciclos se hacen de a uno, pero encolar no espera a que termine el ciclo en curso: compensar toma las
+ * pendientes de la cola al empezar y las nuevas quedan para el siguiente.
+ * No convierte monedas: las dos cuentas de una transferencia tienen que tener la misma.
+ */
+public class CamaraCompensacion {
+    private final Banco bancoCentral;
+    private final Map<Banco, Cuenta> liquidacion = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Pendiente> pendientes = new ConcurrentLinkedQueue<>();
+    // un ciclo de compensacion por vez; encolar no lo toma
+    private final Object candadoCiclo = new Object();
+    // ciclos programados que terminaron con una excepcion
+    private final LongAdder ciclosFallidos = new LongAdder();
+    private volatile RuntimeException ultimoError;
+
+    public CamaraCompensacion(Banco bancoCentral) {
+        this.bancoCentral = bancoCentral;
+    }
+
+    // la cuenta de liquidacion se agrega al banco central si no estaba
+    public synchronized void adherir(Banco banco, Cuenta cuentaLiquidacion) {
+        if (cuentaLiquidacion.getBanco() != bancoCentral) {
+            bancoCentral.addCuenta(cuentaLiquidacion);
+        }
+        liquidacion.put(banco, cuentaLiquidacion);
+    }
+
+    public CompletableFuture<ResultadoDebito> encolar(Cuenta origen, Cuenta destino, BigDecimal monto) {
+        Banco bancoOrigen = origen.getBanco();
+        Banco bancoDestino = destino.getBanco();
+        if (bancoOrigen == null || bancoDestino == null || bancoOrigen == bancoDestino) {
+            throw new IllegalArgumentException("La camara solo compensa transferencias entre cuentas de bancos distintos");
+        }
+        if (origen.getMoneda() != destino.getMoneda()) {
+            throw new IllegalArgumentException("La camara no convierte monedas: " + origen.getMoneda() + " y " + destino.getMoneda());
+        }
+        if (!liquidacion.containsKey(bancoOrigen) || !liquidacion.containsKey(bancoDestino)) {
+            throw new IllegalArgumentException("Los dos bancos tienen que estar adheridos a la camara");
+        }
+        if (origen.intentarDebito(monto) == ResultadoDebito.DINERO_INSUFICIENTE) {
+            return CompletableFuture.completedFuture(ResultadoDebito.DINERO_INSUFICIENTE);
+        }
+        Pendiente pendiente = new Pendiente(origen, destino, bancoOrigen, bancoDestino, monto);
+        pendientes.add(pendiente);
+        return pendiente.resultado;
+    }
+
+    // transferencias que esperan el proximo ciclo
+    public int getPendientes() {
+        return pendientes.size();
+    }
+
+    // un ciclo de compensacion; devuelve la posicion neta liquidada de cada banco (positiva si recibio)
+    public Map<Banco, BigDecimal> compensar() {
+        synchronized (candadoCiclo) {
+            List<Pendiente> ciclo = new ArrayList<>();
+            for (Pendiente pendiente = pendientes.poll(); pendiente != null; pendiente = pendientes.poll()) {
+                ciclo.add(pendiente);
+            }
+            boolean liquidado = false;
+            try {
+                Map<Banco, BigDecimal> netos = netosPagables(ciclo);
+                for (Banco fallido = liquidar(netos); fallido != null; fallido = liquidar(netos)) {
+                    rechazarEnvios(fallido, ciclo);
+                    netos = netosPagables(ciclo);
+                }
+                liquidado = true;
+                for (Pendiente pendiente : ciclo) {
+                    pendiente.destino.credito(pendiente.monto);
+                    pendiente.resultado.complete(ResultadoDebito.APROBADO);
+                }
+                return netos;
+            } catch (RuntimeException e) {
+                abortar(ciclo, liquidado, e);
+                throw e;
+            }
+        }
+    }
+
+    // corre un ciclo de compensacion cada cierto periodo en el executor. Un ciclo que falla no corta los siguientes
+    // (si la excepcion llegara al executor cancelaria la tarea y lo que se encole despues quedaria debitado sin
+    // liquidarse nunca): se cuenta en getCiclosFallidos y queda en getUltimoError
+    public ScheduledFuture<?> programar(ScheduledExecutorService executor, long periodo, TimeUnit unidad) {
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                compensar();
+            } catch (RuntimeException e) {
+                ultimoError = e;
+                ciclosFallidos.increment();
+            }
+        }, periodo, periodo, unidad);
+    }
+
+    public long getCiclosFallidos() {
+        return ciclosFallidos.sum();
+    }
+
+    // null si ningun ciclo programado fallo
+    public RuntimeException getUltimoError() {
+        return ultimoError;
+    }
+
+    // netos del ciclo despues de rechazar los envios de los bancos que no pueden pagar el suyo (rechazarlos cambia los
+    // netos de los demas, por eso se repite)
+    private Map<Banco, BigDecimal> netosPagables(List<Pendiente> ciclo) {
+        Map<Banco, BigDecimal> netos = calcularNetos(ciclo);
+        boolean rechazos = true;
+        while (rechazos) {
+            rechazos = false;
+            for (Map.Entry<Banco, BigDecimal> neto : netos.entrySet()) {
+                Cuenta cuenta = liquidacion.get(neto.getKey());
+                if (neto.getValue().signum() < 0 && cuenta.getSaldoDisponible().compareTo(neto.getValue().negate()) < 0) {
+                    rechazarEnvios(neto.getKey(), ciclo);
+                    rechazos = true;
+                }
+            }
+            if (rechazos) {
+                netos = calcularNetos(ciclo);
+            }
+        }
+        return netos;
+    }
+
+    // las transferencias que no terminaron: si la liquidacion no se hizo se devuelve el dinero a cada cliente
+    private static void abortar(List<Pendiente> ciclo, boolean liquidado, RuntimeException causa) {
+        for (Pendiente pendiente : ciclo) {
+            if (pendiente.resultado.isDone()) {
+                continue;
+            }
+            if (!liquidado) {
+                try {
+                    pendiente.origen.credito(pendiente.monto);
+                } catch (RuntimeException e) {
+                    causa.addSuppressed(e);
+                }
+            }
+            pendiente.resultado.completeExceptionally(causa);
+        }
+    }
+
+    private Map<Banco, BigDecimal> calcularNetos(List<Pendiente> ciclo) {
+        Map<Banco, BigDecimal> netos = new LinkedHashMap<>();
+        for (Pendiente pendiente : ciclo) {
+            netos.merge(pendiente.bancoOrigen, pendiente.monto.negate(), BigDecimal::add);
+            netos.merge(pendiente.bancoDestino, pendiente.monto, BigDecimal::add);
+        }
+        return netos;
+    }
+
+    private void rechazarEnvios(Banco banco, List<Pendiente> ciclo) {
+        for (Iterator<Pendiente> it = ciclo.iterator(); it.hasNext(); ) {
+            Pendiente pendiente = it.next();
+            if (pendiente.bancoOrigen == banco) {
+                pendiente.origen.credito(pendiente.monto);
+                pendiente.resultado.complete(ResultadoDebito.DINERO_INSUFICIENTE);
+                it.remove();
+            }
+        }
+    }
+
+    // empareja a los que pagan con los que cobran: cada movimiento salda por completo a uno de los dos, asi hay a lo
+    // sumo (bancos - 1) movimientos. Se aplican todos juntos con un lote del banco central. Si alguno se rechaza se
+    // revierten los aplicados y se devuelve el banco que no pudo pagar; null si se liquido todo
+    private Banco liquidar(Map<Banco, BigDecimal> netos) {
+        List<Map.Entry<Banco, BigDecimal>> pagan = new ArrayList<>();
+        List<Map.Entry<Banco, BigDecimal>> cobran = new ArrayList<>();
+        for (Map.Entry<Banco, BigDecimal> neto : netos.entrySet()) {
+            if (neto.getValue().signum() < 0) {
+                pagan.add(new AbstractMap.SimpleEntry<>(neto.getKey(), neto.getValue().negate()));
+            } else if (neto.getValue().signum() > 0) {
+                cobran.add(new AbstractMap.SimpleEntry<>(neto.getKey(), neto.getValue()));
+            }
+        }
+        List<Transferencia> movimientos = new ArrayList<>();
+        List<Banco> pagadores = new ArrayList<>();
+        int p = 0;
+        int c = 0;
+        while (p < pagan.size() && c < cobran.size()) {
+            Map.Entry<Banco, BigDecimal> paga = pagan.get(p);
+            Map.Entry<Banco, BigDecimal> cobra = cobran.get(c);
+            BigDecimal monto = paga.getValue().min(cobra.getValue());
+            movimientos.add(new Transferencia(liquidacion.get(paga.getKey()), liquidacion.get(cobra.getKey()), monto));
+            pagadores.add(paga.getKey());
+            paga.setValue(paga.getValue().subtract(monto));
+            cobra.setValue(cobra.getValue().subtract(monto));
+            if (paga.getValue().signum() == 0) {
+                p++;
+            }
+            if (cobra.getValue().signum() == 0) {
+                c++;
+            }
+        }
+        if (movimientos.isEmpty()) {
+            return null;
+        }
+        bancoCentral.transferirLote(movimientos);
+        Banco fallido = null;
+        List<Transferencia> reversiones = new ArrayList<>();
+        for (int i = 0; i < movimientos.size(); i++) {
+            Transferencia movimiento = movimientos.get(i);
+            if (!movimiento.isExitosa()) {
+                fallido = fallido == null ? pagadores.get(i) : fallido;
+            } else {
+                reversiones.add(new Transferencia(movimiento.getDestino(), movimiento.getOrigen(), movimiento.getMonto()));
+            }
+        }
+        if (fallido == null) {
+            return null;
+        }
+        if (!reversiones.isEmpty()) {
+            bancoCentral.transferirLote(reversiones);
+            if (!reversiones.stream().allMatch(Transferencia::isExitosa)) {
+                throw new IllegalStateException("No se pudo revertir la liquidacion: se debito una cuenta de liquidacion");
+            }
+        }
+        return fallido;
+    }
+
+    private static class Pendiente {
+        final Cuenta origen;
+        final Cuenta destino;
+        final Banco bancoOrigen;
+        final Banco bancoDestino;
+        final BigDecimal monto;
+        final CompletableFuture<ResultadoDebito> resultado = new CompletableFuture<>();
+
+        Pendiente(Cuenta origen, Cuenta destino, Banco bancoOrigen, Banco bancoDestino, BigDecimal monto) {
+            this.origen = origen;
+            this.destino = destino;
+            this.bancoOrigen = bancoOrigen;
+            this.bancoDestino = bancoDestino;
+            this.monto = monto;
+        }
+    }
+}
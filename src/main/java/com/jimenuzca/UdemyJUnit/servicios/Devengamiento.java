@@ -0,0 +1,256 @@
+package com.jimenuzca.UdemyJUnit.servicios;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Devengamiento diario de intereses y comisiones sobre todas las cuentas de un Banco (el cierre del dia).
+ * Las cuentas se ordenan por id y se parten en bloques que se procesan en paralelo (stream paralelo, que usa el
+ * ForkJoinPool comun). Cada cuenta: saldo * tasa diaria de su tramo - comision, redondeado al par a la escala de su
+ * saldo. La cuenta se calcula con long y se crea un solo BigDecimal, el del saldo nuevo (si el monto no entra en un
+ * long se calcula con BigDecimal). Nunca lanza excepciones por cuenta: si la comision supera lo disponible se cobra
+ * hasta dejar el saldo igual a lo reservado.
+ * Avance: getProcesadas() y getTotal() se pueden leer desde otro hilo mientras corre, y setObservadorAvance recibe
+ * (procesadas, total) al terminar cada bloque.
+ * Cada cuenta guarda el dia hasta el que esta devengada (Cuenta.devengar cambia el saldo y la fecha juntos, y el
+ * Diario y Snapshot la guardan), asi una cuenta ya devengada ese dia se saltea y volver a ejecutar nunca cobra dos
+ * veces, aunque la corrida anterior se haya cortado a mitad de un bloque.
+ * Punto de control: si se indica un archivo, al terminar cada bloque se agrega el rango de ids que cubria, para que
+ * al retomar ni siquiera se recorran esas cuentas. El archivo empieza con el dia de la corrida: si es de otro dia se
+ * descarta. Si el banco se recupera de un Diario conviene sincronizarlo (antesDeCadaPunto) antes de marcar cada
+ * bloque.
+ */
+public class Devengamiento {
+    // el primer registro del punto de control: MARCA y el dia de la corrida (los ids de las cuentas son positivos)
+    private static final long MARCA = -1;
+    private final TablaTasas tabla;
+    private final int tamanioBloque;
+    private final LongAdder procesadas = new LongAdder();
+    private volatile long total;
+    private volatile BiConsumer<Long, Long> observadorAvance = (hechas, todas) -> { };
+    private volatile Runnable antesDeCadaPunto = () -> { };
+
+    public Devengamiento(TablaTasas tabla, int tamanioBloque) {
+        this.tabla = tabla;
+        this.tamanioBloque = tamanioBloque;
+    }
+
+    public void setObservadorAvance(BiConsumer<Long, Long> observadorAvance) {
+        this.observadorAvance = observadorAvance;
+    }
+
+    // por ej. diario::sincronizar, para que un bloque se marque terminado solo cuando sus movimientos ya estan en disco
+    public void setAntesDeCadaPunto(Runnable antesDeCadaPunto) {
+        this.antesDeCadaPunto = antesDeCadaPunto;
+    }
+
+    public long getProcesadas() {
+        return procesadas.sum();
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long ejecutar(Banco banco, LocalDate fecha) {
+        try {
+            return ejecutar(banco, fecha, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // devuelve la cantidad de cuentas devengadas en esta corrida (sin contar las que ya estaban devengadas ese dia ni
+    // las salteadas por el punto de control)
+    public long ejecutar(Banco banco, LocalDate fecha, Path puntoDeControl) throws IOException {
+        FileChannel canal = puntoDeControl == null ? null : FileChannel.open(puntoDeControl,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long[] terminados = canal == null ? new long[0] : abrirPuntos(canal, fecha);
+            List<Cuenta> cuentas = new ArrayList<>();
+            for (Cuenta cuenta : banco.copiaCuentas()) {
+                if (!terminada(terminados, cuenta.getId()) && !devengada(cuenta, fecha)) {
+                    cuentas.add(cuenta);
+                }
+            }
+            cuentas.sort(Comparator.comparingLong(Cuenta::getId));
+            procesadas.reset();
+            total = cuentas.size();
+
+            List<List<Cuenta>> bloques = new ArrayList<>();
+            for (int inicio = 0; inicio < cuentas.size(); inicio += tamanioBloque) {
+                bloques.add(cuentas.subList(inicio, Math.min(cuentas.size(), inicio + tamanioBloque)));
+            }
+            bloques.parallelStream().forEach(bloque -> {
+                for (Cuenta cuenta : bloque) {
+                    devengar(cuenta, fecha);
+                }
+                procesadas.add(bloque.size());
+                if (canal != null) {
+                    marcar(canal, bloque.get(0).getId(), bloque.get(bloque.size() - 1).getId());
+                }
+                observadorAvance.accept(procesadas.sum(), total);
+            });
+            return cuentas.size();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (canal != null) {
+                canal.close();
+            }
+        }
+    }
+
+    private static boolean devengada(Cuenta cuenta, LocalDate fecha) {
+        LocalDate hasta = cuenta.getDevengadoHasta();
+        return hasta != null && !hasta.isBefore(fecha);
+    }
+
+    private void devengar(Cuenta cuenta, LocalDate fecha) {
+        while (true) {
+            BigDecimal saldo = cuenta.getSaldo();
+            if (saldo == null || devengada(cuenta, fecha)) {
+                return;
+            }
+            BigDecimal nuevo = calcular(saldo);
+            BigDecimal reservado = cuenta.getReservado();
+            if (nuevo.compareTo(reservado) < 0) {
+                nuevo = reservado.compareTo(saldo) < 0 ? reservado : saldo;
+            }
+            if (cuenta.devengar(fecha, saldo, nuevo)) {
+                return;
+            }
+            // otro hilo cambio el saldo o lo reservado mientras calculabamos: se vuelve a calcular
+        }
+    }
+
+    BigDecimal calcular(BigDecimal saldo) {
+        long tasa = tabla.tasaDiaria(saldo);
+        int escala = saldo.scale();
+        if (escala >= 0 && escala <= TablaTasas.ESCALA_MAXIMA && saldo.signum() >= 0 && saldo.precision() <= 18
+                && tabla.comision(escala) != TablaTasas.NO_ENTRA) {
+            try {
+                long unidades = saldo.unscaledValue().longValue();
+                long nuevo = Math.subtractExact(Math.addExact(unidades, interes(unidades, tasa)), tabla.comision(escala));
+                return BigDecimal.valueOf(nuevo, escala);
+            } catch (ArithmeticException e) {
+                // no entra en un long, seguimos con BigDecimal
+            }
+        }
+        BigDecimal interes = saldo.multiply(BigDecimal.valueOf(tasa, TablaTasas.ESCALA_TASA))
+                .setScale(Math.max(escala, 0), RoundingMode.HALF_EVEN);
+        return saldo.add(interes).subtract(tabla.getComision()).setScale(Math.max(escala, 0), RoundingMode.HALF_EVEN);
+    }
+
+    // unidades * tasa / 10^9 redondeado al par, partiendo las unidades para que la multiplicacion no desborde.
+    // Se calcula sobre los valores absolutos, asi una tasa negativa redondea igual que BigDecimal
+    static long interes(long unidades, long tasa) {
+        if (unidades < 0 || tasa < 0) {
+            long absoluto = interes(unidades < 0 ? Math.negateExact(unidades) : unidades,
+                    tasa < 0 ? Math.negateExact(tasa) : tasa);
+            return (unidades < 0) != (tasa < 0) ? -absoluto : absoluto;
+        }
+        long alto = unidades / TablaTasas.UNO;
+        long bajo = unidades % TablaTasas.UNO;
+        long producto = Math.multiplyExact(bajo, tasa);
+        long entero = Math.addExact(Math.multiplyExact(alto, tasa), producto / TablaTasas.UNO);
+        long resto = producto % TablaTasas.UNO;
+        long mitad = TablaTasas.UNO / 2;
+        if (resto > mitad || (resto == mitad && (entero & 1) == 1)) {
+            entero++;
+        }
+        return entero;
+    }
+
+    private void marcar(FileChannel canal, long desde, long hasta) {
+        antesDeCadaPunto.run();
+        ByteBuffer registro = ByteBuffer.allocate(16).putLong(desde).putLong(hasta);
+        registro.flip();
+        synchronized (canal) {
+            try {
+                while (registro.hasRemaining()) {
+                    canal.write(registro);
+                }
+                canal.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // rangos [desde, hasta] de ids ya devengados ese dia, ordenados y unidos (los de una corrida retomada pueden
+    // contener a los de la anterior, porque sus bloques saltean las cuentas ya hechas). Si el archivo es de otro dia
+    // (o no tiene encabezado) se vacia y se empieza uno nuevo
+    private static long[] abrirPuntos(FileChannel canal, LocalDate fecha) throws IOException {
+        ByteBuffer lectura = ByteBuffer.allocate((int) canal.size());
+        while (lectura.hasRemaining() && canal.read(lectura, lectura.position()) >= 0) {
+            // leemos el archivo entero
+        }
+        lectura.flip();
+        if (lectura.remaining() < 16 || lectura.getLong() != MARCA || lectura.getLong() != fecha.toEpochDay()) {
+            canal.truncate(0);
+            ByteBuffer encabezado = ByteBuffer.allocate(16).putLong(MARCA).putLong(fecha.toEpochDay());
+            encabezado.flip();
+            while (encabezado.hasRemaining()) {
+                canal.write(encabezado, 16 - encabezado.remaining());
+            }
+            canal.force(false);
+            canal.position(16);
+            return new long[0];
+        }
+        // un registro a medio escribir al final se descarta (ese bloque se vuelve a recorrer), sino los siguientes
+        // quedarian corridos
+        long completos = canal.size() / 16 * 16;
+        canal.truncate(completos);
+        canal.position(completos);
+        long[][] rangos = new long[(int) (completos / 16) - 1][];
+        for (int i = 0; i < rangos.length; i++) {
+            rangos[i] = new long[]{lectura.getLong(), lectura.getLong()};
+        }
+        Arrays.sort(rangos, Comparator.comparingLong(rango -> rango[0]));
+        long[] unidos = new long[rangos.length * 2];
+        int cantidad = 0;
+        for (long[] rango : rangos) {
+            if (cantidad > 0 && rango[0] <= unidos[2 * cantidad - 1] + 1) {
+                unidos[2 * cantidad - 1] = Math.max(unidos[2 * cantidad - 1], rango[1]);
+            } else {
+                unidos[2 * cantidad] = rango[0];
+                unidos[2 * cantidad + 1] = rango[1];
+                cantidad++;
+            }
+        }
+        return Arrays.copyOf(unidos, cantidad * 2);
+    }
+
+    private static boolean terminada(long[] rangos, long id) {
+        int bajo = 0;
+        int alto = rangos.length / 2 - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (id < rangos[2 * medio]) {
+                alto = medio - 1;
+            } else if (id > rangos[2 * medio + 1]) {
+                bajo = medio + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,487 @@
+package com.jimenuzca.UdemyJUnit.servicios;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.ResultadoDebito;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Motor de alto rendimiento para un Banco: las cuentas se reparten (por id) entre N particiones y cada particion
+ * tiene un unico hilo que es el unico que toca sus saldos, asi no hacen falta candados (un escritor por particion,
+ * al estilo LMAX). Los saldos se guardan como long en unidades minimas, como en CuentaFija.
+ * Las operaciones se piden con mensajes a la cola de la particion y devuelven un CompletableFuture.
+ * Una transferencia entre particiones distintas se hace en dos fases: la particion de origen reserva (descuenta) el
+ * monto si alcanza el saldo y despues le pide a la de destino que lo acredite. Mientras tanto el dinero esta
+ * "en viaje" y no aparece en ninguna de las dos cuentas.
+ * Las reglas son las de Cuenta: un debito que dejaria el saldo negativo se rechaza (DINERO_INSUFICIENTE).
+ * Mientras el motor esta andando las cuentas del Banco no se deben modificar por fuera; volcar() copia los saldos
+ * del motor a las cuentas, sin ninguna transferencia a medias.
+ * close() termina de acreditar los montos en viaje antes de detener las particiones; los pedidos que no se llegaron
+ * a atender y los que llegan despues terminan con IllegalStateException.
+ */
+public class MotorParticionado implements AutoCloseable {
+    private static final long ESPERA_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final int escala;
+    private final Particion[] particiones;
+    // cada volcado empieza cuando termino el anterior
+    private CompletableFuture<Void> ultimoVolcado = CompletableFuture.completedFuture(null);
+    private volatile boolean cerrado;
+    // particiones que ya recibieron el pedido de detenerse
+    private final AtomicInteger avisadas = new AtomicInteger();
+
+    public MotorParticionado(Banco banco, int cantidadParticiones, int escala, int capacidadCola) {
+        this.escala = escala;
+        this.particiones = new Particion[cantidadParticiones];
+        for (int i = 0; i < cantidadParticiones; i++) {
+            particiones[i] = new Particion(i, capacidadCola);
+        }
+        for (Cuenta cuenta : banco.copiaCuentas()) {
+            particionDe(cuenta.getId()).agregar(cuenta, aUnidades(cuenta.getSaldo()));
+        }
+        for (Particion particion : particiones) {
+            particion.hilo.start();
+        }
+    }
+
+    public CompletableFuture<ResultadoDebito> debito(long cuenta, BigDecimal monto) {
+        return enviar(particionDe(cuenta), new Mensaje(Tipo.DEBITO, cuenta, 0, aUnidades(monto)));
+    }
+
+    public CompletableFuture<ResultadoDebito> credito(long cuenta, BigDecimal monto) {
+        return enviar(particionDe(cuenta), new Mensaje(Tipo.CREDITO, cuenta, 0, aUnidades(monto)));
+    }
+
+    public CompletableFuture<ResultadoDebito> transferir(long origen, long destino, BigDecimal monto) {
+        return enviar(particionDe(origen), new Mensaje(Tipo.TRANSFERIR, origen, destino, aUnidades(monto)));
+    }
+
+    public CompletableFuture<BigDecimal> saldo(long cuenta) {
+        Mensaje mensaje = new Mensaje(Tipo.SALDO, cuenta, 0, 0);
+        return enviar(particionDe(cuenta), mensaje).thenApply(r -> BigDecimal.valueOf(mensaje.monto, escala));
+    }
+
+    // copia los saldos del motor a las cuentas del Banco; cada particion copia las suyas desde su propio hilo.
+    // Primero todas dejan de atender pedidos de afuera (los que llegan esperan, en orden) y terminan de acreditar los
+    // montos en viaje entre particiones; recien entonces copian y siguen con lo que esperaba. Si no, una particion
+    // podria copiar antes de recibir un credito cuyo debito ya estaba en la copia de otra
+    public synchronized CompletableFuture<Void> volcar() {
+        if (cerrado) {
+            CompletableFuture<Void> rechazado = new CompletableFuture<>();
+            rechazado.completeExceptionally(motorCerrado());
+            return rechazado;
+        }
+        ultimoVolcado = ultimoVolcado.handle((v, e) -> null).thenCompose(v -> {
+            Volcado volcado = new Volcado(particiones.length);
+            for (Particion particion : particiones) {
+                Mensaje pausar = new Mensaje(Tipo.PAUSAR, 0, 0, 0);
+                pausar.volcado = volcado;
+                particion.cola.add(pausar);
+                // el motor se pudo cerrar mientras esperaba el volcado anterior
+                if (particion.detenida) {
+                    particion.rechazarPendientes();
+                }
+            }
+            return volcado.terminado;
+        });
+        return ultimoVolcado;
+    }
+
+    // cada particion deja de atender pedidos de afuera y sigue con los mensajes entre particiones hasta que todas
+    // recibieron el aviso y no queda nada en viaje; recien entonces termina
+    @Override
+    public synchronized void close() {
+        if (!cerrado) {
+            cerrado = true;
+            for (Particion particion : particiones) {
+                particion.cola.add(new Mensaje(Tipo.DETENER, 0, 0, 0));
+            }
+        }
+        for (Particion particion : particiones) {
+            try {
+                particion.hilo.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private long aUnidades(BigDecimal monto) {
+        return monto.setScale(escala, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    private Particion particionDe(long cuenta) {
+        long h = cuenta * 0x9E3779B97F4A7C15L;
+        return particiones[(int) Math.floorMod(h ^ (h >>> 32), (long) particiones.length)];
+    }
+
+    // montos que una particion mando a otra y todavia no se acreditaron. Se leen primero los recibidos: cada envio
+    // ocurre antes de recibir el mensaje que lo causo, asi que si da cero no queda nada en viaje
+    private long enViaje() {
+        long recibidos = 0;
+        for (Particion particion : particiones) {
+            recibidos += particion.recibidos;
+        }
+        long enviados = 0;
+        for (Particion particion : particiones) {
+            enviados += particion.enviados;
+        }
+        return enviados - recibidos;
+    }
+
+    private static IllegalStateException motorCerrado() {
+        return new IllegalStateException("El motor esta cerrado");
+    }
+
+    // los pedidos de afuera esperan lugar en la cola (backpressure); los mensajes entre particiones no, porque dos
+    // particiones esperandose una a la otra quedarian bloqueadas para siempre
+    private CompletableFuture<ResultadoDebito> enviar(Particion particion, Mensaje mensaje) {
+        if (cerrado) {
+            mensaje.resultado.completeExceptionally(motorCerrado());
+            return mensaje.resultado;
+        }
+        try {
+            particion.capacidad.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            mensaje.resultado.completeExceptionally(e);
+            return mensaje.resultado;
+        }
+        mensaje.externo = true;
+        particion.cola.add(mensaje);
+        // si la particion termino mientras tanto nadie mas va a leer la cola
+        if (particion.detenida) {
+            particion.rechazarPendientes();
+        }
+        return mensaje.resultado;
+    }
+
+    private enum Tipo {
+        DEBITO, CREDITO, TRANSFERIR, ACREDITAR_RESERVA, DEVOLVER_RESERVA, SALDO, PAUSAR, DETENER
+    }
+
+    private static class Mensaje {
+        final Tipo tipo;
+        final long cuenta;
+        final long contraparte;
+        long monto;
+        boolean externo;
+        Volcado volcado;
+        CompletableFuture<ResultadoDebito> resultado = new CompletableFuture<>();
+
+        Mensaje(Tipo tipo, long cuenta, long contraparte, long monto) {
+            this.tipo = tipo;
+            this.cuenta = cuenta;
+            this.contraparte = contraparte;
+            this.monto = monto;
+        }
+    }
+
+    // un volcado en curso, compartido por todas las particiones
+    private static class Volcado {
+        final CountDownLatch pausadas;
+        final CountDownLatch volcadas;
+        final CompletableFuture<Void> terminado = new CompletableFuture<>();
+
+        Volcado(int particiones) {
+            this.pausadas = new CountDownLatch(particiones);
+            this.volcadas = new CountDownLatch(particiones);
+        }
+    }
+
+    private class Particion implements Runnable {
+        final BlockingQueue<Mensaje> cola = new LinkedBlockingQueue<>();
+        final Semaphore capacidad;
+        final Thread hilo;
+        // posicion de cada cuenta en los arreglos; solo lo usa el hilo de la particion
+        final IndiceCuentas posiciones = new IndiceCuentas();
+        final List<Cuenta> cuentas = new ArrayList<>();
+        long[] saldos = new long[16];
+        // mensajes de reservas mandados a otras particiones y recibidos de ellas; cada uno lo escribe solo su hilo
+        volatile long enviados;
+        volatile long recibidos;
+        // mientras hay un volcado en curso los pedidos de afuera esperan aca
+        Volcado volcado;
+        boolean volcada;
+        final ArrayDeque<Mensaje> diferidos = new ArrayDeque<>();
+        // recibio DETENER y solo atiende mensajes entre particiones
+        boolean deteniendo;
+        volatile boolean detenida;
+
+        Particion(int numero, int capacidadCola) {
+            this.capacidad = new Semaphore(capacidadCola);
+            this.hilo = new Thread(this, "motor-particion-" + numero);
+            this.hilo.setDaemon(true);
+        }
+
+        void agregar(Cuenta cuenta, long saldo) {
+            if (cuentas.size() == saldos.length) {
+                saldos = Arrays.copyOf(saldos, saldos.length * 2);
+            }
+            posiciones.poner(cuenta.getId(), cuentas.size());
+            saldos[cuentas.size()] = saldo;
+            cuentas.add(cuenta);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Mensaje mensaje;
+                try {
+                    // durante un volcado o al detenerse no se espera indefinidamente: hay que ver si ya se puede
+                    // copiar o terminar
+                    mensaje = volcado == null && !deteniendo ? cola.take() : cola.poll(ESPERA_NANOS, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (mensaje != null && mensaje.tipo == Tipo.DETENER) {
+                    deteniendo = true;
+                    if (volcado != null) {
+                        volcado.terminado.completeExceptionally(
+                                new IllegalStateException("El motor se detuvo durante el volcado"));
+                        volcado = null;
+                        volcada = false;
+                        while (!diferidos.isEmpty()) {
+                            rechazar(diferidos.poll());
+                        }
+                    }
+                    avisadas.incrementAndGet();
+                } else if (mensaje != null && deteniendo && (mensaje.externo || mensaje.tipo == Tipo.PAUSAR)) {
+                    rechazar(mensaje);
+                } else if (mensaje != null && volcado != null && mensaje.externo) {
+                    diferidos.add(mensaje);
+                } else if (mensaje != null) {
+                    atender(mensaje);
+                }
+                if (deteniendo) {
+                    // una vez avisadas todas ninguna empieza transferencias nuevas, asi que lo que esta en viaje solo
+                    // puede bajar
+                    if (avisadas.get() == particiones.length && enViaje() == 0) {
+                        detenida = true;
+                        rechazarPendientes();
+                        return;
+                    }
+                } else if (volcado != null) {
+                    avanzarVolcado();
+                }
+            }
+        }
+
+        // desde cualquier hilo, cuando la particion ya termino
+        void rechazarPendientes() {
+            for (Mensaje mensaje = cola.poll(); mensaje != null; mensaje = cola.poll()) {
+                rechazar(mensaje);
+            }
+            // despierta a un enviar que esperaba lugar; al rechazar su mensaje devuelve el permiso y despierta al
+            // siguiente
+            capacidad.release();
+        }
+
+        private void rechazar(Mensaje mensaje) {
+            if (mensaje.externo) {
+                capacidad.release();
+            }
+            if (mensaje.tipo == Tipo.PAUSAR) {
+                mensaje.volcado.terminado.completeExceptionally(motorCerrado());
+            } else {
+                mensaje.resultado.completeExceptionally(motorCerrado());
+            }
+        }
+
+        private void atender(Mensaje mensaje) {
+            if (mensaje.externo) {
+                capacidad.release();
+            }
+            try {
+                procesar(mensaje);
+            } catch (RuntimeException e) {
+                mensaje.resultado.completeExceptionally(e);
+            } finally {
+                if (mensaje.tipo == Tipo.ACREDITAR_RESERVA || mensaje.tipo == Tipo.DEVOLVER_RESERVA) {
+                    recibidos++;
+                }
+            }
+        }
+
+        // copia cuando todas las particiones estan en pausa y no queda nada en viaje, y sigue con los pedidos
+        // diferidos cuando todas copiaron
+        private void avanzarVolcado() {
+            if (!volcada) {
+                if (volcado.pausadas.getCount() > 0 || enViaje() > 0) {
+                    return;
+                }
+                try {
+                    for (int i = 0; i < cuentas.size(); i++) {
+                        cuentas.get(i).setSaldo(BigDecimal.valueOf(saldos[i], escala));
+                    }
+                } catch (RuntimeException e) {
+                    volcado.terminado.completeExceptionally(e);
+                }
+                volcada = true;
+                volcado.volcadas.countDown();
+            }
+            if (volcado.volcadas.getCount() > 0) {
+                return;
+            }
+            volcado.terminado.complete(null);
+            volcado = null;
+            volcada = false;
+            while (!diferidos.isEmpty()) {
+                atender(diferidos.poll());
+            }
+        }
+
+        private void procesar(Mensaje mensaje) {
+            switch (mensaje.tipo) {
+                case DEBITO:
+                    mensaje.resultado.complete(debitar(posicion(mensaje.cuenta), mensaje.monto));
+                    break;
+                case CREDITO:
+                    acreditar(posicion(mensaje.cuenta), mensaje.monto);
+                    mensaje.resultado.complete(ResultadoDebito.APROBADO);
+                    break;
+                case TRANSFERIR:
+                    transferir(mensaje);
+                    break;
+                case ACREDITAR_RESERVA:
+                    acreditarReserva(mensaje);
+                    break;
+                case DEVOLVER_RESERVA:
+                    acreditar(posicion(mensaje.cuenta), mensaje.monto);
+                    break;
+                case SALDO:
+                    mensaje.monto = saldos[posicion(mensaje.cuenta)];
+                    mensaje.resultado.complete(ResultadoDebito.APROBADO);
+                    break;
+                case PAUSAR:
+                    volcado = mensaje.volcado;
+                    volcado.pausadas.countDown();
+                    break;
+                default:
+                    throw new IllegalStateException("Mensaje desconocido: " + mensaje.tipo);
+            }
+        }
+
+        private void transferir(Mensaje mensaje) {
+            Particion destino = particionDe(mensaje.contraparte);
+            if (destino == this) {
+                int posicionDestino = posicion(mensaje.contraparte);
+                ResultadoDebito resultado = debitar(posicion(mensaje.cuenta), mensaje.monto);
+                if (resultado == ResultadoDebito.APROBADO) {
+                    acreditar(posicionDestino, mensaje.monto);
+                }
+                mensaje.resultado.complete(resultado);
+                return;
+            }
+            // fase 1: reservamos en el origen. Fase 2: la particion de destino acredita y completa el resultado
+            ResultadoDebito reserva = debitar(posicion(mensaje.cuenta), mensaje.monto);
+            if (reserva != ResultadoDebito.APROBADO) {
+                mensaje.resultado.complete(reserva);
+                return;
+            }
+            Mensaje confirmar = new Mensaje(Tipo.ACREDITAR_RESERVA, mensaje.contraparte, mensaje.cuenta, mensaje.monto);
+            confirmar.resultado = mensaje.resultado;
+            enviados++;
+            destino.cola.add(confirmar);
+        }
+
+        private void acreditarReserva(Mensaje mensaje) {
+            try {
+                acreditar(posicion(mensaje.cuenta), mensaje.monto);
+                mensaje.resultado.complete(ResultadoDebito.APROBADO);
+            } catch (RuntimeException e) {
+                // el destino no existe o se desbordo: devolvemos la reserva al origen
+                enviados++;
+                particionDe(mensaje.contraparte).cola.add(
+                        new Mensaje(Tipo.DEVOLVER_RESERVA, mensaje.contraparte, mensaje.cuenta, mensaje.monto));
+                throw e;
+            }
+        }
+
+        private ResultadoDebito debitar(int posicion, long monto) {
+            long nuevoSaldo = Math.subtractExact(saldos[posicion], monto);
+            if (nuevoSaldo < 0) {
+                return ResultadoDebito.DINERO_INSUFICIENTE;
+            }
+            saldos[posicion] = nuevoSaldo;
+            return ResultadoDebito.APROBADO;
+        }
+
+        private void acreditar(int posicion, long monto) {
+            saldos[posicion] = Math.addExact(saldos[posicion], monto);
+        }
+
+        private int posicion(long cuenta) {
+            int posicion = posiciones.buscar(cuenta);
+            if (posicion < 0) {
+                throw new IllegalArgumentException("La cuenta " + cuenta + " no pertenece al banco");
+            }
+            return posicion;
+        }
+    }
+
+    // posicion de cada cuenta por id, con direccionamiento abierto sobre arreglos primitivos: buscar no crea objetos
+    // (un HashMap<Long, Integer> crea un Long por busqueda)
+    private static final class IndiceCuentas {
+        private long[] ids = new long[16];
+        // posicion + 1; cero es lugar libre
+        private int[] posiciones = new int[16];
+        private int cantidad;
+
+        void poner(long id, int posicion) {
+            if ((cantidad + 1) * 2 > ids.length) {
+                agrandar();
+            }
+            int lugar = lugar(id);
+            if (posiciones[lugar] == 0) {
+                cantidad++;
+            }
+            ids[lugar] = id;
+            posiciones[lugar] = posicion + 1;
+        }
+
+        // -1 si la cuenta no esta
+        int buscar(long id) {
+            return posiciones[lugar(id)] - 1;
+        }
+
+        // donde esta el id, o el lugar libre donde iria
+        private int lugar(long id) {
+            int mascara = ids.length - 1;
+            // otra mezcla que la de particionDe, sino los ids de una particion caerian todos en los mismos lugares
+            int lugar = (int) ((id * 0xC2B2AE3D27D4EB4FL) >>> 32) & mascara;
+            while (posiciones[lugar] != 0 && ids[lugar] != id) {
+                lugar = (lugar + 1) & mascara;
+            }
+            return lugar;
+        }
+
+        private void agrandar() {
+            long[] idsViejos = ids;
+            int[] posicionesViejas = posiciones;
+            ids = new long[idsViejos.length * 2];
+            posiciones = new int[idsViejos.length * 2];
+            for (int i = 0; i < idsViejos.length; i++) {
+                if (posicionesViejas[i] != 0) {
+                    int lugar = lugar(idsViejos[i]);
+                    ids[lugar] = idsViejos[i];
+                    posiciones[lugar] = posicionesViejas[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.jimenuzca.UdemyJUnit.servicios;
+
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.EstadoReserva;
+import com.jimenuzca.UdemyJUnit.models.Reserva;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vence las reservas que nadie capturo ni libero a tiempo, con una rueda de tiempo (timer wheel): un arreglo
+ * circular de ranuras, cada una con las reservas que vencen en ese tick. Un hilo avanza una ranura por tick y
+ * vence lo que encuentra, asi programar un vencimiento es agregar a una cola (O(1)) y no hay que recorrer todas las
+ * cuentas buscando reservas vencidas.
+ * Las reservas capturadas o liberadas antes no se sacan de la rueda: al llegar su tick simplemente se saltean.
+ * Un vencimiento mas lejano que una vuelta completa de la rueda (ranuras * tick) se vuelve a encolar en cada vuelta.
+ * La precision es de un tick: una reserva vence en el primer tick posterior a su duracion.
+ */
+public class RuedaVencimientos implements AutoCloseable {
+    private final long tickNanos;
+    private final Queue<Entrada>[] ranuras;
+    private final int mascara;
+    // ultimo tick procesado; solo lo modifica quien avanza la rueda
+    private volatile long tickActual;
+    private final ScheduledExecutorService reloj;
+
+    // ranuras se redondea a la potencia de dos siguiente
+    public RuedaVencimientos(long tick, TimeUnit unidad, int ranuras) {
+        this(tick, unidad, ranuras, true);
+    }
+
+    // sin hilo propio la rueda solo avanza llamando a avanzar(), para los tests
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    RuedaVencimientos(long tick, TimeUnit unidad, int ranuras, boolean automatica) {
+        if (unidad.toNanos(tick) <= 0) {
+            throw new IllegalArgumentException("El tick tiene que ser positivo: " + tick + " " + unidad);
+        }
+        this.tickNanos = unidad.toNanos(tick);
+        int tamanio = Integer.highestOneBit(Math.max(1, ranuras - 1)) << 1;
+        this.ranuras = new Queue[tamanio];
+        for (int i = 0; i < tamanio; i++) {
+            this.ranuras[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mascara = tamanio - 1;
+        if (automatica) {
+            this.reloj = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread hilo = new Thread(r, "rueda-vencimientos");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            reloj.scheduleAtFixedRate(this::avanzar, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        } else {
+            this.reloj = null;
+        }
+    }
+
+    // reserva en la cuenta y programa su vencimiento
+    public Reserva reservar(Cuenta cuenta, BigDecimal monto, long duracion, TimeUnit unidad) {
+        Reserva reserva = cuenta.reservar(monto);
+        programar(reserva, duracion, unidad);
+        return reserva;
+    }
+
+    public void programar(Reserva reserva, long duracion, TimeUnit unidad) {
+        long ticks = Math.max(1, (unidad.toNanos(duracion) + tickNanos - 1) / tickNanos);
+        long vence = tickActual + ticks;
+        ranuras[(int) (vence & mascara)].add(new Entrada(reserva, vence));
+        // si mientras tanto la rueda ya paso por esa ranura, la reserva ya vencio: la vencemos aca
+        if (vence <= tickActual) {
+            reserva.vencer();
+        }
+    }
+
+    // procesa el tick siguiente; devuelve cuantas reservas vencio
+    int avanzar() {
+        long tick = tickActual + 1;
+        tickActual = tick;
+        Queue<Entrada> ranura = ranuras[(int) (tick & mascara)];
+        List<Entrada> siguienteVuelta = new ArrayList<>();
+        int vencidas = 0;
+        for (Entrada entrada = ranura.poll(); entrada != null; entrada = ranura.poll()) {
+            if (entrada.reserva.getEstado() != EstadoReserva.ACTIVA) {
+                continue;
+            }
+            if (entrada.vence > tick) {
+                siguienteVuelta.add(entrada);
+            } else if (entrada.reserva.vencer()) {
+                vencidas++;
+            }
+        }
+        ranura.addAll(siguienteVuelta);
+        return vencidas;
+    }
+
+    @Override
+    public void close() {
+        if (reloj != null) {
+            reloj.shutdown();
+        }
+    }
+
+    private static class Entrada {
+        final Reserva reserva;
+        final long vence;
+
+        Entrada(Reserva reserva, long vence) {
+            this.reserva = reserva;
+            this.vence = vence;
+        }
+    }
+}
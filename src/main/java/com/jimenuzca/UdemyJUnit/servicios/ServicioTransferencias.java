@@ -0,0 +1,83 @@
+package com.jimenuzca.UdemyJUnit.servicios;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.ResultadoDebito;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Transferencias asincronas sobre un Banco: transferir devuelve enseguida un CompletableFuture con el resultado y
+ * la transferencia se ejecuta en el executor.
+ * - Las transferencias que comparten una cuenta se aplican en el orden en que se pidieron: cada una espera a la
+ *   anterior de sus dos cuentas. Las que no comparten cuentas no se esperan entre si.
+ * - Hay un limite de transferencias pendientes; si se llena, el future falla enseguida con
+ *   RejectedExecutionException para que quien llama afloje (backpressure) en lugar de acumular sin limite.
+ * Con crear(...) se usan hilos virtuales si la JVM los tiene (Java 21+) y si no un pool fijo de hilos.
+ */
+public class ServicioTransferencias implements AutoCloseable {
+    private final Banco banco;
+    private final ExecutorService executor;
+    private final Semaphore pendientes;
+    // ultima transferencia pedida de cada cuenta (por id); se quita cuando termina si no llego otra despues
+    private final Map<Long, CompletableFuture<?>> ultimas = new HashMap<>();
+
+    public ServicioTransferencias(Banco banco, ExecutorService executor, int maximoPendientes) {
+        this.banco = banco;
+        this.executor = executor;
+        this.pendientes = new Semaphore(maximoPendientes);
+    }
+
+    public static ServicioTransferencias crear(Banco banco, int maximoPendientes) {
+        return new ServicioTransferencias(banco, crearExecutor(), maximoPendientes);
+    }
+
+    // el proyecto compila con Java 8, por eso buscamos el executor de hilos virtuales por reflexion
+    static ExecutorService crearExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    public CompletableFuture<ResultadoDebito> transferir(Cuenta origen, Cuenta destino, BigDecimal monto) {
+        if (!pendientes.tryAcquire()) {
+            CompletableFuture<ResultadoDebito> rechazada = new CompletableFuture<>();
+            rechazada.completeExceptionally(new RejectedExecutionException("Demasiadas transferencias pendientes"));
+            return rechazada;
+        }
+        CompletableFuture<ResultadoDebito> transferencia;
+        synchronized (ultimas) {
+            CompletableFuture<?> anteriorOrigen = ultimas.getOrDefault(origen.getId(), CompletableFuture.completedFuture(null));
+            CompletableFuture<?> anteriorDestino = ultimas.getOrDefault(destino.getId(), CompletableFuture.completedFuture(null));
+            // si la anterior fallo igual seguimos, el error ya le llego a quien la pidio
+            transferencia = CompletableFuture.allOf(anteriorOrigen, anteriorDestino)
+                    .handle((r, e) -> null)
+                    .thenApplyAsync(r -> banco.intentarTransferir(origen, destino, monto), executor);
+            ultimas.put(origen.getId(), transferencia);
+            ultimas.put(destino.getId(), transferencia);
+        }
+        CompletableFuture<ResultadoDebito> actual = transferencia;
+        actual.whenComplete((r, e) -> {
+            pendientes.release();
+            synchronized (ultimas) {
+                ultimas.remove(origen.getId(), actual);
+                ultimas.remove(destino.getId(), actual);
+            }
+        });
+        return actual;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,77 @@
+package com.jimenuzca.UdemyJUnit.servicios;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Tasas para Devengamiento: una tasa anual por tramo de saldo (la del tramo se aplica sobre todo el saldo) y una
+ * comision fija por dia. Al agregar cada tramo se calcula una sola vez su tasa diaria, guardada como un long en
+ * milmillonesimas, y la comision se pasa a unidades minimas para cada escala de saldo; asi el calculo de cada
+ * cuenta se hace con long sin crear BigDecimal. Las escalas en las que la comision no entra en un long quedan
+ * marcadas con NO_ENTRA y esos saldos se calculan con BigDecimal.
+ * Se arma antes de ejecutar el devengamiento y despues no se modifica.
+ */
+public class TablaTasas {
+    static final int ESCALA_TASA = 9;
+    static final long UNO = 1_000_000_000L;
+    static final int ESCALA_MAXIMA = 18;
+    static final long NO_ENTRA = Long.MIN_VALUE;
+
+    private final int diasDelAnio;
+    private final long[] comisionPorEscala = new long[ESCALA_MAXIMA + 1];
+    private final BigDecimal comision;
+    private BigDecimal[] desde = new BigDecimal[0];
+    private long[] tasasDiarias = new long[0];
+
+    public TablaTasas(int diasDelAnio, BigDecimal comisionDiaria) {
+        this.diasDelAnio = diasDelAnio;
+        this.comision = comisionDiaria;
+        for (int escala = 0; escala <= ESCALA_MAXIMA; escala++) {
+            try {
+                comisionPorEscala[escala] = comisionDiaria.setScale(escala, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+            } catch (ArithmeticException e) {
+                comisionPorEscala[escala] = NO_ENTRA;
+            }
+        }
+    }
+
+    // los tramos se agregan de menor a mayor saldo; un saldo menor que el primer tramo no cobra intereses
+    public TablaTasas tramo(BigDecimal desdeSaldo, BigDecimal tasaAnual) {
+        if (desde.length > 0 && desdeSaldo.compareTo(desde[desde.length - 1]) <= 0) {
+            throw new IllegalArgumentException("Los tramos tienen que agregarse en orden creciente de saldo");
+        }
+        desde = Arrays.copyOf(desde, desde.length + 1);
+        desde[desde.length - 1] = desdeSaldo;
+        tasasDiarias = Arrays.copyOf(tasasDiarias, tasasDiarias.length + 1);
+        tasasDiarias[tasasDiarias.length - 1] = tasaAnual.divide(BigDecimal.valueOf(diasDelAnio), ESCALA_TASA, RoundingMode.HALF_EVEN)
+                .unscaledValue().longValueExact();
+        return this;
+    }
+
+    // tasa diaria en milmillonesimas del tramo que corresponde al saldo
+    long tasaDiaria(BigDecimal saldo) {
+        int bajo = 0;
+        int alto = desde.length - 1;
+        int tramo = -1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (desde[medio].compareTo(saldo) <= 0) {
+                tramo = medio;
+                bajo = medio + 1;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return tramo < 0 ? 0 : tasasDiarias[tramo];
+    }
+
+    BigDecimal getComision() {
+        return comision;
+    }
+
+    // comision en unidades minimas de un saldo con esa escala (0 a ESCALA_MAXIMA), o NO_ENTRA
+    long comision(int escala) {
+        return comisionPorEscala[escala];
+    }
+}
@@ -0,0 +1,108 @@
+package com.jimenuzca.UdemyJUnit.analitica;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlmacenColumnarTest {
+    Banco credicoop;
+    Banco nacion;
+
+    @BeforeEach
+    void initBancos() {
+        credicoop = new Banco();
+        credicoop.setNombre("Banco Credicoop");
+        credicoop.addCuenta(new Cuenta("Graciela", new BigDecimal("2500")));
+        credicoop.addCuenta(new Cuenta("Cecilia", new BigDecimal("1250.50")));
+        credicoop.addCuenta(new Cuenta("Andres", new BigDecimal("10")));
+
+        nacion = new Banco();
+        nacion.setNombre("Banco Nacion");
+        nacion.addCuenta(new Cuenta("Cecilia", new BigDecimal("2000")));
+        nacion.addCuenta(new Cuenta("Jose", new BigDecimal("0.25")));
+    }
+
+    @Test
+    void testTotalesIgualAlStream() {
+        AlmacenColumnar almacen = AlmacenColumnar.desde(2, credicoop, nacion);
+
+        BigDecimal esperado = credicoop.getCuentas().stream()
+                .map(Cuenta::getSaldo)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(5, almacen.cantidad());
+        assertEquals(0, esperado.compareTo(almacen.totalPorBanco().get(credicoop)));
+        assertEquals("5760.75", almacen.total().toPlainString());
+        assertEquals("2000.25", almacen.totalPorBanco().get(nacion).toPlainString());
+    }
+
+    @Test
+    void testContarMayoresA() {
+        AlmacenColumnar almacen = AlmacenColumnar.desde(2, credicoop, nacion);
+        assertEquals(3, almacen.contarMayoresA(new BigDecimal("1250")));
+        assertEquals(2, almacen.contarMayoresA(new BigDecimal("1250.50")));
+        assertEquals(2, almacen.contarMayoresA(new BigDecimal("1250.501")));
+        assertEquals(5, almacen.contarMayoresA(BigDecimal.ZERO));
+    }
+
+    @Test
+    void testMayoresTitulares() {
+        AlmacenColumnar almacen = AlmacenColumnar.desde(2, credicoop, nacion);
+        Map<String, BigDecimal> mayores = almacen.mayoresTitulares(2);
+
+        // Cecilia suma sus cuentas de los dos bancos
+        assertEquals(2, mayores.size());
+        assertEquals("Cecilia", new ArrayList<>(mayores.keySet()).get(0));
+        assertEquals("3250.50", mayores.get("Cecilia").toPlainString());
+        assertEquals("2500.00", mayores.get("Graciela").toPlainString());
+    }
+
+    @Test
+    void testSaldosConMasDecimalesQueLaEscala() {
+        nacion.addCuenta(new Cuenta("Marta", new BigDecimal("10.125")));
+
+        // sin modo de redondeo no se pierden decimales en silencio
+        assertThrows(ArithmeticException.class, () -> AlmacenColumnar.desde(2, nacion));
+        assertEquals("2010.38", AlmacenColumnar.desde(2, RoundingMode.UP, nacion).total().toPlainString());
+    }
+
+    @Test
+    void testTotalPorBancoSinNombreORepetido() {
+        Banco sinNombre = new Banco();
+        sinNombre.addCuenta(new Cuenta("Marta", new BigDecimal("100")));
+        Banco otroSinNombre = new Banco();
+        otroSinNombre.addCuenta(new Cuenta("Lucia", new BigDecimal("200")));
+        Banco otroNacion = new Banco();
+        otroNacion.setNombre("Banco Nacion");
+        otroNacion.addCuenta(new Cuenta("Pedro", new BigDecimal("300")));
+
+        Map<Banco, BigDecimal> totales = AlmacenColumnar.desde(2, nacion, sinNombre, otroSinNombre, otroNacion).totalPorBanco();
+        assertEquals(4, totales.size());
+        assertEquals("2000.25", totales.get(nacion).toPlainString());
+        assertEquals("100.00", totales.get(sinNombre).toPlainString());
+        assertEquals("200.00", totales.get(otroSinNombre).toPlainString());
+        assertEquals("300.00", totales.get(otroNacion).toPlainString());
+    }
+
+    @Test
+    void testMuchasCuentasRepartidasEntrePartes() {
+        Banco grande = new Banco();
+        grande.setNombre("Banco Grande");
+        for (int i = 0; i < 50_000; i++) {
+            grande.addCuenta(new Cuenta("Titular " + (i % 1000), BigDecimal.ONE));
+        }
+        AlmacenColumnar almacen = AlmacenColumnar.desde(0, grande);
+
+        assertEquals("50000", almacen.totalPorBanco().get(grande).toPlainString());
+        Map<String, BigDecimal> mayores = almacen.mayoresTitulares(3);
+        assertEquals(3, mayores.size());
+        mayores.values().forEach(total -> assertEquals("50", total.toPlainString()));
+    }
+}
@@ -0,0 +1,260 @@
+package com.jimenuzca.UdemyJUnit.eventos;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.TipoMovimiento;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CanalSaldosTest {
+
+    private Banco crearBanco(Cuenta... cuentas) {
+        Banco banco = new Banco();
+        banco.setNombre("Banco del estado");
+        for (Cuenta cuenta : cuentas) {
+            banco.addCuenta(cuenta);
+        }
+        return banco;
+    }
+
+    // los eventos se reutilizan, asi que el suscriptor se queda con una copia
+    private static class Registro implements SuscriptorSaldos {
+        final List<CambioSaldo> recibidos = new ArrayList<>();
+        final CountDownLatch habilitado;
+
+        Registro(CountDownLatch habilitado) {
+            this.habilitado = habilitado;
+        }
+
+        @Override
+        public void recibir(List<CambioSaldo> lote) {
+            try {
+                habilitado.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                for (CambioSaldo cambio : lote) {
+                    CambioSaldo copia = new CambioSaldo();
+                    copia.copiar(cambio);
+                    recibidos.add(copia);
+                }
+            }
+        }
+
+        synchronized int cantidad() {
+            return recibidos.size();
+        }
+
+        synchronized Map<Long, String> ultimoSaldo() {
+            Map<Long, String> ultimos = new HashMap<>();
+            for (CambioSaldo cambio : recibidos) {
+                ultimos.put(cambio.getCuentaId(), cambio.getSaldo().toPlainString());
+            }
+            return ultimos;
+        }
+    }
+
+    @Test
+    void testBloquearEntregaTodosLosCambiosEnOrden() {
+        Cuenta cuentaAndres = new Cuenta("Andres", new BigDecimal("1000"));
+        Cuenta cuentaJohn = new Cuenta("John Doe", new BigDecimal("1000"));
+        Banco banco = crearBanco(cuentaAndres, cuentaJohn);
+        CanalSaldos canal = new CanalSaldos(1024);
+        Registro registro = new Registro(new CountDownLatch(0));
+        Suscripcion suscripcion = canal.suscribir(registro, PoliticaContrapresion.BLOQUEAR, 8, 4);
+        banco.addObservador(canal);
+
+        for (int i = 0; i < 100; i++) {
+            banco.transferir(cuentaAndres, cuentaJohn, BigDecimal.ONE);
+        }
+        canal.close();
+
+        assertEquals(200, registro.recibidos.size());
+        assertEquals(200, suscripcion.getEntregados());
+        assertEquals(0, suscripcion.getDescartados());
+        BigDecimal esperado = new BigDecimal("1000");
+        for (CambioSaldo cambio : registro.recibidos) {
+            if (cambio.getCuentaId() == cuentaAndres.getId()) {
+                esperado = esperado.subtract(BigDecimal.ONE);
+                assertEquals(TipoMovimiento.DEBITO, cambio.getTipo());
+                assertEquals(esperado.toPlainString(), cambio.getSaldo().toPlainString());
+            }
+        }
+        assertEquals("900", registro.ultimoSaldo().get(cuentaAndres.getId()));
+        assertEquals("1100", registro.ultimoSaldo().get(cuentaJohn.getId()));
+    }
+
+    @Test
+    void testSuscriptorLentoConBloquearNoDemoraALosDemas() throws InterruptedException {
+        Cuenta cuentaAndres = new Cuenta("Andres", new BigDecimal("1000"));
+        Cuenta cuentaJohn = new Cuenta("John Doe", new BigDecimal("1000"));
+        Banco banco = crearBanco(cuentaAndres, cuentaJohn);
+        CanalSaldos canal = new CanalSaldos(1024);
+        CountDownLatch habilitado = new CountDownLatch(1);
+        Registro lento = new Registro(habilitado);
+        Registro rapido = new Registro(new CountDownLatch(0));
+        Suscripcion suscripcionLenta = canal.suscribir(lento, PoliticaContrapresion.BLOQUEAR, 2, 2);
+        canal.suscribir(rapido, PoliticaContrapresion.BLOQUEAR, 1024, 16);
+        banco.addObservador(canal);
+
+        for (int i = 0; i < 100; i++) {
+            banco.transferir(cuentaAndres, cuentaJohn, BigDecimal.ONE);
+        }
+        // el lento sigue trabado en su primer lote y el rapido igual recibe todo
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (rapido.cantidad() < 200 && System.nanoTime() < limite) {
+            Thread.sleep(1);
+        }
+        assertEquals(200, rapido.cantidad());
+        assertTrue(suscripcionLenta.getPendientes() > 0);
+        habilitado.countDown();
+        canal.close();
+
+        assertEquals(0, suscripcionLenta.getPendientes());
+        assertEquals(200, lento.cantidad());
+        BigDecimal esperado = new BigDecimal("1000");
+        for (CambioSaldo cambio : lento.recibidos) {
+            if (cambio.getCuentaId() == cuentaAndres.getId()) {
+                esperado = esperado.subtract(BigDecimal.ONE);
+                assertEquals(esperado.toPlainString(), cambio.getSaldo().toPlainString());
+            }
+        }
+    }
+
+    @Test
+    void testSuscriptorLentoConDescartarNoFrenaTransferencias() {
+        Cuenta cuentaAndres = new Cuenta("Andres", new BigDecimal("1000"));
+        Cuenta cuentaJohn = new Cuenta("John Doe", new BigDecimal("1000"));
+        Banco banco = crearBanco(cuentaAndres, cuentaJohn);
+        CanalSaldos canal = new CanalSaldos(1024);
+        CountDownLatch habilitado = new CountDownLatch(1);
+        Registro lento = new Registro(habilitado);
+        Suscripcion suscripcion = canal.suscribir(lento, PoliticaContrapresion.DESCARTAR, 4, 4);
+        banco.addObservador(canal);
+
+        // el suscriptor esta trabado en su primer lote y las transferencias igual terminan
+        for (int i = 0; i < 100; i++) {
+            banco.transferir(cuentaAndres, cuentaJohn, BigDecimal.ONE);
+        }
+        assertEquals("900", cuentaAndres.getSaldo().toPlainString());
+        habilitado.countDown();
+        canal.close();
+
+        assertTrue(suscripcion.getDescartados() > 0);
+        assertEquals(200, suscripcion.getEntregados() + suscripcion.getDescartados());
+        assertEquals(suscripcion.getEntregados(), lento.recibidos.size());
+    }
+
+    @Test
+    void testCoalescerEntregaElUltimoSaldoDeCadaCuenta() {
+        Cuenta cuentaAndres = new Cuenta("Andres", new BigDecimal("1000"));
+        Cuenta cuentaJohn = new Cuenta("John Doe", new BigDecimal("1000"));
+        Banco banco = crearBanco(cuentaAndres, cuentaJohn);
+        CanalSaldos canal = new CanalSaldos(1024);
+        CountDownLatch habilitado = new CountDownLatch(1);
+        Registro lento = new Registro(habilitado);
+        Suscripcion suscripcion = canal.suscribir(lento, PoliticaContrapresion.COALESCER, 2, 2);
+        banco.addObservador(canal);
+
+        for (int i = 0; i < 50; i++) {
+            banco.transferir(cuentaAndres, cuentaJohn, new BigDecimal("10"));
+        }
+        habilitado.countDown();
+        canal.close();
+
+        assertEquals(0, suscripcion.getDescartados());
+        assertTrue(suscripcion.getResumidos() > 0);
+        assertEquals(100, suscripcion.getEntregados() + suscripcion.getResumidos());
+        assertEquals("500", lento.ultimoSaldo().get(cuentaAndres.getId()));
+        assertEquals("1500", lento.ultimoSaldo().get(cuentaJohn.getId()));
+    }
+
+    @Test
+    void testBufferCentralLlenoCoalesceSinFrenarTransferencias() {
+        Cuenta cuentaAndres = new Cuenta("Andres", new BigDecimal("1000"));
+        Cuenta cuentaJohn = new Cuenta("John Doe", new BigDecimal("1000"));
+        Banco banco = crearBanco(cuentaAndres, cuentaJohn);
+        CanalSaldos canal = new CanalSaldos(2);
+        Registro registro = new Registro(new CountDownLatch(0));
+        canal.suscribir(registro, PoliticaContrapresion.BLOQUEAR, 1024, 16);
+        banco.addObservador(canal);
+
+        // el despachador no da abasto con un buffer central tan chico, pero quien transfiere no se frena
+        for (int i = 0; i < 10_000; i++) {
+            banco.transferir(cuentaAndres, cuentaJohn, new BigDecimal("0.01"));
+        }
+        canal.close();
+
+        assertTrue(canal.getDesbordes() > 0);
+        assertEquals("900.00", registro.ultimoSaldo().get(cuentaAndres.getId()));
+        assertEquals("1100.00", registro.ultimoSaldo().get(cuentaJohn.getId()));
+    }
+
+    @Test
+    void testBloquearConColaLlenaResumePorCuenta() {
+        Cuenta cuentaAndres = new Cuenta("Andres", new BigDecimal("1000"));
+        Cuenta cuentaJohn = new Cuenta("John Doe", new BigDecimal("1000"));
+        Banco banco = crearBanco(cuentaAndres, cuentaJohn);
+        CanalSaldos canal = new CanalSaldos(1024);
+        CountDownLatch habilitado = new CountDownLatch(1);
+        Registro lento = new Registro(habilitado);
+        Suscripcion suscripcion = canal.suscribir(lento, PoliticaContrapresion.BLOQUEAR, 2, 2, 10);
+        banco.addObservador(canal);
+
+        for (int i = 0; i < 100; i++) {
+            banco.transferir(cuentaAndres, cuentaJohn, BigDecimal.ONE);
+        }
+        habilitado.countDown();
+        canal.close();
+
+        // no se pierde nada: lo que no entro en la cola llega resumido, y cada cuenta en orden
+        assertEquals(0, suscripcion.getDescartados());
+        assertTrue(suscripcion.getResumidos() > 0);
+        assertEquals(200, suscripcion.getEntregados() + suscripcion.getResumidos());
+        BigDecimal anterior = new BigDecimal("1001");
+        for (CambioSaldo cambio : lento.recibidos) {
+            if (cambio.getCuentaId() == cuentaAndres.getId()) {
+                assertTrue(cambio.getSaldo().compareTo(anterior) < 0);
+                anterior = cambio.getSaldo();
+            }
+        }
+        assertEquals("900", lento.ultimoSaldo().get(cuentaAndres.getId()));
+        assertEquals("1100", lento.ultimoSaldo().get(cuentaJohn.getId()));
+    }
+
+    @Test
+    void testCerrarConSuscriptorTrabadoNoEsperaParaSiempre() {
+        Cuenta cuentaAndres = new Cuenta("Andres", new BigDecimal("1000"));
+        Cuenta cuentaJohn = new Cuenta("John Doe", new BigDecimal("1000"));
+        Banco banco = crearBanco(cuentaAndres, cuentaJohn);
+        CanalSaldos canal = new CanalSaldos(1024);
+        CountDownLatch habilitado = new CountDownLatch(1);
+        Registro trabado = new Registro(habilitado);
+        Suscripcion suscripcion = canal.suscribir(trabado, PoliticaContrapresion.BLOQUEAR, 2, 2);
+        banco.addObservador(canal);
+
+        for (int i = 0; i < 100; i++) {
+            banco.transferir(cuentaAndres, cuentaJohn, BigDecimal.ONE);
+        }
+        try {
+            long inicio = System.nanoTime();
+            assertFalse(canal.close(50, TimeUnit.MILLISECONDS));
+            assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(5));
+            // lo que seguia esperando lugar se descarta y se cuenta
+            assertTrue(suscripcion.getDescartados() > 0);
+            assertEquals(0, suscripcion.getPendientes());
+        } finally {
+            habilitado.countDown();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.jimenuzca.UdemyJUnit.metricas;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// cuenta operaciones exactas sobre las metricas globales: no puede correr junto con pruebas concurrentes que las usan
+@ResourceLock("metricas")
+class MetricasTest {
+
+    @AfterEach
+    void tearDown() {
+        Metricas.global().setActivas(false);
+        Metricas.global().reiniciar();
+    }
+
+    @Test
+    void testCuentaOperacionesYRechazos() {
+        Metricas metricas = Metricas.global();
+        metricas.reiniciar();
+        metricas.setActivas(true);
+
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("2500"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1250"));
+        Banco credicoop = new Banco();
+        credicoop.transferir(cuentaGraciela, cuentaCecilia, new BigDecimal("925"));
+        credicoop.intentarTransferir(cuentaGraciela, cuentaCecilia, new BigDecimal("5000"));
+        cuentaCecilia.credito(BigDecimal.ONE);
+
+        FotoOperacion transferencias = metricas.foto(Operacion.TRANSFERIR);
+        FotoOperacion debitos = metricas.foto(Operacion.DEBITO);
+        assertAll(
+                () -> assertEquals(2, transferencias.getCantidad()),
+                () -> assertEquals(1, transferencias.getRechazos()),
+                () -> assertEquals(0.5, transferencias.getTasaRechazo()),
+                () -> assertTrue(transferencias.percentilNanos(100) > 0),
+                () -> assertEquals(2, debitos.getCantidad()),
+                () -> assertEquals(2, metricas.foto(Operacion.CREDITO).getCantidad()));
+    }
+
+    @Test
+    void testDesactivadasNoCuentan() {
+        Metricas metricas = Metricas.global();
+        metricas.reiniciar();
+        new Cuenta("Graciela", new BigDecimal("2500")).debito(BigDecimal.TEN);
+        assertEquals(0, metricas.foto(Operacion.DEBITO).getCantidad());
+    }
+
+    @Test
+    void testPercentilesDelHistograma() {
+        Histograma histograma = new Histograma();
+        for (long valor = 1; valor <= 1000; valor++) {
+            histograma.registrar(valor);
+        }
+        long[] cubetas = histograma.copiarCubetas();
+        // error relativo de a lo sumo 1/16
+        assertEquals(500, Histograma.percentil(cubetas, 50), 500 / 16.0);
+        assertEquals(990, Histograma.percentil(cubetas, 99), 990 / 16.0);
+        assertTrue(Histograma.percentil(cubetas, 100) >= 1000);
+    }
+
+    @Test
+    void testJmx() throws Exception {
+        Metricas.global().registrarJmx();
+        Metricas.global().setActivas(true);
+        new Cuenta("Graciela", new BigDecimal("2500")).debito(BigDecimal.TEN);
+
+        Map<String, Long> valores = Metricas.global().getValores();
+        assertEquals(1L, valores.get("debito.cantidad"));
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(Metricas.NOMBRE_JMX)));
+    }
+}
@@ -0,0 +1,70 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlmacenFueraDelHeapTest {
+
+    @Test
+    void testDebitoYCreditoEnLaPosicion() {
+        AlmacenFueraDelHeap almacen = AlmacenFueraDelHeap.enMemoria(10, 2);
+        CuentaFueraDelHeap cuentaGraciela = almacen.abrirCuenta("Graciela", new BigDecimal("2500"));
+        almacen.abrirCuenta("Cecilia", new BigDecimal("1250.50"));
+
+        cuentaGraciela.debito(new BigDecimal("925"));
+        // otra vista de la misma posicion ve el mismo saldo
+        CuentaFueraDelHeap otraVista = almacen.cuenta(cuentaGraciela.getPosicion());
+        otraVista.credito(new BigDecimal("0.50"));
+
+        assertEquals("1575.50", cuentaGraciela.getSaldo().toPlainString());
+        assertEquals("Graciela", otraVista.getPersona());
+        assertEquals("Cecilia", almacen.cuenta(1).getPersona());
+        assertEquals(2, almacen.cantidad());
+
+        Exception exc = assertThrows(DineroInsuficienteException.class, () -> cuentaGraciela.debito(new BigDecimal("5000")));
+        assertEquals("Dinero insuficiente", exc.getMessage());
+        assertEquals("1575.50", cuentaGraciela.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testAlmacenLleno() {
+        AlmacenFueraDelHeap almacen = AlmacenFueraDelHeap.enMemoria(1, 2);
+        almacen.abrirCuenta("Graciela", BigDecimal.ONE);
+        assertThrows(IllegalStateException.class, () -> almacen.abrirCuenta("Cecilia", BigDecimal.ONE));
+        assertThrows(IndexOutOfBoundsException.class, () -> almacen.cuenta(1));
+    }
+
+    @Test
+    void testEnArchivo(@TempDir Path carpeta) throws IOException {
+        AlmacenFueraDelHeap almacen = AlmacenFueraDelHeap.enArchivo(carpeta.resolve("cuentas.bin"), 100, 2);
+        CuentaFueraDelHeap cuenta = almacen.abrirCuenta("Jose", new BigDecimal("10"));
+        cuenta.credito(new BigDecimal("5.25"));
+        assertEquals("15.25", cuenta.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testReabrirArchivo(@TempDir Path carpeta) throws IOException {
+        Path archivo = carpeta.resolve("cuentas.bin");
+        AlmacenFueraDelHeap almacen = AlmacenFueraDelHeap.enArchivo(archivo, 100, 2);
+        almacen.abrirCuenta("Jose", new BigDecimal("10"));
+        almacen.abrirCuenta("Cecilia", new BigDecimal("20.50")).debito(new BigDecimal("0.50"));
+
+        AlmacenFueraDelHeap reabierto = AlmacenFueraDelHeap.enArchivo(archivo, 200, 2);
+        assertEquals(2, reabierto.cantidad());
+        assertEquals("Cecilia", reabierto.cuenta(1).getPersona());
+        assertEquals("20.00", reabierto.cuenta(1).getSaldo().toPlainString());
+        // la cuenta nueva no pisa a las que ya estaban
+        assertEquals(2, reabierto.abrirCuenta("Andres", BigDecimal.ONE).getPosicion());
+        assertEquals("10.00", reabierto.cuenta(0).getSaldo().toPlainString());
+
+        assertThrows(IllegalArgumentException.class, () -> AlmacenFueraDelHeap.enArchivo(archivo, 100, 4));
+        assertThrows(IllegalArgumentException.class, () -> AlmacenFueraDelHeap.enArchivo(archivo, 2, 2));
+    }
+}
@@ -0,0 +1,209 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de carga con operaciones al azar sobre muchas cuentas y muchos hilos, que despues comprueban las
+ * propiedades que el banco tiene que cumplir siempre:
+ * - no se crea ni se pierde dinero (el total final es el inicial mas los creditos menos los debitos externos),
+ * - ningun saldo queda negativo,
+ * - el saldo final de cada cuenta es el inicial mas las transferencias que el banco dijo aprobar.
+ * Los metodos corren en paralelo entre si (JUnit 5, ver junit-platform.properties) y cada uno usa varios hilos.
+ * Comparten las metricas globales solo para leer (el candado va en cada metodo: puesto en la clase haria que sus
+ * metodos corran de a uno), asi no se superponen con MetricasTest, que cuenta operaciones exactas.
+ *
+ * Se configuran con propiedades de sistema, por ej. mvn test -Dtest=BancoCargaTest -Dbanco.carga.operaciones=5000000
+ * - banco.carga.semilla: semilla de los numeros al azar. Si no se indica se elige una y aparece en los mensajes de
+ *   error, para repetir exactamente las mismas operaciones (el orden entre hilos lo decide el sistema operativo)
+ * - banco.carga.operaciones: operaciones por prueba, repartidas entre los hilos (por defecto 200000)
+ * - banco.carga.cuentas: cantidad de cuentas (por defecto 2000)
+ * - banco.carga.hilos: hilos por prueba (por defecto la cantidad de procesadores, minimo 4)
+ */
+@Execution(ExecutionMode.CONCURRENT)
+class BancoCargaTest {
+    private static final long SEMILLA = Long.getLong("banco.carga.semilla", System.nanoTime());
+    private static final int OPERACIONES = Integer.getInteger("banco.carga.operaciones", 200_000);
+    private static final int CUENTAS = Integer.getInteger("banco.carga.cuentas", 2_000);
+    private static final int HILOS = Integer.getInteger("banco.carga.hilos",
+            Math.max(4, Runtime.getRuntime().availableProcessors()));
+    private static final String SALDO_INICIAL = "500";
+
+    // una operacion por hilo, generada con su propio Random asi la secuencia de cada hilo depende solo de la semilla
+    private interface Operador {
+        void operar(Random random, Banco banco, List<Cuenta> cuentas);
+    }
+
+    @Test
+    @ResourceLock(value = "metricas", mode = ResourceAccessMode.READ)
+    void testTransferenciasAlAzar() throws InterruptedException {
+        Banco banco = crearBanco();
+        // lo que entro y salio de cada cuenta (por id) segun las transferencias aprobadas
+        ConcurrentHashMap<Long, LongAdder> movimientos = new ConcurrentHashMap<>();
+        LongAdder aprobadas = new LongAdder();
+        LongAdder rechazadas = new LongAdder();
+
+        // sin tomar candados desde la prueba, asi los hilos compiten por los del banco
+        ejecutar(banco, (random, bco, cuentas) -> {
+            Cuenta origen = cuentas.get(random.nextInt(cuentas.size()));
+            Cuenta destino = cuentas.get(random.nextInt(cuentas.size()));
+            int monto = random.nextInt(300);
+            if (bco.intentarTransferir(origen, destino, BigDecimal.valueOf(monto)) == ResultadoDebito.APROBADO) {
+                movimientos.computeIfAbsent(origen.getId(), id -> new LongAdder()).add(-monto);
+                movimientos.computeIfAbsent(destino.getId(), id -> new LongAdder()).add(monto);
+                aprobadas.increment();
+            } else {
+                rechazadas.increment();
+            }
+        });
+
+        BigDecimal inicial = new BigDecimal(SALDO_INICIAL);
+        List<String> errores = new ArrayList<>();
+        for (Cuenta cuenta : banco.getCuentas()) {
+            LongAdder movimiento = movimientos.get(cuenta.getId());
+            BigDecimal esperado = movimiento == null ? inicial : inicial.add(BigDecimal.valueOf(movimiento.sum()));
+            if (esperado.compareTo(cuenta.getSaldo()) != 0) {
+                errores.add("La cuenta " + cuenta.getId() + " tiene " + cuenta.getSaldo() + " y se esperaba " + esperado);
+            }
+        }
+        assertTrue(errores.isEmpty(), () -> mensaje(errores.size() + " saldos que no coinciden, por ej. " + errores.get(0)));
+        assertTrue(aprobadas.sum() > 0 && rechazadas.sum() > 0, () -> mensaje("Se esperaban aprobadas y rechazadas"));
+        comprobarInvariantes(banco, BigDecimal.ZERO);
+    }
+
+    @Test
+    @ResourceLock(value = "metricas", mode = ResourceAccessMode.READ)
+    void testOperacionesMezcladas() throws InterruptedException {
+        Banco banco = crearBanco();
+        // lo que entra y sale del banco por creditos y debitos sueltos
+        AtomicLong neto = new AtomicLong();
+
+        ejecutar(banco, (random, bco, cuentas) -> {
+            Cuenta origen = cuentas.get(random.nextInt(cuentas.size()));
+            Cuenta destino = cuentas.get(random.nextInt(cuentas.size()));
+            int monto = random.nextInt(300);
+            switch (random.nextInt(5)) {
+                case 0:
+                    bco.intentarTransferir(origen, destino, BigDecimal.valueOf(monto));
+                    break;
+                case 1:
+                    if (origen.intentarDebito(BigDecimal.valueOf(monto)) == ResultadoDebito.APROBADO) {
+                        neto.addAndGet(-monto);
+                    }
+                    break;
+                case 2:
+                    origen.credito(BigDecimal.valueOf(monto));
+                    neto.addAndGet(monto);
+                    break;
+                case 3:
+                    List<Transferencia> lote = new ArrayList<>();
+                    for (int i = 0; i < 8; i++) {
+                        lote.add(new Transferencia(cuentas.get(random.nextInt(cuentas.size())),
+                                cuentas.get(random.nextInt(cuentas.size())), BigDecimal.valueOf(random.nextInt(300))));
+                    }
+                    bco.transferirLote(lote);
+                    break;
+                default:
+                    try {
+                        bco.transferir(origen, destino, BigDecimal.valueOf(monto));
+                    } catch (DineroInsuficienteException e) {
+                        // esperable, las otras operaciones cambian los saldos todo el tiempo
+                    }
+            }
+        });
+
+        comprobarInvariantes(banco, BigDecimal.valueOf(neto.get()));
+    }
+
+    @Test
+    @ResourceLock(value = "metricas", mode = ResourceAccessMode.READ)
+    void testPocasCuentasMuyDisputadas() throws InterruptedException {
+        // pocas cuentas para que casi todas las operaciones compitan por los mismos candados
+        Banco banco = new Banco();
+        for (int i = 0; i < 8; i++) {
+            banco.addCuenta(new Cuenta("Persona " + i, new BigDecimal(SALDO_INICIAL)));
+        }
+        BigDecimal inicial = banco.getTotales().getSaldoTotal();
+
+        ejecutar(banco, (random, bco, cuentas) -> bco.intentarTransferir(cuentas.get(random.nextInt(cuentas.size())),
+                cuentas.get(random.nextInt(cuentas.size())), new BigDecimal(random.nextInt(1000))));
+
+        assertEquals(0, inicial.compareTo(suma(banco)), () -> mensaje("El dinero total cambio"));
+        assertTrue(banco.getCuentas().stream().noneMatch(cta -> cta.getSaldo().signum() < 0),
+                () -> mensaje("Hay saldos negativos"));
+    }
+
+    private Banco crearBanco() {
+        Banco banco = new Banco();
+        List<Cuenta> cuentas = new ArrayList<>(CUENTAS);
+        for (int i = 0; i < CUENTAS; i++) {
+            cuentas.add(new Cuenta("Persona " + i, new BigDecimal(SALDO_INICIAL)));
+        }
+        banco.addCuentas(cuentas);
+        return banco;
+    }
+
+    private void ejecutar(Banco banco, Operador operador) throws InterruptedException {
+        List<Cuenta> cuentas = banco.copiaCuentas();
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch largada = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Throwable> fallas = new ConcurrentLinkedQueue<>();
+        for (int h = 0; h < HILOS; h++) {
+            long semillaHilo = SEMILLA + h;
+            int operaciones = OPERACIONES / HILOS + (h < OPERACIONES % HILOS ? 1 : 0);
+            executor.execute(() -> {
+                Random random = new Random(semillaHilo);
+                try {
+                    largada.await();
+                    for (int i = 0; i < operaciones; i++) {
+                        operador.operar(random, banco, cuentas);
+                    }
+                } catch (Throwable e) {
+                    fallas.add(e);
+                }
+            });
+        }
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES), () -> mensaje("Las operaciones no terminaron, posible deadlock"));
+        assertTrue(fallas.isEmpty(), () -> mensaje("Excepcion inesperada: " + fallas.peek()));
+    }
+
+    private void comprobarInvariantes(Banco banco, BigDecimal neto) {
+        BigDecimal esperado = new BigDecimal(SALDO_INICIAL).multiply(BigDecimal.valueOf(CUENTAS)).add(neto);
+        BigDecimal total = suma(banco);
+        assertAll(
+                () -> assertEquals(0, esperado.compareTo(total), () -> mensaje("Se esperaba un total de " + esperado + " y hay " + total)),
+                () -> assertEquals(0, total.compareTo(banco.getTotales().getSaldoTotal()), () -> mensaje("Los totales del banco no coinciden")),
+                () -> assertTrue(banco.getCuentas().stream().noneMatch(cta -> cta.getSaldo().signum() < 0),
+                        () -> mensaje("Hay saldos negativos")));
+    }
+
+    private BigDecimal suma(Banco banco) {
+        return banco.getCuentas().stream().map(Cuenta::getSaldo).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private String mensaje(String error) {
+        return error + " (repetir con -Dbanco.carga.semilla=" + SEMILLA + " -Dbanco.carga.operaciones=" + OPERACIONES
+                + " -Dbanco.carga.cuentas=" + CUENTAS + " -Dbanco.carga.hilos=" + HILOS + ")";
+    }
+}
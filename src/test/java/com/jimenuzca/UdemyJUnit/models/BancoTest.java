@@ -0,0 +1,349 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del Banco trabajando con varios hilos a la vez.
+ * La idea es lanzar muchas transferencias en paralelo y despues comprobar que no se perdio ni se creo dinero:
+ * la suma de todos los saldos tiene que ser la misma que al principio.
+ * Si hubiese un deadlock el executor no terminaria y el assertTrue del awaitTermination fallaria.
+ */
+class BancoTest {
+
+    private Banco crearBanco(int cantidadCuentas, String saldoInicial) {
+        Banco banco = new Banco();
+        banco.setNombre("Banco Credicoop");
+        for (int i = 0; i < cantidadCuentas; i++) {
+            banco.addCuenta(new Cuenta("Persona " + i, new BigDecimal(saldoInicial)));
+        }
+        return banco;
+    }
+
+    private BigDecimal saldoTotal(Banco banco) {
+        return banco.getCuentas().stream()
+                .map(Cuenta::getSaldo)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Test
+    @DisplayName("Transferencias concurrentes conservan el saldo total")
+    void testTransferenciasConcurrentes() throws InterruptedException, ExecutionException {
+        Banco banco = crearBanco(20, "1000");
+        BigDecimal totalInicial = saldoTotal(banco);
+        List<Cuenta> cuentas = banco.getCuentas();
+
+        int hilos = 8;
+        int transferenciasPorHilo = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        List<Future<?>> tareas = new ArrayList<>();
+        // el latch hace que todos los hilos arranquen a la vez para forzar la concurrencia
+        CountDownLatch largada = new CountDownLatch(1);
+        for (int h = 0; h < hilos; h++) {
+            long semilla = h;
+            tareas.add(executor.submit(() -> {
+                Random random = new Random(semilla);
+                largada.await();
+                for (int i = 0; i < transferenciasPorHilo; i++) {
+                    Cuenta origen = cuentas.get(random.nextInt(cuentas.size()));
+                    Cuenta destino = cuentas.get(random.nextInt(cuentas.size()));
+                    try {
+                        banco.transferir(origen, destino, new BigDecimal(random.nextInt(200)));
+                    } catch (DineroInsuficienteException e) {
+                        // es esperable, la cuenta no tenia fondos suficientes
+                    }
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES), () -> "Las transferencias no terminaron, posible deadlock");
+        // si algun hilo fallo, get lanza su excepcion
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+
+        assertEquals(0, totalInicial.compareTo(saldoTotal(banco)), "El dinero total del banco debe conservarse");
+        assertTrue(cuentas.stream().noneMatch(cta -> cta.getSaldo().compareTo(BigDecimal.ZERO) < 0));
+    }
+
+    @Test
+    @DisplayName("Transferencias en sentido contrario no se bloquean")
+    void testTransferenciasCruzadas() throws InterruptedException {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1000"));
+        Banco banco = new Banco();
+
+        // si a un lado se le acaba la plata la transferencia se rechaza sin excepcion; cualquier otro error de los
+        // hilos se junta aca, porque una excepcion sin atrapar solo terminaria el hilo sin que el test falle
+        Queue<Throwable> errores = new ConcurrentLinkedQueue<>();
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < 4; h++) {
+            boolean ida = h % 2 == 0;
+            hilos.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 50_000; i++) {
+                        if (ida) {
+                            banco.intentarTransferir(cuentaGraciela, cuentaCecilia, BigDecimal.ONE);
+                        } else {
+                            banco.intentarTransferir(cuentaCecilia, cuentaGraciela, BigDecimal.ONE);
+                        }
+                    }
+                } catch (Throwable e) {
+                    errores.add(e);
+                }
+            }));
+        }
+        hilos.forEach(Thread::start);
+        for (Thread hilo : hilos) {
+            hilo.join(TimeUnit.MINUTES.toMillis(1));
+            assertFalse(hilo.isAlive(), "Las transferencias cruzadas quedaron bloqueadas");
+        }
+        assertTrue(errores.isEmpty(), () -> "Fallaron transferencias: " + errores);
+
+        assertEquals("2000", cuentaGraciela.getSaldo().add(cuentaCecilia.getSaldo()).toPlainString());
+    }
+
+    @Test
+    void testTransferenciaFallidaNoModificaSaldos() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("100"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("50"));
+        Banco banco = new Banco();
+
+        assertThrows(DineroInsuficienteException.class,
+                () -> banco.transferir(cuentaGraciela, cuentaCecilia, new BigDecimal("500")));
+        assertEquals("100", cuentaGraciela.getSaldo().toPlainString());
+        assertEquals("50", cuentaCecilia.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testBuscarCuentas() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("2500"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1250"));
+        Cuenta cuentaCecilia2 = new Cuenta("Cecilia", new BigDecimal("10"));
+        Banco credicoop = new Banco();
+        credicoop.addCuenta(cuentaCecilia);
+        credicoop.addCuenta(cuentaGraciela);
+        credicoop.addCuenta(cuentaCecilia2);
+
+        assertAll(
+                () -> assertSame(cuentaGraciela, credicoop.buscarPorPersona("Graciela").get()),
+                // igual que findFirst, devuelve la primera cuenta de la persona
+                () -> assertSame(cuentaCecilia, credicoop.buscarPorPersona("Cecilia").get()),
+                () -> assertFalse(credicoop.buscarPorPersona("John Doe").isPresent()),
+                () -> assertSame(cuentaGraciela, credicoop.buscarPorId(cuentaGraciela.getId()).get()));
+
+        assertTrue(credicoop.removeCuenta(cuentaCecilia));
+        assertFalse(credicoop.removeCuenta(cuentaCecilia));
+        assertEquals(2, credicoop.getCuentas().size());
+        assertFalse(credicoop.buscarPorId(cuentaCecilia.getId()).isPresent());
+        assertSame(cuentaCecilia2, credicoop.buscarPorPersona("Cecilia").get());
+    }
+
+    @Test
+    void testQuitarUnaDeDosCuentasIguales() {
+        // misma persona y mismo saldo: equals las considera iguales, pero son dos cuentas
+        Cuenta primera = new Cuenta("Cecilia", new BigDecimal("1000"));
+        Cuenta segunda = new Cuenta("Cecilia", new BigDecimal("1000"));
+        Banco credicoop = new Banco();
+        credicoop.addCuenta(primera);
+        credicoop.addCuenta(segunda);
+
+        assertTrue(credicoop.removeCuenta(segunda));
+        assertEquals(1, credicoop.getCuentas().size());
+        assertSame(primera, credicoop.getCuentas().get(0));
+        assertSame(primera, credicoop.buscarPorPersona("Cecilia").get());
+
+        assertTrue(credicoop.removeCuenta(primera));
+        assertTrue(credicoop.getCuentas().isEmpty());
+        assertFalse(credicoop.buscarPorPersona("Cecilia").isPresent());
+    }
+
+    @Test
+    void testAltasConcurrentes() throws InterruptedException {
+        Banco banco = new Banco();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 10_000; i++) {
+            String persona = "Persona " + i;
+            executor.submit(() -> banco.addCuenta(new Cuenta(persona, BigDecimal.TEN)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(10_000, banco.getCuentas().size());
+        assertTrue(banco.getCuentas().stream()
+                .allMatch(cta -> banco.buscarPorPersona(cta.getPersona()).get() == cta));
+    }
+
+    @Test
+    void testTransferirLote() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("100"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("0"));
+        Cuenta cuentaAndres = new Cuenta("Andres", new BigDecimal("0"));
+        Banco banco = new Banco();
+
+        // Cecilia no tiene fondos para la primera, pero con el neto del lote le alcanza
+        List<Transferencia> lote = Arrays.asList(
+                new Transferencia(cuentaCecilia, cuentaAndres, new BigDecimal("40")),
+                new Transferencia(cuentaGraciela, cuentaCecilia, new BigDecimal("60")),
+                new Transferencia(cuentaAndres, cuentaGraciela, new BigDecimal("10")));
+        banco.transferirLote(lote);
+
+        assertTrue(lote.stream().allMatch(Transferencia::isExitosa));
+        assertEquals("50", cuentaGraciela.getSaldo().toPlainString());
+        assertEquals("20", cuentaCecilia.getSaldo().toPlainString());
+        assertEquals("30", cuentaAndres.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testTransferirLoteConRechazos() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("100"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("0"));
+        Banco banco = new Banco();
+
+        List<Transferencia> lote = Arrays.asList(
+                new Transferencia(cuentaGraciela, cuentaCecilia, new BigDecimal("70")),
+                new Transferencia(cuentaGraciela, cuentaCecilia, new BigDecimal("70")),
+                new Transferencia(cuentaCecilia, cuentaGraciela, new BigDecimal("20")));
+        banco.transferirLote(lote);
+
+        assertAll(
+                () -> assertTrue(lote.get(0).isExitosa()),
+                () -> assertFalse(lote.get(1).isExitosa()),
+                () -> assertEquals("Dinero insuficiente", lote.get(1).getError().getMessage()),
+                () -> assertTrue(lote.get(2).isExitosa()),
+                () -> assertEquals("50", cuentaGraciela.getSaldo().toPlainString()),
+                () -> assertEquals("50", cuentaCecilia.getSaldo().toPlainString()));
+    }
+
+    @Test
+    void testTotalesSinRecorrerCuentas() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("100"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("5.50"));
+        Cuenta cuentaAndres = new Cuenta("Andres", new BigDecimal("0"));
+        Banco banco = new Banco();
+        banco.addCuenta(cuentaGraciela);
+        banco.addCuentas(Arrays.asList(cuentaCecilia, cuentaAndres));
+        TotalesBanco totales = banco.getTotales();
+
+        assertEquals(3, totales.getCantidadCuentas());
+        assertEquals(0, new BigDecimal("105.50").compareTo(totales.getSaldoTotal()));
+        assertEquals(0, new BigDecimal("1000").compareTo(totales.getCotaMaxima()));
+
+        banco.transferir(cuentaGraciela, cuentaAndres, new BigDecimal("99.50"));
+        cuentaCecilia.debito(new BigDecimal("5"));
+        banco.transferirLote(Arrays.asList(new Transferencia(cuentaAndres, cuentaCecilia, new BigDecimal("0.50"))));
+        assertEquals(0, new BigDecimal("100.50").compareTo(totales.getSaldoTotal()));
+        assertEquals(0, new BigDecimal("100").compareTo(totales.getCotaMaxima()));
+        long[] porMagnitud = totales.getCuentasPorMagnitud();
+        // Graciela quedo con 0.50, Cecilia con 1.00 y Andres con 99
+        assertEquals(1, porMagnitud[2]);
+        assertEquals(1, porMagnitud[3]);
+        assertEquals(1, porMagnitud[4]);
+
+        assertTrue(banco.removeCuenta(cuentaAndres));
+        cuentaAndres.credito(BigDecimal.TEN);
+        assertEquals(2, totales.getCantidadCuentas());
+        assertEquals(0, new BigDecimal("1.50").compareTo(totales.getSaldoTotal()));
+        assertEquals(0, new BigDecimal("10").compareTo(totales.getCotaMaxima()));
+    }
+
+    @Test
+    void testTotalesConTransferenciasConcurrentes() throws InterruptedException, ExecutionException {
+        Banco banco = crearBanco(50, "1000");
+        List<Cuenta> cuentas = banco.getCuentas();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < 4; h++) {
+            long semilla = h;
+            tareas.add(executor.submit(() -> {
+                Random random = new Random(semilla);
+                for (int i = 0; i < 20_000; i++) {
+                    banco.intentarTransferir(cuentas.get(random.nextInt(cuentas.size())),
+                            cuentas.get(random.nextInt(cuentas.size())), new BigDecimal(random.nextInt(300)));
+                    cuentas.get(random.nextInt(cuentas.size())).credito(BigDecimal.ONE);
+                }
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+
+        assertEquals(0, saldoTotal(banco).compareTo(banco.getTotales().getSaldoTotal()));
+        assertEquals(50, Arrays.stream(banco.getTotales().getCuentasPorMagnitud()).sum());
+    }
+
+    @Test
+    void testSaldoTotalNoVeTransferenciasAMedias() throws InterruptedException, ExecutionException {
+        Banco banco = crearBanco(20, "1000");
+        List<Cuenta> cuentas = banco.getCuentas();
+        BigDecimal inicial = banco.getTotales().getSaldoTotal();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < 3; h++) {
+            long semilla = h;
+            tareas.add(executor.submit(() -> {
+                Random random = new Random(semilla);
+                for (int i = 0; i < 20_000; i++) {
+                    Cuenta origen = cuentas.get(random.nextInt(cuentas.size()));
+                    Cuenta destino = cuentas.get(random.nextInt(cuentas.size()));
+                    if (i % 10 == 0) {
+                        banco.transferirLote(Arrays.asList(new Transferencia(origen, destino, BigDecimal.TEN),
+                                new Transferencia(destino, origen, BigDecimal.ONE)));
+                    } else {
+                        banco.intentarTransferir(origen, destino, new BigDecimal(random.nextInt(300)));
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+        while (!executor.isTerminated()) {
+            assertEquals(0, inicial.compareTo(banco.getTotales().getSaldoTotal()));
+        }
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        assertEquals(0, inicial.compareTo(banco.getTotales().getSaldoTotal()));
+    }
+
+    @Test
+    void testSetCuentasSueltaLasAnteriores() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("50"));
+        Banco banco = new Banco();
+        banco.addCuenta(cuentaGraciela);
+        List<Cuenta> avisadas = new ArrayList<>();
+        banco.addObservador((cuenta, tipo, monto) -> avisadas.add(cuenta));
+
+        banco.setCuentas(new ArrayList<>(Arrays.asList(cuentaCecilia)));
+        cuentaGraciela.credito(new BigDecimal("500"));
+        cuentaCecilia.debito(BigDecimal.ONE);
+
+        assertNull(cuentaGraciela.getBanco());
+        assertSame(banco, cuentaCecilia.getBanco());
+        assertEquals(1, banco.getTotales().getCantidadCuentas());
+        assertEquals(0, new BigDecimal("49").compareTo(banco.getTotales().getSaldoTotal()));
+        assertEquals(Arrays.asList(cuentaCecilia), avisadas);
+    }
+}
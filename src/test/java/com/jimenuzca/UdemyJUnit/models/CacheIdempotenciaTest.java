@@ -0,0 +1,140 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheIdempotenciaTest {
+
+    @Test
+    void testReintentoNoTransfiereDosVeces() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("2500"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1250"));
+        Banco credicoop = new Banco();
+
+        credicoop.transferir("pedido-1", cuentaGraciela, cuentaCecilia, new BigDecimal("925"));
+        credicoop.transferir("pedido-1", cuentaGraciela, cuentaCecilia, new BigDecimal("925"));
+        assertEquals("1575", cuentaGraciela.getSaldo().toPlainString());
+        assertEquals("2175", cuentaCecilia.getSaldo().toPlainString());
+
+        // el rechazo tambien se recuerda, aunque despues haya saldo suficiente
+        assertThrows(DineroInsuficienteException.class,
+                () -> credicoop.transferir("pedido-2", cuentaGraciela, cuentaCecilia, new BigDecimal("2000")));
+        cuentaGraciela.credito(new BigDecimal("1000"));
+        assertEquals(ResultadoDebito.DINERO_INSUFICIENTE,
+                credicoop.intentarTransferir("pedido-2", cuentaGraciela, cuentaCecilia, new BigDecimal("2000")));
+    }
+
+    @Test
+    void testClaveReusadaParaOtraTransferencia() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("2500"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1250"));
+        Banco credicoop = new Banco();
+
+        credicoop.transferir("pedido-1", cuentaGraciela, cuentaCecilia, new BigDecimal("925"));
+        // el mismo monto escrito distinto es el mismo pedido
+        credicoop.transferir("pedido-1", cuentaGraciela, cuentaCecilia, new BigDecimal("925.00"));
+        assertThrows(IllegalArgumentException.class,
+                () -> credicoop.transferir("pedido-1", cuentaGraciela, cuentaCecilia, new BigDecimal("10")));
+        assertThrows(IllegalArgumentException.class,
+                () -> credicoop.transferir("pedido-1", cuentaCecilia, cuentaGraciela, new BigDecimal("925")));
+        assertEquals("1575", cuentaGraciela.getSaldo().toPlainString());
+        assertEquals("2175", cuentaCecilia.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testReintentosConcurrentes() throws InterruptedException {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("2500"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("0"));
+        Banco credicoop = new Banco();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            String clave = "pedido-" + (i % 10);
+            executor.submit(() -> credicoop.transferir(clave, cuentaGraciela, cuentaCecilia, BigDecimal.TEN));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        // 10 claves distintas, 10 transferencias
+        assertEquals("100", cuentaCecilia.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testReintentoConcurrenteRecibeLaMismaFalla() throws Exception {
+        CacheIdempotencia cache = new CacheIdempotencia(64, 1, TimeUnit.MINUTES);
+        CountDownLatch empezo = new CountDownLatch(1);
+        CountDownLatch fallar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ResultadoDebito> primero = executor.submit(() -> cache.resultado("pedido-1", () -> {
+                empezo.countDown();
+                try {
+                    fallar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new AssertionError("Falla inesperada");
+            }));
+            assertTrue(empezo.await(10, TimeUnit.SECONDS));
+            // el reintento espera al primero y recibe su misma excepcion, sin envolver
+            AtomicReference<Throwable> recibida = new AtomicReference<>();
+            Thread reintento = new Thread(() -> {
+                try {
+                    cache.resultado("pedido-1", () -> ResultadoDebito.APROBADO);
+                } catch (Throwable e) {
+                    recibida.set(e);
+                }
+            });
+            reintento.start();
+            while (reintento.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+            fallar.countDown();
+            reintento.join();
+            ExecutionException primera = assertThrows(ExecutionException.class, primero::get);
+            assertTrue(primera.getCause() instanceof AssertionError);
+            assertSame(primera.getCause(), recibida.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        // la falla no se recuerda: otro reintento vuelve a ejecutar
+        assertEquals(ResultadoDebito.APROBADO, cache.resultado("pedido-1", () -> ResultadoDebito.APROBADO));
+    }
+
+    @Test
+    void testDescartaPorTamanioYPorTiempo() {
+        AtomicLong reloj = new AtomicLong();
+        CacheIdempotencia cache = new CacheIdempotencia(64 * 2, 1, TimeUnit.SECONDS, reloj::get);
+        AtomicInteger ejecuciones = new AtomicInteger();
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.resultado("clave-" + i, () -> {
+                ejecuciones.incrementAndGet();
+                return ResultadoDebito.APROBADO;
+            });
+        }
+        assertTrue(cache.cantidad() <= 64 * 2, () -> "La cache crecio a " + cache.cantidad());
+
+        cache.resultado("vieja", () -> ResultadoDebito.APROBADO);
+        reloj.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        int antes = ejecuciones.get();
+        cache.resultado("vieja", () -> {
+            ejecuciones.incrementAndGet();
+            return ResultadoDebito.APROBADO;
+        });
+        // paso mas de un segundo, la clave se olvido y se vuelve a ejecutar
+        assertEquals(antes + 1, ejecuciones.get());
+    }
+}
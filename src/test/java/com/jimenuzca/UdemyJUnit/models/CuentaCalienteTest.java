@@ -0,0 +1,99 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CuentaCalienteTest {
+
+    @Test
+    void testDebitoYCredito() {
+        CuentaCaliente cuenta = new CuentaCaliente("Comercio", new BigDecimal("100.50"), 2);
+        cuenta.credito(new BigDecimal("20"));
+        cuenta.debito(new BigDecimal("110"));
+        assertEquals("10.50", cuenta.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testDebitoUsaLosCreditosAcumulados() {
+        CuentaCaliente cuenta = new CuentaCaliente("Comercio", BigDecimal.ZERO, 2);
+        cuenta.credito(new BigDecimal("50"));
+        // el saldo base es cero, el debito tiene que juntar lo acumulado en las celdas
+        cuenta.debito(new BigDecimal("50"));
+        assertEquals(0, cuenta.getSaldoUnidades());
+
+        Exception exc = assertThrows(DineroInsuficienteException.class, () -> cuenta.debito(new BigDecimal("0.01")));
+        assertEquals("Dinero insuficiente", exc.getMessage());
+    }
+
+    @Test
+    void testCreditosYDebitosConcurrentes() throws InterruptedException {
+        CuentaCaliente cuenta = new CuentaCaliente("Comercio", BigDecimal.ZERO, 2);
+        AtomicLong debitado = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int h = 0; h < 8; h++) {
+            boolean acreditador = h % 2 == 0;
+            executor.submit(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    if (acreditador) {
+                        cuenta.creditoUnidades(3);
+                    } else {
+                        try {
+                            cuenta.debitoUnidades(5);
+                            debitado.addAndGet(5);
+                        } catch (DineroInsuficienteException e) {
+                            // esperable si los creditos todavia no llegaron
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        // 4 hilos acreditan 100.000 veces 3 unidades
+        assertEquals(4 * 100_000 * 3 - debitado.get(), cuenta.getSaldoUnidades());
+        assertTrue(cuenta.getSaldoUnidades() >= 0);
+    }
+
+    @Test
+    void testNoRechazaMientrasOtroHiloConsolida() throws InterruptedException, ExecutionException {
+        int hilos = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        try {
+            for (int ronda = 0; ronda < 2_000; ronda++) {
+                // todo el saldo esta en las celdas y alcanza justo para todos los debitos: varios hilos consolidan a la
+                // vez y el que encuentra las celdas ya vaciadas por otro no debe rechazar
+                CuentaCaliente cuenta = new CuentaCaliente("Comercio", BigDecimal.ZERO, 2);
+                cuenta.creditoUnidades(hilos);
+                CountDownLatch largada = new CountDownLatch(1);
+                List<Future<ResultadoDebito>> resultados = new ArrayList<>();
+                for (int h = 0; h < hilos; h++) {
+                    resultados.add(executor.submit(() -> {
+                        largada.await();
+                        return cuenta.intentarDebitoUnidades(1);
+                    }));
+                }
+                largada.countDown();
+                for (Future<ResultadoDebito> resultado : resultados) {
+                    assertEquals(ResultadoDebito.APROBADO, resultado.get(), "Ronda " + ronda);
+                }
+                assertEquals(0, cuenta.getSaldoUnidades());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Misma logica que CuentaTest pero para la cuenta de punto fijo.
+ * Los saldos se comparan con toPlainString, asi tambien comprobamos que se respeta la escala.
+ */
+class CuentaFijaTest {
+
+    @Test
+    void testSaldoCuenta() {
+        CuentaFija cuenta = new CuentaFija("Andres", new BigDecimal("1000.12"), 2);
+        assertEquals(100012, cuenta.getSaldoUnidades());
+        assertEquals("1000.12", cuenta.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testDebitoCuenta() {
+        CuentaFija cuenta = new CuentaFija("Andres", new BigDecimal("1000.12"), 2);
+        cuenta.debito(new BigDecimal("100"));
+        assertEquals("900.12", cuenta.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testCreditoCuenta() {
+        CuentaFija cuenta = new CuentaFija("Andres", new BigDecimal("1000.12"), 2);
+        cuenta.creditoUnidades(11200);
+        assertEquals("1112.12", cuenta.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testDineroInsuficiente() {
+        CuentaFija cuenta = new CuentaFija("Cecilia", new BigDecimal("1000.12"), 2);
+        Exception exc = assertThrows(DineroInsuficienteException.class, () -> cuenta.debito(new BigDecimal("1500")));
+        assertEquals("Dinero insuficiente", exc.getMessage());
+        assertEquals("1000.12", cuenta.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testDesbordeYEscala() {
+        CuentaFija cuenta = new CuentaFija("Graciela", BigDecimal.ZERO, 2);
+        cuenta.creditoUnidades(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> cuenta.creditoUnidades(1));
+        // mas decimales que la escala de la moneda
+        assertThrows(ArithmeticException.class, () -> cuenta.aUnidades(new BigDecimal("0.001")));
+    }
+}
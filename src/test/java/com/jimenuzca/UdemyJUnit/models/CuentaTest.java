@@ -157,6 +157,26 @@ class CuentaTest {
         assertEquals(esperado, actual);
     }
 
+    @Test
+    void testIntentarDebitoSinExcepcion() {
+        Cuenta cuentaCeci = new Cuenta("Cecilia", new BigDecimal("1000.12345"));
+        // en lugar de capturar la excepcion evaluamos el resultado que devuelve
+        assertEquals(ResultadoDebito.DINERO_INSUFICIENTE, cuentaCeci.intentarDebito(new BigDecimal("1500")));
+        assertEquals("1000.12345", cuentaCeci.getSaldo().toPlainString());
+
+        assertEquals(ResultadoDebito.APROBADO, cuentaCeci.intentarDebito(new BigDecimal("1000.12345")));
+        assertEquals(0, cuentaCeci.getSaldo().compareTo(BigDecimal.ZERO));
+    }
+
+    @Test
+    void testDineroInsuficienteSinTraza() {
+        DineroInsuficienteException exc = DineroInsuficienteException.sinTraza();
+        // es siempre la misma instancia, no tiene stack trace y el mensaje es el mismo que el de debito
+        assertSame(exc, DineroInsuficienteException.sinTraza());
+        assertEquals(0, exc.getStackTrace().length);
+        assertEquals("Dinero insuficiente", exc.getMessage());
+    }
+
     @Test
     void testTransferirDineroCuentas() {
         Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("2500"));
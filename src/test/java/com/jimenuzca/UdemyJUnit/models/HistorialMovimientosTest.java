@@ -0,0 +1,91 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistorialMovimientosTest {
+
+    @Test
+    void testMovimientosDeCuentaYTransferencias() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("100"));
+        cuentaGraciela.habilitarHistorial(3);
+        Banco banco = new Banco();
+
+        assertNull(cuentaCecilia.getHistorial());
+        cuentaGraciela.debito(new BigDecimal("10.50"));
+        cuentaGraciela.credito(new BigDecimal("1"));
+        banco.transferir(cuentaGraciela, cuentaCecilia, new BigDecimal("100"));
+        banco.transferirLote(Arrays.asList(new Transferencia(cuentaCecilia, cuentaGraciela, new BigDecimal("0.25"))));
+        // un debito rechazado no queda en el historial
+        assertEquals(ResultadoDebito.DINERO_INSUFICIENTE, cuentaGraciela.intentarDebito(new BigDecimal("5000")));
+
+        HistorialMovimientos historial = cuentaGraciela.getHistorial();
+        List<Movimiento> ultimos = historial.ultimos(50);
+        assertEquals(4, historial.getCantidad());
+        assertEquals(3, ultimos.size());
+        assertAll(
+                () -> assertEquals(TipoMovimiento.CREDITO, ultimos.get(0).getTipo()),
+                () -> assertEquals("0.25", ultimos.get(0).getMonto().toPlainString()),
+                () -> assertEquals(cuentaCecilia.getId(), ultimos.get(0).getContraparte()),
+                () -> assertEquals(TipoMovimiento.DEBITO, ultimos.get(1).getTipo()),
+                () -> assertEquals(cuentaCecilia.getId(), ultimos.get(1).getContraparte()),
+                () -> assertEquals("1", ultimos.get(2).getMonto().toPlainString()),
+                () -> assertEquals(Movimiento.SIN_CONTRAPARTE, ultimos.get(2).getContraparte()),
+                () -> assertTrue(ultimos.get(2).getInstante() > 0));
+        assertEquals(1, historial.ultimos(1).size());
+        assertTrue(historial.ultimos(0).isEmpty());
+    }
+
+    @Test
+    void testMontoQueNoEntraEnUnLong() {
+        BigDecimal grande = new BigDecimal("100000000000000000000.5");
+        Cuenta cuentaGraciela = new Cuenta("Graciela", grande);
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", BigDecimal.ZERO);
+        cuentaGraciela.habilitarHistorial(4);
+        cuentaCecilia.habilitarHistorial(4);
+        Banco banco = new Banco();
+
+        banco.transferir(cuentaGraciela, cuentaCecilia, grande);
+        cuentaCecilia.debito(BigDecimal.ONE);
+
+        assertEquals(0, cuentaGraciela.getSaldo().signum());
+        assertEquals("100000000000000000000.5", cuentaCecilia.getSaldo().add(BigDecimal.ONE).toPlainString());
+        List<Movimiento> ultimos = cuentaCecilia.getHistorial().ultimos(4);
+        assertAll(
+                () -> assertEquals("1", ultimos.get(0).getMonto().toPlainString()),
+                () -> assertEquals(TipoMovimiento.CREDITO, ultimos.get(1).getTipo()),
+                () -> assertEquals(grande, ultimos.get(1).getMonto()),
+                () -> assertEquals(grande, cuentaGraciela.getHistorial().ultimos(1).get(0).getMonto()));
+    }
+
+    @Test
+    void testLeerMientrasSeEscribe() throws InterruptedException {
+        Cuenta cuenta = new Cuenta("Graciela", BigDecimal.ZERO);
+        cuenta.habilitarHistorial(16);
+        AtomicBoolean terminado = new AtomicBoolean();
+        Thread escritor = new Thread(() -> {
+            // el monto de cada credito es su numero de orden, asi el lector puede comprobar que no hay mezclas
+            for (int i = 1; i <= 200_000; i++) {
+                cuenta.credito(BigDecimal.valueOf(i));
+            }
+            terminado.set(true);
+        });
+        escritor.start();
+        while (!terminado.get()) {
+            List<Movimiento> ultimos = cuenta.getHistorial().ultimos(16);
+            for (int i = 1; i < ultimos.size(); i++) {
+                assertEquals(ultimos.get(i - 1).getMonto().longValue() - 1, ultimos.get(i).getMonto().longValue());
+                assertEquals(TipoMovimiento.CREDITO, ultimos.get(i).getTipo());
+            }
+        }
+        escritor.join();
+        assertEquals(200_000, cuenta.getHistorial().ultimos(1).get(0).getMonto().longValue());
+    }
+}
@@ -0,0 +1,92 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservaTest {
+
+    @Test
+    void testReservarYCapturarEnPartes() {
+        Cuenta cuenta = new Cuenta("Graciela", new BigDecimal("1000"));
+        Reserva reserva = cuenta.reservar(new BigDecimal("300"));
+
+        assertEquals("1000", cuenta.getSaldo().toPlainString());
+        assertEquals("700", cuenta.getSaldoDisponible().toPlainString());
+        // lo reservado no se puede debitar
+        assertEquals(ResultadoDebito.DINERO_INSUFICIENTE, cuenta.intentarDebito(new BigDecimal("701")));
+
+        reserva.capturar(new BigDecimal("100"));
+        assertAll(
+                () -> assertEquals("900", cuenta.getSaldo().toPlainString()),
+                () -> assertEquals("700", cuenta.getSaldoDisponible().toPlainString()),
+                () -> assertEquals("200", reserva.getPendiente().toPlainString()),
+                () -> assertEquals(EstadoReserva.ACTIVA, reserva.getEstado()));
+        assertThrows(IllegalArgumentException.class, () -> reserva.capturar(new BigDecimal("250")));
+
+        reserva.capturar();
+        assertEquals(EstadoReserva.CAPTURADA, reserva.getEstado());
+        assertEquals("700", cuenta.getSaldo().toPlainString());
+        assertEquals("0", cuenta.getReservado().toPlainString());
+        assertThrows(IllegalStateException.class, () -> reserva.capturar(BigDecimal.ONE));
+    }
+
+    @Test
+    void testLiberarYVencer() {
+        Cuenta cuenta = new Cuenta("Graciela", new BigDecimal("100"));
+        Reserva reserva = cuenta.reservar(new BigDecimal("60"));
+        assertThrows(DineroInsuficienteException.class, () -> cuenta.reservar(new BigDecimal("50")));
+
+        reserva.capturar(new BigDecimal("10"));
+        reserva.liberar();
+        assertEquals(EstadoReserva.LIBERADA, reserva.getEstado());
+        assertEquals("90", cuenta.getSaldoDisponible().toPlainString());
+        assertFalse(reserva.vencer());
+
+        Reserva otra = cuenta.reservar(new BigDecimal("90"));
+        assertTrue(otra.vencer());
+        assertEquals(EstadoReserva.VENCIDA, otra.getEstado());
+        assertEquals("90", cuenta.getSaldoDisponible().toPlainString());
+    }
+
+    @Test
+    void testMontosNoPositivos() {
+        Cuenta cuenta = new Cuenta("Graciela", new BigDecimal("100"));
+        assertThrows(IllegalArgumentException.class, () -> cuenta.reservar(new BigDecimal("-50")));
+        assertThrows(IllegalArgumentException.class, () -> cuenta.reservar(BigDecimal.ZERO));
+
+        Reserva reserva = cuenta.reservar(new BigDecimal("60"));
+        // capturar un monto negativo seria un credito
+        assertThrows(IllegalArgumentException.class, () -> reserva.capturar(new BigDecimal("-10")));
+        assertThrows(IllegalArgumentException.class, () -> reserva.capturar(BigDecimal.ZERO));
+        assertAll(
+                () -> assertEquals("100", cuenta.getSaldo().toPlainString()),
+                () -> assertEquals("60", cuenta.getReservado().toPlainString()),
+                () -> assertEquals("60", reserva.getPendiente().toPlainString()),
+                () -> assertEquals(EstadoReserva.ACTIVA, reserva.getEstado()));
+    }
+
+    @Test
+    void testTransferenciasRespetanReservas() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("100"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("0"));
+        Banco banco = new Banco();
+        cuentaGraciela.reservar(new BigDecimal("80"));
+
+        assertThrows(DineroInsuficienteException.class,
+                () -> banco.transferir(cuentaGraciela, cuentaCecilia, new BigDecimal("30")));
+        List<Transferencia> lote = Arrays.asList(
+                new Transferencia(cuentaGraciela, cuentaCecilia, new BigDecimal("20")),
+                new Transferencia(cuentaGraciela, cuentaCecilia, new BigDecimal("1")));
+        banco.transferirLote(lote);
+
+        assertTrue(lote.get(0).isExitosa());
+        assertFalse(lote.get(1).isExitosa());
+        assertEquals("80", cuentaGraciela.getSaldo().toPlainString());
+    }
+}
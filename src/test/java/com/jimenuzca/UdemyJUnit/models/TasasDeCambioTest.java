@@ -0,0 +1,92 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TasasDeCambioTest {
+
+    private Banco crearBanco() {
+        TasasDeCambio tasas = new TasasDeCambio();
+        tasas.actualizar(Moneda.USD, Moneda.ARS, new BigDecimal("1000.5"));
+        tasas.actualizar(Moneda.ARS, Moneda.USD, new BigDecimal("0.0009995"));
+        Banco banco = new Banco();
+        banco.setProveedorTasas(tasas);
+        return banco;
+    }
+
+    @Test
+    void testMonedas() {
+        assertSame(Moneda.USD, Moneda.de("USD"));
+        assertEquals(2, Moneda.USD.getEscala());
+        assertEquals(0, Moneda.de("JPY").getEscala());
+        assertEquals(RoundingMode.HALF_EVEN, Moneda.ARS.getRedondeo());
+        assertEquals("0.12", Moneda.USD.redondear(new BigDecimal("0.125")).toPlainString());
+        assertThrows(IllegalArgumentException.class, () -> Moneda.de("USD", 4, RoundingMode.DOWN));
+    }
+
+    @Test
+    void testTransferirEntreMonedas() {
+        Banco banco = crearBanco();
+        Cuenta dolares = new Cuenta("Graciela", new BigDecimal("100.00"), Moneda.USD);
+        Cuenta pesos = new Cuenta("Cecilia", new BigDecimal("0.00"), Moneda.ARS);
+
+        banco.transferir(dolares, pesos, new BigDecimal("10.01"));
+        assertEquals("89.99", dolares.getSaldo().toPlainString());
+        // 10.01 * 1000.5 = 10015.005, redondeado a 2 decimales al par
+        assertEquals("10015.00", pesos.getSaldo().toPlainString());
+
+        banco.transferir(pesos, dolares, new BigDecimal("10015.00"));
+        assertEquals("100.00", dolares.getSaldo().toPlainString());
+        assertThrows(DineroInsuficienteException.class,
+                () -> banco.transferir(pesos, dolares, BigDecimal.ONE));
+    }
+
+    @Test
+    void testSinTasaNoModificaSaldos() {
+        Banco banco = crearBanco();
+        Cuenta dolares = new Cuenta("Graciela", new BigDecimal("100.00"), Moneda.USD);
+        Cuenta euros = new Cuenta("Cecilia", new BigDecimal("0.00"), Moneda.EUR);
+
+        assertThrows(IllegalStateException.class, () -> banco.transferir(dolares, euros, BigDecimal.TEN));
+        assertThrows(IllegalStateException.class, () -> new Banco().transferir(dolares, euros, BigDecimal.TEN));
+        assertEquals("100.00", dolares.getSaldo().toPlainString());
+        assertEquals("0.00", euros.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testLoteEntreMonedas() {
+        Banco banco = crearBanco();
+        Cuenta dolares = new Cuenta("Graciela", new BigDecimal("10.00"), Moneda.USD);
+        Cuenta pesos = new Cuenta("Cecilia", new BigDecimal("0.00"), Moneda.ARS);
+        Cuenta sinMoneda = new Cuenta("Andres", new BigDecimal("0"));
+
+        List<Transferencia> lote = Arrays.asList(
+                new Transferencia(dolares, pesos, new BigDecimal("2.00")),
+                new Transferencia(pesos, sinMoneda, new BigDecimal("500")));
+        banco.transferirLote(lote);
+
+        assertTrue(lote.stream().allMatch(Transferencia::isExitosa));
+        assertEquals("2001.00", lote.get(0).getMontoAcreditado().toPlainString());
+        assertEquals("8.00", dolares.getSaldo().toPlainString());
+        assertEquals("1501.00", pesos.getSaldo().toPlainString());
+        assertEquals("500", sinMoneda.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testActualizarTasa() {
+        TasasDeCambio tasas = new TasasDeCambio();
+        assertEquals(BigDecimal.ONE, tasas.tasa(Moneda.EUR, Moneda.EUR));
+        assertThrows(IllegalStateException.class, () -> tasas.tasa(Moneda.EUR, Moneda.USD));
+        tasas.actualizar(Moneda.EUR, Moneda.USD, new BigDecimal("1.08"));
+        tasas.actualizar(Moneda.EUR, Moneda.USD, new BigDecimal("1.09"));
+        assertEquals("1.09", tasas.tasa(Moneda.EUR, Moneda.USD).toPlainString());
+        assertThrows(IllegalArgumentException.class, () -> tasas.actualizar(Moneda.EUR, Moneda.ARS, BigDecimal.ZERO));
+    }
+}
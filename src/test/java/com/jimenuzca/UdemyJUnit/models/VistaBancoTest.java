@@ -0,0 +1,132 @@
+package com.jimenuzca.UdemyJUnit.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VistaBancoTest {
+
+    @Test
+    void testVistaNoCambia() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("500"));
+        Banco banco = new Banco();
+        banco.addCuenta(cuentaGraciela);
+        banco.addCuenta(cuentaCecilia);
+
+        try (VistaBanco vista = banco.vista()) {
+            banco.transferir(cuentaGraciela, cuentaCecilia, new BigDecimal("300"));
+            cuentaCecilia.credito(new BigDecimal("5"));
+            banco.addCuenta(new Cuenta("Andres", new BigDecimal("50")));
+            banco.removeCuenta(cuentaGraciela);
+
+            assertAll(
+                    () -> assertEquals("1000", vista.saldo(cuentaGraciela).toPlainString()),
+                    () -> assertEquals("500", vista.saldo(cuentaCecilia).toPlainString()),
+                    () -> assertEquals(Arrays.asList(cuentaGraciela, cuentaCecilia), vista.getCuentas()),
+                    () -> assertEquals("1500", vista.getSaldoTotal().toPlainString()));
+        }
+        try (VistaBanco vista = banco.vista()) {
+            assertNull(vista.saldo(cuentaGraciela));
+            assertEquals("805", vista.saldo(cuentaCecilia).toPlainString());
+            assertEquals("855", vista.getSaldoTotal().toPlainString());
+        }
+    }
+
+    @Test
+    void testVistasDuranteTransferencias() throws InterruptedException {
+        Banco banco = new Banco();
+        for (int i = 0; i < 200; i++) {
+            banco.addCuenta(new Cuenta("Persona " + i, new BigDecimal("1000")));
+        }
+        BigDecimal total = new BigDecimal("200000");
+        List<Cuenta> cuentas = banco.copiaCuentas();
+        AtomicBoolean terminar = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int h = 0; h < 4; h++) {
+            long semilla = h;
+            executor.submit(() -> {
+                Random random = new Random(semilla);
+                while (!terminar.get()) {
+                    if (random.nextInt(10) == 0) {
+                        List<Transferencia> lote = new ArrayList<>();
+                        for (int i = 0; i < 5; i++) {
+                            lote.add(new Transferencia(cuentas.get(random.nextInt(cuentas.size())),
+                                    cuentas.get(random.nextInt(cuentas.size())), new BigDecimal(random.nextInt(500))));
+                        }
+                        banco.transferirLote(lote);
+                    } else {
+                        banco.intentarTransferir(cuentas.get(random.nextInt(cuentas.size())),
+                                cuentas.get(random.nextInt(cuentas.size())), new BigDecimal(random.nextInt(500)));
+                    }
+                }
+            });
+        }
+
+        // cada vista tiene que ver las transferencias completas o nada, asi que el total siempre es el mismo
+        for (int i = 0; i < 500; i++) {
+            try (VistaBanco vista = banco.vista()) {
+                assertEquals(0, total.compareTo(vista.getSaldoTotal()), "Version " + vista.getVersion());
+            }
+        }
+        terminar.set(true);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+
+    @Test
+    void testSinVistasAbiertasNoSeGuardanVersiones() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("500"));
+        Banco banco = new Banco();
+        banco.addCuenta(cuentaGraciela);
+        banco.addCuenta(cuentaCecilia);
+        long antes;
+        try (VistaBanco vista = banco.vista()) {
+            antes = vista.getVersion();
+        }
+
+        for (int i = 0; i < 100; i++) {
+            banco.transferir(cuentaGraciela, cuentaCecilia, BigDecimal.ONE);
+        }
+        // los movimientos no dejaron versiones pendientes ni movieron el reloj
+        assertFalse(cuentaGraciela.getVersiones().tienePendientes());
+        try (VistaBanco vista = banco.vista()) {
+            assertEquals(antes, vista.getVersion());
+            assertEquals("900", vista.saldo(cuentaGraciela).toPlainString());
+            assertEquals("600", vista.saldo(cuentaCecilia).toPlainString());
+        }
+    }
+
+    @Test
+    void testCuentasQuitadasSinVistasSeSueltan() {
+        Banco banco = new Banco();
+        List<Cuenta> cuentas = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Cuenta cuenta = new Cuenta("Persona " + i, new BigDecimal("100"));
+            cuentas.add(cuenta);
+            banco.addCuenta(cuenta);
+        }
+        for (int i = 0; i < 8; i++) {
+            banco.removeCuenta(cuentas.get(i));
+        }
+
+        try (VistaBanco vista = banco.vista()) {
+            assertEquals(Arrays.asList(cuentas.get(8), cuentas.get(9)), vista.getCuentas());
+            assertNull(vista.saldo(cuentas.get(0)));
+            assertEquals("100", vista.saldo(cuentas.get(9)).toPlainString());
+            // el registro ya no tiene las cuentas quitadas
+            assertEquals(1, cuentas.get(9).getVersiones().getIndice());
+        }
+    }
+}
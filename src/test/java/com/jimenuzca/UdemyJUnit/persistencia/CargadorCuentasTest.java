@@ -0,0 +1,59 @@
+package com.jimenuzca.UdemyJUnit.persistencia;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CargadorCuentasTest {
+
+    @TempDir
+    Path carpeta;
+
+    @Test
+    void testCargarCsv() throws IOException {
+        Path archivo = carpeta.resolve("cuentas.csv");
+        Files.write(archivo, "Graciela,2500.50\nCecilia,1250\r\n\nAndres,-0.05\nJose,7".getBytes(StandardCharsets.UTF_8));
+        Banco credicoop = new Banco();
+
+        assertEquals(4, CargadorCuentas.cargarCsv(archivo, credicoop));
+        assertAll(
+                () -> assertEquals("2500.50", credicoop.buscarPorPersona("Graciela").get().getSaldo().toPlainString()),
+                () -> assertEquals("1250", credicoop.buscarPorPersona("Cecilia").get().getSaldo().toPlainString()),
+                () -> assertEquals("-0.05", credicoop.buscarPorPersona("Andres").get().getSaldo().toPlainString()),
+                () -> assertEquals("7", credicoop.buscarPorPersona("Jose").get().getSaldo().toPlainString()),
+                () -> assertSame(credicoop, credicoop.getCuentas().get(0).getBanco()));
+    }
+
+    @Test
+    void testCargarCsvEnBloquesConservaElOrden() throws IOException {
+        Path archivo = carpeta.resolve("cuentas.csv");
+        try (Writer salida = Files.newBufferedWriter(archivo)) {
+            for (int i = 0; i < 10_000; i++) {
+                salida.write("Persona " + i + "," + i + ".25\n");
+            }
+        }
+        Banco banco = new Banco();
+
+        // bloques chicos para que el archivo se reparta en muchos bloques
+        assertEquals(10_000, CargadorCuentas.cargarCsv(archivo, banco, 1000));
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals("Persona " + i, banco.getCuentas().get(i).getPersona());
+            assertEquals(i + ".25", banco.getCuentas().get(i).getSaldo().toPlainString());
+        }
+    }
+
+    @Test
+    void testFormatoInvalido() throws IOException {
+        Path archivo = carpeta.resolve("cuentas.csv");
+        Files.write(archivo, "Graciela,2500\nCecilia,12a\n".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> CargadorCuentas.cargarCsv(archivo, new Banco()));
+    }
+}
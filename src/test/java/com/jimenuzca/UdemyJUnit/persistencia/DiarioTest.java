@@ -0,0 +1,121 @@
+package com.jimenuzca.UdemyJUnit.persistencia;
+
+import com.jimenuzca.UdemyJUnit.exceptions.DineroInsuficienteException;
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.Moneda;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @TempDir nos da una carpeta temporal nueva para cada test, JUnit la borra al terminar
+ */
+class DiarioTest {
+
+    @TempDir
+    Path carpeta;
+
+    @Test
+    void testReproducirDiario() throws IOException {
+        Path archivo = carpeta.resolve("diario.bin");
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("2500"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1250"));
+        Banco credicoop = new Banco();
+        credicoop.addCuenta(cuentaGraciela);
+        credicoop.addCuenta(cuentaCecilia);
+
+        try (Diario diario = new Diario(archivo, 10)) {
+            credicoop.addObservador(diario);
+            credicoop.transferir(cuentaGraciela, cuentaCecilia, new BigDecimal("925.50"));
+            cuentaCecilia.credito(new BigDecimal("0.25"));
+            // el debito rechazado no se anota en el diario
+            assertThrows(DineroInsuficienteException.class, () -> cuentaGraciela.debito(new BigDecimal("5000")));
+        }
+        assertEquals(3, Diario.registros(archivo));
+
+        // reiniciamos: mismas cuentas (mismo id) con el saldo que tenian al empezar el diario
+        Banco recuperado = new Banco();
+        recuperado.addCuenta(new Cuenta(cuentaGraciela.getId(), "Graciela", new BigDecimal("2500")));
+        recuperado.addCuenta(new Cuenta(cuentaCecilia.getId(), "Cecilia", new BigDecimal("1250")));
+        assertEquals(3, Diario.reproducir(archivo, recuperado));
+
+        assertEquals("1574.50", recuperado.buscarPorPersona("Graciela").get().getSaldo().toPlainString());
+        assertEquals("2175.75", recuperado.buscarPorPersona("Cecilia").get().getSaldo().toPlainString());
+    }
+
+    @Test
+    void testMontoGrandeYAltaDeCuentas() throws IOException {
+        Path archivo = carpeta.resolve("diario.bin");
+        BigDecimal grande = new BigDecimal("100000000000000000000");
+        Cuenta cuentaGraciela = new Cuenta("Graciela", grande.add(BigDecimal.TEN));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", BigDecimal.ZERO);
+        Banco credicoop = new Banco();
+        credicoop.setNombre("Banco Credicoop");
+        credicoop.addCuenta(cuentaGraciela);
+        Cuenta cuentaAndres;
+
+        try (Diario diario = new Diario(archivo, 10)) {
+            credicoop.addObservador(diario);
+            // las cuentas que se agregan despues de registrar el diario quedan anotadas con su saldo inicial
+            credicoop.addCuenta(cuentaCecilia);
+            credicoop.transferir(cuentaGraciela, cuentaCecilia, grande);
+            cuentaAndres = new Cuenta("Andres", new BigDecimal("12.50"), Moneda.ARS);
+            credicoop.addCuenta(cuentaAndres);
+            cuentaAndres.debito(new BigDecimal("0.50"));
+            cuentaAndres.devengar(LocalDate.of(2024, 3, 15), cuentaAndres.getSaldo(), new BigDecimal("12.01"));
+        }
+        assertEquals("10", cuentaGraciela.getSaldo().toPlainString());
+        assertEquals(grande, cuentaCecilia.getSaldo());
+
+        Banco recuperado = new Banco();
+        recuperado.setNombre("Banco Credicoop");
+        recuperado.addCuenta(new Cuenta(cuentaGraciela.getId(), "Graciela", grande.add(BigDecimal.TEN)));
+        assertEquals(6, Diario.reproducir(archivo, recuperado));
+
+        Cuenta cecilia = recuperado.buscarPorId(cuentaCecilia.getId()).get();
+        Cuenta andres = recuperado.buscarPorId(cuentaAndres.getId()).get();
+        assertAll(
+                () -> assertEquals("10", recuperado.buscarPorPersona("Graciela").get().getSaldo().toPlainString()),
+                () -> assertEquals("Cecilia", cecilia.getPersona()),
+                () -> assertEquals(grande, cecilia.getSaldo()),
+                () -> assertEquals("12.01", andres.getSaldo().toPlainString()),
+                () -> assertEquals(LocalDate.of(2024, 3, 15), andres.getDevengadoHasta()),
+                () -> assertSame(Moneda.ARS, andres.getMoneda()));
+    }
+
+    @Test
+    void testDiarioCompartidoSoloRecuperaLasCuentasDelBanco() throws IOException {
+        Path archivo = carpeta.resolve("diario.bin");
+        Banco credicoop = new Banco();
+        credicoop.setNombre("Banco Credicoop");
+        Banco nacion = new Banco();
+        nacion.setNombre("Banco Nacion");
+        Cuenta cuentaGraciela;
+        Cuenta cuentaCecilia;
+
+        try (Diario diario = new Diario(archivo, 10)) {
+            credicoop.addObservador(diario);
+            nacion.addObservador(diario);
+            cuentaGraciela = new Cuenta("Graciela", new BigDecimal("2500"));
+            credicoop.addCuenta(cuentaGraciela);
+            cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1250"));
+            nacion.addCuenta(cuentaCecilia);
+            cuentaGraciela.debito(new BigDecimal("100"));
+            cuentaCecilia.credito(new BigDecimal("100"));
+        }
+
+        Banco recuperado = new Banco();
+        recuperado.setNombre("Banco Credicoop");
+        assertEquals(2, Diario.reproducir(archivo, recuperado));
+        assertEquals(1, recuperado.getCuentas().size());
+        assertEquals("2400", recuperado.buscarPorId(cuentaGraciela.getId()).get().getSaldo().toPlainString());
+        assertFalse(recuperado.buscarPorId(cuentaCecilia.getId()).isPresent());
+    }
+}
@@ -0,0 +1,112 @@
+package com.jimenuzca.UdemyJUnit.persistencia;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.Moneda;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+
+    @TempDir
+    Path carpeta;
+
+    @Test
+    void testCargarSnapshotYReproducirDiario() throws IOException {
+        Path archivoDiario = carpeta.resolve("diario.bin");
+        Path archivoSnapshot = carpeta.resolve("banco.snap");
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("2500"), Moneda.ARS);
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1250.50"));
+        Banco credicoop = new Banco();
+        credicoop.setNombre("Banco Credicoop");
+        credicoop.addCuenta(cuentaGraciela);
+        credicoop.addCuenta(cuentaCecilia);
+
+        try (Diario diario = new Diario(archivoDiario, 10)) {
+            credicoop.addObservador(diario);
+            credicoop.transferir(cuentaGraciela, cuentaCecilia, new BigDecimal("500"));
+            Snapshot.escribir(credicoop, diario, archivoSnapshot);
+            // estos movimientos quedan solo en el diario
+            credicoop.transferir(cuentaCecilia, cuentaGraciela, new BigDecimal("100.25"));
+            cuentaCecilia.credito(new BigDecimal("1"));
+        }
+
+        Snapshot snapshot = Snapshot.cargar(archivoSnapshot);
+        Banco recuperado = snapshot.getBanco();
+        assertEquals("Banco Credicoop", recuperado.getNombre());
+        assertEquals(2, recuperado.getCuentas().size());
+        assertEquals("2000", recuperado.buscarPorPersona("Graciela").get().getSaldo().toPlainString());
+        assertSame(Moneda.ARS, recuperado.buscarPorPersona("Graciela").get().getMoneda());
+        assertNull(recuperado.buscarPorPersona("Cecilia").get().getMoneda());
+
+        // solo se aplican los tres movimientos posteriores a la foto
+        assertEquals(3, snapshot.reproducir(archivoDiario));
+        assertAll(
+                () -> assertEquals(cuentaGraciela.getSaldo(), recuperado.buscarPorId(cuentaGraciela.getId()).get().getSaldo()),
+                () -> assertEquals(cuentaCecilia.getSaldo(), recuperado.buscarPorId(cuentaCecilia.getId()).get().getSaldo()),
+                () -> assertEquals("1651.25", recuperado.buscarPorPersona("Cecilia").get().getSaldo().toPlainString()));
+    }
+
+    @Test
+    void testLaFotoNoQuedaAdelantadaAlDiario() throws IOException {
+        Path archivoDiario = carpeta.resolve("diario.bin");
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("2500"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1250.50"));
+        Banco credicoop = new Banco();
+        credicoop.setNombre("Banco Credicoop");
+        credicoop.addCuenta(cuentaGraciela);
+        credicoop.addCuenta(cuentaCecilia);
+
+        // con un intervalo tan largo el diario solo pasa a disco si lo pide la foto
+        try (Diario diario = new Diario(archivoDiario, 60_000)) {
+            credicoop.addObservador(diario);
+            credicoop.transferir(cuentaGraciela, cuentaCecilia, new BigDecimal("500"));
+            Snapshot.escribir(credicoop, diario, carpeta.resolve("banco.snap"));
+            // todo lo que cuenta la foto ya esta escrito en el diario
+            assertEquals(diario.posicion() * Diario.TAMANIO_REGISTRO, Files.size(archivoDiario));
+        }
+    }
+
+    @Test
+    void testFotoProgramadaQueFallaNoCortaLasSiguientes() throws IOException, InterruptedException {
+        Path archivoDiario = carpeta.resolve("diario.bin");
+        // la carpeta de la foto todavia no existe: las primeras fotos fallan
+        Path archivoSnapshot = carpeta.resolve("fotos").resolve("banco.snap");
+        Banco credicoop = new Banco();
+        credicoop.addCuenta(new Cuenta("Graciela", new BigDecimal("2500")));
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+        try (Diario diario = new Diario(archivoDiario, 10)) {
+            credicoop.addObservador(diario);
+            Snapshot.Programacion programacion = Snapshot.programar(executor, credicoop, diario, archivoSnapshot,
+                    5, TimeUnit.MILLISECONDS);
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (programacion.getFotosFallidas() == 0 && System.nanoTime() < limite) {
+                Thread.sleep(1);
+            }
+            assertTrue(programacion.getFotosFallidas() > 0);
+            assertTrue(programacion.getUltimoError() instanceof IOException);
+
+            // las fotos siguientes siguen corriendo y salen bien
+            Files.createDirectories(archivoSnapshot.getParent());
+            while (!Files.exists(archivoSnapshot) && System.nanoTime() < limite) {
+                Thread.sleep(1);
+            }
+            programacion.cancelar();
+            assertEquals(1, Snapshot.cargar(archivoSnapshot).getBanco().getCuentas().size());
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.jimenuzca.UdemyJUnit.servicios;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.ResultadoDebito;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CamaraCompensacionTest {
+
+    private Banco crearBanco(String nombre, Cuenta... cuentas) {
+        Banco banco = new Banco();
+        banco.setNombre(nombre);
+        for (Cuenta cuenta : cuentas) {
+            banco.addCuenta(cuenta);
+        }
+        return banco;
+    }
+
+    @Test
+    void testCompensarSoloLiquidaNetos() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1000"));
+        Cuenta cuentaAndres = new Cuenta("Andres", new BigDecimal("1000"));
+        Banco credicoop = crearBanco("Banco Credicoop", cuentaGraciela);
+        Banco nacion = crearBanco("Banco Nacion", cuentaCecilia);
+        Banco provincia = crearBanco("Banco Provincia", cuentaAndres);
+        Banco central = crearBanco("Banco Central");
+        Cuenta liquidacionCredicoop = new Cuenta("Credicoop", new BigDecimal("500"));
+        Cuenta liquidacionNacion = new Cuenta("Nacion", new BigDecimal("500"));
+        Cuenta liquidacionProvincia = new Cuenta("Provincia", new BigDecimal("500"));
+        CamaraCompensacion camara = new CamaraCompensacion(central);
+        camara.adherir(credicoop, liquidacionCredicoop);
+        camara.adherir(nacion, liquidacionNacion);
+        camara.adherir(provincia, liquidacionProvincia);
+
+        CompletableFuture<ResultadoDebito> primera = camara.encolar(cuentaGraciela, cuentaCecilia, new BigDecimal("300"));
+        camara.encolar(cuentaCecilia, cuentaAndres, new BigDecimal("200"));
+        camara.encolar(cuentaAndres, cuentaGraciela, new BigDecimal("250"));
+        camara.encolar(cuentaCecilia, cuentaGraciela, new BigDecimal("100"));
+        // el debito al cliente es inmediato, el credito espera la compensacion
+        assertEquals("700", cuentaGraciela.getSaldo().toPlainString());
+        assertFalse(primera.isDone());
+        assertEquals(ResultadoDebito.DINERO_INSUFICIENTE,
+                camara.encolar(cuentaGraciela, cuentaAndres, new BigDecimal("5000")).join());
+        assertEquals(4, camara.getPendientes());
+
+        Map<Banco, BigDecimal> netos = camara.compensar();
+
+        assertAll(
+                () -> assertEquals("50", netos.get(credicoop).toPlainString()),
+                () -> assertEquals("0", netos.get(nacion).toPlainString()),
+                () -> assertEquals("-50", netos.get(provincia).toPlainString()),
+                () -> assertEquals(ResultadoDebito.APROBADO, primera.join()),
+                () -> assertEquals("1050", cuentaGraciela.getSaldo().toPlainString()),
+                () -> assertEquals("1000", cuentaCecilia.getSaldo().toPlainString()),
+                () -> assertEquals("950", cuentaAndres.getSaldo().toPlainString()),
+                () -> assertEquals("550", liquidacionCredicoop.getSaldo().toPlainString()),
+                () -> assertEquals("500", liquidacionNacion.getSaldo().toPlainString()),
+                () -> assertEquals("450", liquidacionProvincia.getSaldo().toPlainString()),
+                () -> assertEquals(0, camara.getPendientes()));
+    }
+
+    @Test
+    void testBancoSinFondosDeLiquidacion() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1000"));
+        Banco credicoop = crearBanco("Banco Credicoop", cuentaGraciela);
+        Banco nacion = crearBanco("Banco Nacion", cuentaCecilia);
+        Cuenta liquidacionCredicoop = new Cuenta("Credicoop", new BigDecimal("100"));
+        Cuenta liquidacionNacion = new Cuenta("Nacion", new BigDecimal("100"));
+        CamaraCompensacion camara = new CamaraCompensacion(crearBanco("Banco Central"));
+        camara.adherir(credicoop, liquidacionCredicoop);
+        camara.adherir(nacion, liquidacionNacion);
+
+        CompletableFuture<ResultadoDebito> grande = camara.encolar(cuentaGraciela, cuentaCecilia, new BigDecimal("600"));
+        CompletableFuture<ResultadoDebito> chica = camara.encolar(cuentaCecilia, cuentaGraciela, new BigDecimal("50"));
+        camara.compensar();
+
+        // Credicoop debia 550 y tenia 100: se rechaza su envio y se le devuelve a Graciela
+        assertAll(
+                () -> assertEquals(ResultadoDebito.DINERO_INSUFICIENTE, grande.join()),
+                () -> assertEquals(ResultadoDebito.APROBADO, chica.join()),
+                () -> assertEquals("1050", cuentaGraciela.getSaldo().toPlainString()),
+                () -> assertEquals("950", cuentaCecilia.getSaldo().toPlainString()),
+                () -> assertEquals("150", liquidacionCredicoop.getSaldo().toPlainString()),
+                () -> assertEquals("50", liquidacionNacion.getSaldo().toPlainString()));
+    }
+
+    @Test
+    void testSoloEntreBancosDistintos() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1000"));
+        Banco credicoop = crearBanco("Banco Credicoop", cuentaGraciela, cuentaCecilia);
+        CamaraCompensacion camara = new CamaraCompensacion(crearBanco("Banco Central"));
+        camara.adherir(credicoop, new Cuenta("Credicoop", BigDecimal.ZERO));
+
+        assertThrows(IllegalArgumentException.class, () -> camara.encolar(cuentaGraciela, cuentaCecilia, BigDecimal.ONE));
+        assertEquals("1000", cuentaGraciela.getSaldo().toPlainString());
+    }
+
+    // simula una cuenta de liquidacion que se debita por fuera entre el calculo de los netos y la liquidacion
+    private static class LiquidacionQueMiente extends Cuenta {
+        private final BigDecimal disponibleInformado;
+
+        LiquidacionQueMiente(String persona, BigDecimal saldo, BigDecimal disponibleInformado) {
+            super(persona, saldo);
+            this.disponibleInformado = disponibleInformado;
+        }
+
+        @Override
+        public BigDecimal getSaldoDisponible() {
+            if (disponibleInformado == null) {
+                throw new IllegalStateException("Falla de la cuenta de liquidacion");
+            }
+            return disponibleInformado;
+        }
+    }
+
+    @Test
+    void testMovimientoDeLiquidacionRechazadoSeRevierte() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1000"));
+        Cuenta cuentaAndres = new Cuenta("Andres", new BigDecimal("1000"));
+        Banco credicoop = crearBanco("Banco Credicoop", cuentaGraciela);
+        Banco nacion = crearBanco("Banco Nacion", cuentaCecilia);
+        Banco provincia = crearBanco("Banco Provincia", cuentaAndres);
+        Cuenta liquidacionCredicoop = new Cuenta("Credicoop", new BigDecimal("500"));
+        Cuenta liquidacionNacion = new Cuenta("Nacion", new BigDecimal("500"));
+        Cuenta liquidacionProvincia = new LiquidacionQueMiente("Provincia", new BigDecimal("100"), new BigDecimal("1000"));
+        CamaraCompensacion camara = new CamaraCompensacion(crearBanco("Banco Central"));
+        camara.adherir(credicoop, liquidacionCredicoop);
+        camara.adherir(nacion, liquidacionNacion);
+        camara.adherir(provincia, liquidacionProvincia);
+
+        CompletableFuture<ResultadoDebito> deGraciela = camara.encolar(cuentaGraciela, cuentaCecilia, new BigDecimal("300"));
+        CompletableFuture<ResultadoDebito> deAndres = camara.encolar(cuentaAndres, cuentaCecilia, new BigDecimal("200"));
+        Map<Banco, BigDecimal> netos = camara.compensar();
+
+        // el pago de Provincia se rechaza al liquidar: se revierte el de Credicoop y se liquida sin Provincia
+        assertAll(
+                () -> assertEquals(ResultadoDebito.APROBADO, deGraciela.join()),
+                () -> assertEquals(ResultadoDebito.DINERO_INSUFICIENTE, deAndres.join()),
+                () -> assertEquals("300", netos.get(nacion).toPlainString()),
+                () -> assertEquals("1000", cuentaAndres.getSaldo().toPlainString()),
+                () -> assertEquals("1300", cuentaCecilia.getSaldo().toPlainString()),
+                () -> assertEquals("200", liquidacionCredicoop.getSaldo().toPlainString()),
+                () -> assertEquals("800", liquidacionNacion.getSaldo().toPlainString()),
+                () -> assertEquals("100", liquidacionProvincia.getSaldo().toPlainString()));
+    }
+
+    @Test
+    void testCicloConErrorDevuelveElDinero() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1000"));
+        Banco credicoop = crearBanco("Banco Credicoop", cuentaGraciela);
+        Banco nacion = crearBanco("Banco Nacion", cuentaCecilia);
+        CamaraCompensacion camara = new CamaraCompensacion(crearBanco("Banco Central"));
+        camara.adherir(credicoop, new LiquidacionQueMiente("Credicoop", new BigDecimal("500"), null));
+        camara.adherir(nacion, new Cuenta("Nacion", new BigDecimal("500")));
+
+        CompletableFuture<ResultadoDebito> resultado = camara.encolar(cuentaGraciela, cuentaCecilia, new BigDecimal("300"));
+        assertThrows(IllegalStateException.class, camara::compensar);
+
+        CompletionException error = assertThrows(CompletionException.class, resultado::join);
+        assertEquals("Falla de la cuenta de liquidacion", error.getCause().getMessage());
+        assertEquals("1000", cuentaGraciela.getSaldo().toPlainString());
+        assertEquals("1000", cuentaCecilia.getSaldo().toPlainString());
+    }
+
+    // falla la primera vez que se consulta, despues informa el saldo real
+    private static class LiquidacionQueFallaUnaVez extends Cuenta {
+        private final AtomicBoolean fallo = new AtomicBoolean();
+
+        LiquidacionQueFallaUnaVez(String persona, BigDecimal saldo) {
+            super(persona, saldo);
+        }
+
+        @Override
+        public BigDecimal getSaldoDisponible() {
+            if (fallo.compareAndSet(false, true)) {
+                throw new IllegalStateException("Falla de la cuenta de liquidacion");
+            }
+            return super.getSaldoDisponible();
+        }
+    }
+
+    @Test
+    void testCicloProgramadoQueFallaNoCortaLosSiguientes() throws InterruptedException {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1000"));
+        Banco credicoop = crearBanco("Banco Credicoop", cuentaGraciela);
+        Banco nacion = crearBanco("Banco Nacion", cuentaCecilia);
+        CamaraCompensacion camara = new CamaraCompensacion(crearBanco("Banco Central"));
+        camara.adherir(credicoop, new LiquidacionQueFallaUnaVez("Credicoop", new BigDecimal("500")));
+        camara.adherir(nacion, new Cuenta("Nacion", new BigDecimal("500")));
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            camara.programar(executor, 5, TimeUnit.MILLISECONDS);
+
+            CompletableFuture<ResultadoDebito> primera = camara.encolar(cuentaGraciela, cuentaCecilia, new BigDecimal("300"));
+            assertThrows(CompletionException.class, primera::join);
+            // el resultado se completa antes de que el ciclo termine de fallar
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (camara.getCiclosFallidos() == 0 && System.nanoTime() < limite) {
+                Thread.sleep(1);
+            }
+            assertEquals(1, camara.getCiclosFallidos());
+            assertEquals("Falla de la cuenta de liquidacion", camara.getUltimoError().getMessage());
+
+            // los ciclos siguientes siguen corriendo y liquidan
+            CompletableFuture<ResultadoDebito> segunda = camara.encolar(cuentaGraciela, cuentaCecilia, new BigDecimal("200"));
+            assertEquals(ResultadoDebito.APROBADO, segunda.join());
+            assertEquals("800", cuentaGraciela.getSaldo().toPlainString());
+            assertEquals("1200", cuentaCecilia.getSaldo().toPlainString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
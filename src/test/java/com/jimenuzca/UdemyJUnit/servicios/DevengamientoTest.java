@@ -0,0 +1,137 @@
+package com.jimenuzca.UdemyJUnit.servicios;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DevengamientoTest {
+
+    private static final LocalDate HOY = LocalDate.of(2024, 3, 15);
+
+    @TempDir
+    Path carpeta;
+
+    // 36.5% anual en 365 dias: 0.1% diario. Desde 10000 el 73% anual: 0.2% diario
+    private TablaTasas crearTabla(String comision) {
+        return new TablaTasas(365, new BigDecimal(comision))
+                .tramo(new BigDecimal("100"), new BigDecimal("0.365"))
+                .tramo(new BigDecimal("10000"), new BigDecimal("0.73"));
+    }
+
+    @Test
+    void testDevengarPorTramos() {
+        Cuenta chica = new Cuenta("Graciela", new BigDecimal("50.00"));
+        Cuenta mediana = new Cuenta("Cecilia", new BigDecimal("1234.55"));
+        Cuenta grande = new Cuenta("Andres", new BigDecimal("20000"));
+        Cuenta conReserva = new Cuenta("John", new BigDecimal("0.50"));
+        conReserva.reservar(new BigDecimal("0.40"));
+        Banco banco = new Banco();
+        banco.addCuenta(chica);
+        banco.addCuenta(mediana);
+        banco.addCuenta(grande);
+        banco.addCuenta(conReserva);
+
+        Devengamiento devengamiento = new Devengamiento(crearTabla("0.25"), 2);
+        AtomicLong ultimoAvance = new AtomicLong();
+        devengamiento.setObservadorAvance((hechas, todas) -> ultimoAvance.set(hechas));
+        assertEquals(4, devengamiento.ejecutar(banco, HOY));
+
+        assertAll(
+                () -> assertEquals("49.75", chica.getSaldo().toPlainString()),
+                // 1234.55 * 0.001 = 1.23455 -> 1.23 (al par)
+                () -> assertEquals("1235.53", mediana.getSaldo().toPlainString()),
+                () -> assertEquals("20040", grande.getSaldo().toPlainString()),
+                // la comision solo se cobra hasta lo reservado
+                () -> assertEquals("0.40", conReserva.getSaldo().toPlainString()),
+                () -> assertEquals(4, devengamiento.getProcesadas()),
+                () -> assertEquals(4, ultimoAvance.get()),
+                () -> assertEquals(0, banco.getTotales().getSaldoTotal().compareTo(new BigDecimal("21325.68"))),
+                () -> assertEquals(HOY, mediana.getDevengadoHasta()));
+        // el mismo dia no se vuelve a cobrar; el siguiente si
+        assertEquals(0, devengamiento.ejecutar(banco, HOY));
+        assertEquals("1235.53", mediana.getSaldo().toPlainString());
+        assertEquals(4, devengamiento.ejecutar(banco, HOY.plusDays(1)));
+        assertEquals("1236.52", mediana.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testCalculoConLongIgualQueBigDecimal() {
+        Devengamiento devengamiento = new Devengamiento(crearTabla("0.01"), 100);
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal saldo = BigDecimal.valueOf(random.nextLong() & Long.MAX_VALUE >>> random.nextInt(63), random.nextInt(5));
+            long tasa = saldo.compareTo(new BigDecimal("10000")) >= 0 ? 2_000_000 : saldo.compareTo(new BigDecimal("100")) >= 0 ? 1_000_000 : 0;
+            BigDecimal esperado = saldo.add(saldo.multiply(BigDecimal.valueOf(tasa, 9)).setScale(saldo.scale(), RoundingMode.HALF_EVEN))
+                    .subtract(new BigDecimal("0.01")).setScale(saldo.scale(), RoundingMode.HALF_EVEN);
+            assertEquals(esperado, devengamiento.calcular(saldo), saldo::toPlainString);
+        }
+    }
+
+    @Test
+    void testComisionQueNoEntraEnLongConEscalasAltas() {
+        // 10 con escala 18 no entra en un long: esos saldos se calculan con BigDecimal
+        TablaTasas tabla = new TablaTasas(365, BigDecimal.TEN).tramo(BigDecimal.ZERO, new BigDecimal("0.365"));
+        Devengamiento devengamiento = new Devengamiento(tabla, 100);
+        assertEquals("1992.00", devengamiento.calcular(new BigDecimal("2000.00")).toPlainString());
+        assertEquals("-8.999000000000000000", devengamiento.calcular(new BigDecimal("1.000000000000000000")).toPlainString());
+    }
+
+    @Test
+    void testTasaNegativaRedondeaIgualQueBigDecimal() {
+        TablaTasas tabla = new TablaTasas(365, BigDecimal.ZERO).tramo(BigDecimal.ZERO, new BigDecimal("-0.365"));
+        Devengamiento devengamiento = new Devengamiento(tabla, 100);
+        // 1234.5 * -0.001 = -1.2345 -> -1.23 y 2.5 * -0.001 = -0.0025 -> -0.00 (al par, igual que con saldo positivo)
+        assertEquals("1233.27", devengamiento.calcular(new BigDecimal("1234.50")).toPlainString());
+        assertEquals("2.50", devengamiento.calcular(new BigDecimal("2.50")).toPlainString());
+        assertEquals(-2, Devengamiento.interes(2500, -1_000_000_000L / 1000));
+        assertEquals(-2, Devengamiento.interes(-2500, 1_000_000_000L / 1000));
+        assertEquals(-4, Devengamiento.interes(3500, -1_000_000_000L / 1000));
+    }
+
+    @Test
+    void testRetomarDesdePuntoDeControl() throws IOException {
+        Banco banco = new Banco();
+        for (int i = 0; i < 10; i++) {
+            banco.addCuenta(new Cuenta("Persona " + i, new BigDecimal("1000.00")));
+        }
+        List<Cuenta> cuentas = banco.getCuentas();
+        Path punto = carpeta.resolve("devengamiento.pc");
+        // simulamos una corrida anterior que termino los bloques de las cuentas 0-2 y 6-7, y dejo un registro cortado.
+        // Ademas alcanzo a devengar la cuenta 3, de un bloque que quedo a medias
+        try (DataOutputStream salida = new DataOutputStream(Files.newOutputStream(punto))) {
+            salida.writeLong(-1);
+            salida.writeLong(HOY.toEpochDay());
+            salida.writeLong(cuentas.get(0).getId());
+            salida.writeLong(cuentas.get(2).getId());
+            salida.writeLong(cuentas.get(6).getId());
+            salida.writeLong(cuentas.get(7).getId());
+            salida.writeLong(cuentas.get(8).getId());
+        }
+
+        Devengamiento devengamiento = new Devengamiento(crearTabla("0"), 3);
+        assertTrue(cuentas.get(3).devengar(HOY, cuentas.get(3).getSaldo(), new BigDecimal("1001.00")));
+        assertEquals(4, devengamiento.ejecutar(banco, HOY, punto));
+        for (int i = 0; i < 10; i++) {
+            boolean salteada = i <= 2 || i == 6 || i == 7;
+            assertEquals(salteada ? "1000.00" : "1001.00", cuentas.get(i).getSaldo().toPlainString(), "Cuenta " + i);
+        }
+        // una tercera corrida con el mismo punto de control no tiene nada que hacer
+        assertEquals(0, devengamiento.ejecutar(banco, HOY, punto));
+        // el punto de control de ayer no saltea nada hoy
+        assertEquals(10, devengamiento.ejecutar(banco, HOY.plusDays(1), punto));
+    }
+}
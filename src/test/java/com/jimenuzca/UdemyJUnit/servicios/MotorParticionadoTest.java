@@ -0,0 +1,130 @@
+package com.jimenuzca.UdemyJUnit.servicios;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.ResultadoDebito;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MotorParticionadoTest {
+
+    @Test
+    void testTransferenciasEntreParticiones() {
+        Banco banco = new Banco();
+        for (int i = 0; i < 50; i++) {
+            banco.addCuenta(new Cuenta("Persona " + i, new BigDecimal("100.00")));
+        }
+        List<Cuenta> cuentas = banco.getCuentas();
+
+        List<CompletableFuture<ResultadoDebito>> resultados = new ArrayList<>();
+        try (MotorParticionado motor = new MotorParticionado(banco, 4, 2, 1024)) {
+            Random random = new Random(42);
+            for (int i = 0; i < 20_000; i++) {
+                long origen = cuentas.get(random.nextInt(cuentas.size())).getId();
+                long destino = cuentas.get(random.nextInt(cuentas.size())).getId();
+                resultados.add(motor.transferir(origen, destino, new BigDecimal(random.nextInt(30))));
+            }
+            resultados.forEach(CompletableFuture::join);
+            motor.volcar().join();
+        }
+
+        // el dinero se conserva y ninguna cuenta queda en negativo
+        BigDecimal total = cuentas.stream().map(Cuenta::getSaldo).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals("5000.00", total.toPlainString());
+        assertTrue(cuentas.stream().noneMatch(cta -> cta.getSaldo().signum() < 0));
+        assertTrue(resultados.stream().anyMatch(f -> f.join() == ResultadoDebito.DINERO_INSUFICIENTE));
+    }
+
+    @Test
+    void testDebitoCreditoYSaldo() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("2500"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", new BigDecimal("1250"));
+        Banco credicoop = new Banco();
+        credicoop.addCuenta(cuentaGraciela);
+        credicoop.addCuenta(cuentaCecilia);
+
+        try (MotorParticionado motor = new MotorParticionado(credicoop, 2, 2, 16)) {
+            assertEquals(ResultadoDebito.APROBADO, motor.transferir(cuentaGraciela.getId(), cuentaCecilia.getId(), new BigDecimal("925")).join());
+            assertEquals(ResultadoDebito.DINERO_INSUFICIENTE, motor.debito(cuentaGraciela.getId(), new BigDecimal("5000")).join());
+            motor.credito(cuentaGraciela.getId(), new BigDecimal("0.50")).join();
+
+            assertEquals("1575.50", motor.saldo(cuentaGraciela.getId()).join().toPlainString());
+            assertEquals("2175.00", motor.saldo(cuentaCecilia.getId()).join().toPlainString());
+        }
+    }
+
+    @Test
+    void testVolcarConTransferenciasEnViaje() {
+        Banco banco = new Banco();
+        for (int i = 0; i < 50; i++) {
+            banco.addCuenta(new Cuenta("Persona " + i, new BigDecimal("100.00")));
+        }
+        List<Cuenta> cuentas = banco.getCuentas();
+
+        try (MotorParticionado motor = new MotorParticionado(banco, 4, 2, 1024)) {
+            Random random = new Random(7);
+            List<CompletableFuture<ResultadoDebito>> resultados = new ArrayList<>();
+            for (int vuelta = 0; vuelta < 20; vuelta++) {
+                for (int i = 0; i < 2_000; i++) {
+                    long origen = cuentas.get(random.nextInt(cuentas.size())).getId();
+                    long destino = cuentas.get(random.nextInt(cuentas.size())).getId();
+                    resultados.add(motor.transferir(origen, destino, new BigDecimal(random.nextInt(30))));
+                }
+                // se vuelca sin esperar las transferencias: las que cruzan particiones pueden estar a medias
+                motor.volcar().join();
+                BigDecimal total = cuentas.stream().map(Cuenta::getSaldo).reduce(BigDecimal.ZERO, BigDecimal::add);
+                assertEquals("5000.00", total.toPlainString(), "Vuelta " + vuelta);
+            }
+            resultados.forEach(CompletableFuture::join);
+        }
+    }
+
+    @Test
+    void testCerrarConTransferenciasEnViaje() throws Exception {
+        Banco banco = new Banco();
+        for (int i = 0; i < 50; i++) {
+            banco.addCuenta(new Cuenta("Persona " + i, new BigDecimal("100.00")));
+        }
+        List<Cuenta> cuentas = banco.getCuentas();
+
+        MotorParticionado motor = new MotorParticionado(banco, 4, 2, 64);
+        List<CompletableFuture<ResultadoDebito>> resultados = new ArrayList<>();
+        Thread productor = new Thread(() -> {
+            Random random = new Random(11);
+            for (int i = 0; i < 50_000; i++) {
+                long origen = cuentas.get(random.nextInt(cuentas.size())).getId();
+                long destino = cuentas.get(random.nextInt(cuentas.size())).getId();
+                resultados.add(motor.transferir(origen, destino, new BigDecimal(random.nextInt(30))));
+            }
+        });
+        productor.start();
+        while (productor.isAlive() && resultados.size() < 1_000) {
+            Thread.yield();
+        }
+        // se cierra con el productor todavia enviando y transferencias a medias entre particiones
+        motor.close();
+        productor.join();
+
+        // ninguna queda colgada: las atendidas terminan, las demas fallan porque el motor esta cerrado
+        for (CompletableFuture<ResultadoDebito> resultado : resultados) {
+            assertTrue(resultado.isDone());
+            if (resultado.isCompletedExceptionally()) {
+                ExecutionException e = assertThrows(ExecutionException.class, resultado::get);
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+        assertTrue(resultados.stream().anyMatch(f -> !f.isCompletedExceptionally()));
+        CompletableFuture<ResultadoDebito> tarde = motor.debito(cuentas.get(0).getId(), BigDecimal.ONE);
+        assertThrows(ExecutionException.class, () -> tarde.get(1, TimeUnit.SECONDS));
+        assertTrue(motor.volcar().isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,59 @@
+package com.jimenuzca.UdemyJUnit.servicios;
+
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.EstadoReserva;
+import com.jimenuzca.UdemyJUnit.models.Reserva;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuedaVencimientosTest {
+
+    @Test
+    void testVencerPorTicks() {
+        Cuenta cuenta = new Cuenta("Graciela", new BigDecimal("1000"));
+        // 4 ranuras de 10ms: una vuelta son 40ms
+        RuedaVencimientos rueda = new RuedaVencimientos(10, TimeUnit.MILLISECONDS, 4, false);
+        Reserva corta = rueda.reservar(cuenta, new BigDecimal("100"), 15, TimeUnit.MILLISECONDS);
+        Reserva larga = rueda.reservar(cuenta, new BigDecimal("200"), 100, TimeUnit.MILLISECONDS);
+        Reserva capturada = rueda.reservar(cuenta, new BigDecimal("300"), 10, TimeUnit.MILLISECONDS);
+        capturada.capturar();
+
+        assertEquals(0, rueda.avanzar());
+        assertEquals(1, rueda.avanzar());
+        assertEquals(EstadoReserva.VENCIDA, corta.getEstado());
+        assertEquals("500", cuenta.getSaldoDisponible().toPlainString());
+
+        // la larga da dos vueltas y media antes de vencer
+        for (int i = 0; i < 7; i++) {
+            assertEquals(0, rueda.avanzar());
+        }
+        assertEquals(EstadoReserva.ACTIVA, larga.getEstado());
+        assertEquals(1, rueda.avanzar());
+        assertEquals(EstadoReserva.VENCIDA, larga.getEstado());
+        assertEquals("700", cuenta.getSaldoDisponible().toPlainString());
+        assertEquals(EstadoReserva.CAPTURADA, capturada.getEstado());
+    }
+
+    @Test
+    void testRuedaAutomatica() throws InterruptedException {
+        Cuenta cuenta = new Cuenta("Graciela", new BigDecimal("1000"));
+        try (RuedaVencimientos rueda = new RuedaVencimientos(5, TimeUnit.MILLISECONDS, 64)) {
+            Reserva reserva = rueda.reservar(cuenta, new BigDecimal("100"), 20, TimeUnit.MILLISECONDS);
+            long limite = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (reserva.getEstado() == EstadoReserva.ACTIVA && System.currentTimeMillis() < limite) {
+                Thread.sleep(5);
+            }
+            assertEquals(EstadoReserva.VENCIDA, reserva.getEstado());
+        }
+    }
+
+    @Test
+    void testTickNoPositivo() {
+        assertThrows(IllegalArgumentException.class, () -> new RuedaVencimientos(0, TimeUnit.MILLISECONDS, 4, false));
+        assertThrows(IllegalArgumentException.class, () -> new RuedaVencimientos(-1, TimeUnit.MILLISECONDS, 4));
+    }
+}
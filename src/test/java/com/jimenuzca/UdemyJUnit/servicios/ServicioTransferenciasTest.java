@@ -0,0 +1,69 @@
+package com.jimenuzca.UdemyJUnit.servicios;
+
+import com.jimenuzca.UdemyJUnit.models.Banco;
+import com.jimenuzca.UdemyJUnit.models.Cuenta;
+import com.jimenuzca.UdemyJUnit.models.ResultadoDebito;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServicioTransferenciasTest {
+
+    @Test
+    void testTransferenciasEnOrdenPorCuenta() {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", BigDecimal.ZERO);
+        Cuenta cuentaAndres = new Cuenta("Andres", BigDecimal.ZERO);
+        Banco banco = new Banco();
+
+        List<CompletableFuture<ResultadoDebito>> resultados = new ArrayList<>();
+        try (ServicioTransferencias servicio = ServicioTransferencias.crear(banco, 1000)) {
+            // Cecilia empieza sin saldo: cada debito solo se aprueba si se aplica despues del credito anterior
+            for (int i = 0; i < 100; i++) {
+                resultados.add(servicio.transferir(cuentaGraciela, cuentaCecilia, BigDecimal.TEN));
+                resultados.add(servicio.transferir(cuentaCecilia, cuentaAndres, BigDecimal.TEN));
+            }
+            resultados.forEach(CompletableFuture::join);
+        }
+
+        assertTrue(resultados.stream().allMatch(f -> f.join() == ResultadoDebito.APROBADO));
+        assertEquals("0", cuentaGraciela.getSaldo().toPlainString());
+        assertEquals("0", cuentaCecilia.getSaldo().toPlainString());
+        assertEquals("1000", cuentaAndres.getSaldo().toPlainString());
+    }
+
+    @Test
+    void testRechazaSiHayDemasiadasPendientes() throws InterruptedException {
+        Cuenta cuentaGraciela = new Cuenta("Graciela", new BigDecimal("1000"));
+        Cuenta cuentaCecilia = new Cuenta("Cecilia", BigDecimal.ZERO);
+        Banco banco = new Banco();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        // ocupamos el unico hilo hasta que el test lo libere
+        CountDownLatch liberar = new CountDownLatch(1);
+        executor.submit(() -> {
+            liberar.await();
+            return null;
+        });
+
+        try (ServicioTransferencias servicio = new ServicioTransferencias(banco, executor, 1)) {
+            CompletableFuture<ResultadoDebito> primera = servicio.transferir(cuentaGraciela, cuentaCecilia, BigDecimal.ONE);
+            CompletableFuture<ResultadoDebito> segunda = servicio.transferir(cuentaGraciela, cuentaCecilia, BigDecimal.ONE);
+
+            ExecutionException exc = assertThrows(ExecutionException.class, segunda::get);
+            assertTrue(exc.getCause() instanceof RejectedExecutionException);
+            liberar.countDown();
+            assertEquals(ResultadoDebito.APROBADO, primera.join());
+        }
+        assertEquals("999", cuentaGraciela.getSaldo().toPlainString());
+    }
+}